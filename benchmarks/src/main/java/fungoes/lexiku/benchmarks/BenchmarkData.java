@@ -0,0 +1,89 @@
+package fungoes.lexiku.benchmarks;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import fungoes.lexiku.Dictionary;
+import fungoes.lexiku.Template;
+
+/**
+ * Finds the word list and templates bundled in the project's data directory.  The directory is taken from the lexiku.data system
+ * property, otherwise data or ../data is used, so benchmarks can be run from the project or the benchmarks directory.
+ *
+ * @author benjamin.lee
+ *
+ */
+final class BenchmarkData {
+	static final String WORD_LIST = "sowpods.txt";
+
+	private BenchmarkData() {
+	}
+
+	static File file(String name) throws FileNotFoundException {
+		String dataDirectory = System.getProperty("lexiku.data");
+		String[] directories = dataDirectory != null ? new String[] { dataDirectory } : new String[] { "data", "../data" };
+
+		for(String directory : directories) {
+			File file = new File(directory, name);
+
+			if(file.isFile()) {
+				return file;
+			}
+		}
+
+		throw new FileNotFoundException(name + " not found, set -Dlexiku.data to the data directory");
+	}
+
+	static Dictionary loadDictionary() throws IOException {
+		Dictionary dictionary = new Dictionary();
+		Reader reader = new FileReader(file(WORD_LIST));
+
+		try {
+			dictionary.loadWords(reader);
+		}
+		finally {
+			reader.close();
+		}
+
+		return dictionary;
+	}
+
+	/**
+	 * @param name a bundled template such as "template_1", or "open" followed by a size such as "open4x3" for a template without
+	 *        blocked tiles
+	 * @return the template
+	 */
+	static Template loadTemplate(String name) throws IOException {
+		if(name.startsWith("open")) {
+			String[] size = name.substring("open".length()).split("x");
+			return new Template(new StringReader(openTemplate(Integer.parseInt(size[0]), Integer.parseInt(size[1]))));
+		}
+
+		Reader reader = new FileReader(file(name + ".txt"));
+
+		try {
+			return new Template(reader);
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	private static String openTemplate(int width, int height) {
+		StringBuilder template = new StringBuilder();
+
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				template.append('O');
+			}
+			template.append('\n');
+		}
+
+		return template.toString();
+	}
+
+}
@@ -0,0 +1,86 @@
+package fungoes.lexiku.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fungoes.lexiku.BoardBuilder;
+import fungoes.lexiku.BoardSink;
+import fungoes.lexiku.Dictionary;
+import fungoes.lexiku.SearchStrategy;
+import fungoes.lexiku.Template;
+
+/**
+ * Board searches with the sowpods word list.  Templates are the bundled template_1 and template_2 plus open templates of growing size.
+ * Most templates have far too many boards to find them all, so each search stops after a number of boards, 0 meaning all of them.
+ * Every {@link SearchStrategy} searches every template, so the strategies can be compared on the same searches.
+ *
+ * @author benjamin.lee
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BoardBuilderBenchmark {
+	@Param({ "template_1", "template_2", "open3x3", "open4x3", "open4x4" })
+	public String template;
+
+	@Param({ "1000" })
+	public long boardLimit;
+
+	@Param({ "RowOrder", "MostConstrainedFirst", "ArcConsistency", "Backjumping" })
+	public SearchStrategy strategy;
+
+	@Param({ "1" })
+	public int workers;
+
+	private Dictionary dictionary;
+	private Template searchTemplate;
+	private BoardBuilder builder;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		dictionary = BenchmarkData.loadDictionary();
+		searchTemplate = BenchmarkData.loadTemplate(template);
+
+		builder = new BoardBuilder(workers);
+		builder.setStrategy(strategy);
+	}
+
+	@Benchmark
+	public long build() {
+		CountingSink sink = new CountingSink(boardLimit);
+		builder.build(dictionary, searchTemplate, sink);
+		return sink.boards;
+	}
+
+	private static class CountingSink implements BoardSink {
+		private final long limit;
+		private long boards = 0;
+
+		public CountingSink(long limit) {
+			this.limit = limit;
+		}
+
+		public synchronized boolean boardFound(String[][] board) {
+			boards++;
+			return limit == 0 || boards < limit;
+		}
+	}
+
+}
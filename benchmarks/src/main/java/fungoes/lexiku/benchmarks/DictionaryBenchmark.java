@@ -0,0 +1,167 @@
+package fungoes.lexiku.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fungoes.lexiku.Dictionary;
+
+/**
+ * Loading and lookups of the sowpods word list.  Lookups are made with a fixed set of words and prefixes, half of them found in the
+ * dictionary and half not, so runs can be compared with each other.
+ *
+ * @author benjamin.lee
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DictionaryBenchmark {
+	private static final int LOOKUPS = 1024;
+	private static final long SEED = 42;
+
+	private String wordList;
+	private File image;
+	private Dictionary dictionary;
+	private String[] lookupWords;
+	private String[] lookupPrefixes;
+	private int[] lookupLengths;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		File wordListFile = BenchmarkData.file(BenchmarkData.WORD_LIST);
+		wordList = read(wordListFile);
+
+		dictionary = new Dictionary();
+		dictionary.loadWords(new StringReader(wordList));
+
+		image = File.createTempFile("sowpods", ".lxd");
+		dictionary.compile(image);
+
+		List<String> words = new ArrayList<String>();
+		for(String word : dictionary) {
+			words.add(word);
+		}
+
+		Random random = new Random(SEED);
+		lookupWords = new String[LOOKUPS];
+		lookupPrefixes = new String[LOOKUPS];
+		lookupLengths = new int[LOOKUPS];
+
+		for(int i = 0; i < LOOKUPS; i++) {
+			String word = words.get(random.nextInt(words.size()));
+			String prefix = word.substring(0, 1 + random.nextInt(word.length()));
+
+			if(i % 2 == 1) {
+				word = word + 'q';
+				prefix = prefix + 'q';
+			}
+
+			lookupWords[i] = word;
+			lookupPrefixes[i] = prefix;
+			lookupLengths[i] = word.length();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		image.delete();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Dictionary loadWords() throws IOException {
+		Dictionary loaded = new Dictionary();
+		loaded.loadWords(new StringReader(wordList));
+		return loaded;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Dictionary loadCompiled() throws IOException {
+		Dictionary loaded = new Dictionary();
+		loaded.loadCompiled(image);
+		return loaded;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@OperationsPerInvocation(LOOKUPS)
+	public void containsPrefix(Blackhole blackhole) {
+		for(int i = 0; i < LOOKUPS; i++) {
+			blackhole.consume(dictionary.containsPrefix(lookupPrefixes[i], lookupLengths[i]));
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@OperationsPerInvocation(LOOKUPS)
+	public void isWordPresent(Blackhole blackhole) {
+		for(int i = 0; i < LOOKUPS; i++) {
+			blackhole.consume(dictionary.isWordPresent(lookupWords[i]));
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void byLengthIterable(Length length, Blackhole blackhole) {
+		for(String word : dictionary.byLengthIterable(length.wordLength)) {
+			blackhole.consume(word);
+		}
+	}
+
+	/**
+	 * Word lengths to iterate, from one of the shortest word lists to the longest.
+	 */
+	@State(Scope.Benchmark)
+	public static class Length {
+		@Param({ "2", "5", "9" })
+		public int wordLength;
+	}
+
+	private static String read(File file) throws IOException {
+		StringBuilder text = new StringBuilder((int) file.length());
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+
+		try {
+			String line;
+			while((line = reader.readLine()) != null) {
+				text.append(line).append('\n');
+			}
+		}
+		finally {
+			reader.close();
+		}
+
+		return text.toString();
+	}
+
+}
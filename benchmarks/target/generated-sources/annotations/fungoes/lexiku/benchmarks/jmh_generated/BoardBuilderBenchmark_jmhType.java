@@ -0,0 +1,4 @@
+package fungoes.lexiku.benchmarks.jmh_generated;
+public class BoardBuilderBenchmark_jmhType extends BoardBuilderBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package fungoes.lexiku.benchmarks.jmh_generated;
+public class DictionaryBenchmark_Length_jmhType extends DictionaryBenchmark_Length_jmhType_B3 {
+}
+
@@ -0,0 +1,453 @@
+package fungoes.lexiku;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Search which keeps the remaining candidate words of every slot and the letters still possible in every cell, and propagates each
+ * word it places with AC-3.  A slot drops the candidates whose letters are no longer possible in its cells, which in turn narrows the
+ * letters of the cells it crosses, until nothing changes or a slot has no candidates left.  Dead ends anywhere on the board are then
+ * found as soon as they are certain instead of when the search reaches them.  Slots are filled fewest candidates first.
+ * 
+ * Candidates are kept as sets of word indices in the slot's {@link PrefixTrie}, letters as bit masks over the letters of the
+ * dictionary.  Every change is recorded on a trail and undone when the search backs up.  Placing a word also removes it from the
+ * slots which may not repeat it under the rules of {@link SearchSlots}, so the boards found are the same as with
+ * {@link SearchStrategy#RowOrder}, only the order differs.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+class ArcConsistentSearch {
+	/**
+	 * Most letters a dictionary may use, one bit of a mask each.
+	 */
+	static final int MAX_LETTERS = 32;
+
+	private static final int NO_WORD = -1;
+
+	private final Dictionary dictionary;
+	private final Template template;
+	private final BoardSink sink;
+	private final SearchStatistics statistics;
+	private final SearchLimits limits;
+
+	private final SearchSlots slots;
+	private final int slotCount;
+	private final byte[][] letterCodes;
+	private final int allLetters;
+
+	private final int[][] domains;
+	private final int[][] domainPositions;
+	private final int[] domainSizes;
+	private final int[] cellMasks;
+	private final int[] words;
+
+	private final int[] queue;
+	private final boolean[] queued;
+	private int queueHead = 0;
+	private int queueSize = 0;
+
+	private int[] trail = new int[64];
+	private int trailSize = 0;
+	private final long[] stamps;
+	private long level = 0;
+
+	private final int[] positionMasks;
+	private final int[] supportedMasks;
+	private boolean stopped = false;
+
+	/**
+	 * @param dictionary word list to build boards with
+	 * @param template template of all solved boards
+	 * @param sink receives every board until it asks to stop
+	 * @param statistics counters to update, may be null
+	 * @param limits budgets and cancellation to stop at, may be null
+	 */
+	public ArcConsistentSearch(Dictionary dictionary, Template template, BoardSink sink, SearchStatistics statistics, SearchLimits limits) {
+		this.dictionary = dictionary;
+		this.template = template;
+		this.sink = sink;
+		this.statistics = statistics;
+		this.limits = limits;
+		
+		slots = new SearchSlots(dictionary, template.slotGraph());
+		slotCount = slots.slotCount;
+		letterCodes = codeLetters(slots.tries);
+		allLetters = letterCodes == null ? 0 : (int) ((1L << countLetters(letterCodes)) - 1);
+		
+		int cells = template.getWidth() * template.getHeight();
+		int longestSlot = 0;
+		
+		domains = new int[slotCount][];
+		domainPositions = new int[slotCount][];
+		domainSizes = new int[slotCount];
+		words = new int[slotCount];
+		
+		for(int slot = 0; slot < slotCount; slot++) {
+			int wordCount = slots.tries[slot].wordCount();
+			
+			domains[slot] = new int[wordCount];
+			domainPositions[slot] = new int[wordCount];
+			domainSizes[slot] = wordCount;
+			words[slot] = NO_WORD;
+			longestSlot = Math.max(longestSlot, slots.cells[slot].length);
+			
+			for(int word = 0; word < wordCount; word++) {
+				domains[slot][word] = word;
+				domainPositions[slot][word] = word;
+			}
+		}
+		
+		cellMasks = new int[cells];
+		Arrays.fill(cellMasks, allLetters);
+		
+		queue = new int[slotCount];
+		queued = new boolean[slotCount];
+		stamps = new long[slotCount + cells];
+		positionMasks = new int[longestSlot];
+		supportedMasks = new int[longestSlot];
+	}
+
+	/**
+	 * Numbers the letters of the words of every slot.  Slots of the same length share their codes.
+	 * 
+	 * @return for each slot the letter numbers of its trie's words, word after word, or null if the words use more than
+	 *         {@link #MAX_LETTERS} letters
+	 */
+	private static byte[][] codeLetters(PrefixTrie[] tries) {
+		Map<Character, Integer> letterNumbers = new HashMap<Character, Integer>();
+		Map<PrefixTrie, byte[]> codesByTrie = new HashMap<PrefixTrie, byte[]>();
+		byte[][] codes = new byte[tries.length][];
+		
+		for(int slot = 0; slot < tries.length; slot++) {
+			PrefixTrie trie = tries[slot];
+			codes[slot] = codesByTrie.get(trie);
+			
+			if(codes[slot] == null) {
+				int length = trie.getWordLength();
+				codes[slot] = new byte[trie.wordCount() * length];
+				codesByTrie.put(trie, codes[slot]);
+				
+				for(int word = 0; word < trie.wordCount(); word++) {
+					String letters = trie.wordAt(word);
+					
+					for(int i = 0; i < length; i++) {
+						Integer number = letterNumbers.get(letters.charAt(i));
+						
+						if(number == null) {
+							if(letterNumbers.size() == MAX_LETTERS) {
+								return null;
+							}
+							
+							number = letterNumbers.size();
+							letterNumbers.put(letters.charAt(i), number);
+						}
+						
+						codes[slot][word * length + i] = number.byteValue();
+					}
+				}
+			}
+		}
+		
+		return codes;
+	}
+
+	private static int countLetters(byte[][] letterCodes) {
+		int letters = 0;
+		
+		for(byte[] codes : letterCodes) {
+			for(byte code : codes) {
+				letters = Math.max(letters, code + 1);
+			}
+		}
+		
+		return letters;
+	}
+
+	/**
+	 * Runs the search to the end, until the sink asks to stop or until the limits are reached.  A dictionary with more than
+	 * {@link #MAX_LETTERS} letters is searched with a {@link SlotSearch} instead.
+	 */
+	public void run() {
+		if(letterCodes == null) {
+			new SlotSearch(dictionary, template, sink, statistics, limits).run();
+			return;
+		}
+		
+		if(statistics != null) {
+			statistics.searchStarted(slotCount);
+		}
+		
+		try {
+			for(int slot = 0; slot < slotCount; slot++) {
+				enqueue(slot);
+			}
+			
+			if(propagate()) {
+				fillSlots(0);
+			}
+		}
+		finally {
+			if(statistics != null) {
+				statistics.searchEnded();
+			}
+		}
+	}
+
+	private void fillSlots(int depth) {
+		if(depth == slotCount) {
+			boardFound();
+			return;
+		}
+		
+		int slot = NO_WORD;
+		
+		for(int open = 0; open < slotCount; open++) {
+			if(words[open] == NO_WORD && (slot == NO_WORD || domainSizes[open] < domainSizes[slot])) {
+				slot = open;
+			}
+		}
+		
+		int[] candidates = Arrays.copyOf(domains[slot], domainSizes[slot]);
+		Arrays.sort(candidates);
+		
+		for(int candidate : candidates) {
+			if(stopped) {
+				return;
+			}
+			
+			int trailMark = trailSize;
+			level++;
+			boolean fits = place(slot, candidate);
+			
+			if(statistics != null) {
+				statistics.candidatesTried(depth, fits ? 1 : 0, fits ? 0 : 1, 0);
+			}
+			
+			if(fits && limits != null && !limits.allowsNode()) {
+				undo(trailMark);
+				stopped = true;
+				return;
+			}
+			
+			if(fits) {
+				if(statistics != null) {
+					statistics.nodeVisited();
+				}
+				
+				words[slot] = candidate;
+				fillSlots(depth + 1);
+				words[slot] = NO_WORD;
+			}
+			
+			undo(trailMark);
+		}
+	}
+
+	/**
+	 * Narrows the slot to the word, removes the word from the open slots which may not repeat it and propagates.
+	 * 
+	 * @return false if a slot was left without candidates
+	 */
+	private boolean place(int slot, int word) {
+		for(int other = 0; other < slotCount; other++) {
+			if(other != slot && words[other] == NO_WORD && slots.mustDiffer(slot, other) && domainPositions[other][word] < domainSizes[other]) {
+				if(domainSizes[other] == 1) {
+					return false;
+				}
+				
+				remove(other, domainPositions[other][word]);
+				enqueue(other);
+			}
+		}
+		
+		saveDomainSize(slot);
+		swap(slot, 0, domainPositions[slot][word]);
+		domainSizes[slot] = 1;
+		enqueue(slot);
+		
+		return propagate();
+	}
+
+	private boolean propagate() {
+		while(queueSize > 0) {
+			int slot = queue[queueHead];
+			queueHead = (queueHead + 1) % slotCount;
+			queueSize--;
+			queued[slot] = false;
+			
+			if(!revise(slot)) {
+				while(queueSize > 0) {
+					queued[queue[queueHead]] = false;
+					queueHead = (queueHead + 1) % slotCount;
+					queueSize--;
+				}
+				
+				return false;
+			}
+		}
+		
+		return true;
+	}
+
+	/**
+	 * Drops the candidates of the slot whose letters are no longer possible, then narrows the letters of its cells to those its
+	 * remaining candidates have, queueing the crossing slots of every cell which changed.
+	 * 
+	 * @return false if no candidates are left
+	 */
+	private boolean revise(int slot) {
+		int[] cells = slots.cells[slot];
+		int length = cells.length;
+		byte[] codes = letterCodes[slot];
+		int[] domain = domains[slot];
+		boolean narrowed = false;
+		
+		for(int i = 0; i < length; i++) {
+			positionMasks[i] = cellMasks[cells[i]];
+			supportedMasks[i] = 0;
+			narrowed |= positionMasks[i] != allLetters;
+		}
+		
+		int size = domainSizes[slot];
+		
+		for(int i = 0; i < size;) {
+			int letters = domain[i] * length;
+			boolean fits = true;
+			
+			for(int position = 0; narrowed && position < length; position++) {
+				if((positionMasks[position] & (1 << codes[letters + position])) == 0) {
+					fits = false;
+					break;
+				}
+			}
+			
+			if(fits) {
+				for(int position = 0; position < length; position++) {
+					supportedMasks[position] |= 1 << codes[letters + position];
+				}
+				
+				i++;
+			}
+			else {
+				if(size == domainSizes[slot]) {
+					saveDomainSize(slot);
+				}
+				
+				swap(slot, i, --size);
+			}
+		}
+		
+		domainSizes[slot] = size;
+		
+		if(size == 0) {
+			return false;
+		}
+		
+		for(int i = 0; i < length; i++) {
+			if(supportedMasks[i] != positionMasks[i]) {
+				saveCellMask(cells[i]);
+				cellMasks[cells[i]] = supportedMasks[i];
+				
+				if(slots.crossingSlots[slot][i] != SlotGraph.NO_SLOT) {
+					enqueue(slots.crossingSlots[slot][i]);
+				}
+			}
+		}
+		
+		return true;
+	}
+
+	private void enqueue(int slot) {
+		if(!queued[slot]) {
+			queued[slot] = true;
+			queue[(queueHead + queueSize) % slotCount] = slot;
+			queueSize++;
+		}
+	}
+
+	private void remove(int slot, int position) {
+		saveDomainSize(slot);
+		swap(slot, position, --domainSizes[slot]);
+	}
+
+	/**
+	 * Swaps two candidates of a slot.  Candidates past the domain size are the removed ones, so restoring the size restores them.
+	 */
+	private void swap(int slot, int first, int second) {
+		int[] domain = domains[slot];
+		int firstWord = domain[first];
+		
+		domain[first] = domain[second];
+		domain[second] = firstWord;
+		domainPositions[slot][domain[first]] = first;
+		domainPositions[slot][firstWord] = second;
+	}
+
+	private void saveDomainSize(int slot) {
+		save(slot, domainSizes[slot]);
+	}
+
+	private void saveCellMask(int cell) {
+		save(slotCount + cell, cellMasks[cell]);
+	}
+
+	/**
+	 * Records the value of a domain size or cell mask the first time it changes after the current word was placed.
+	 */
+	private void save(int entry, int value) {
+		if(stamps[entry] == level) {
+			return;
+		}
+		
+		stamps[entry] = level;
+		
+		if(trailSize + 2 > trail.length) {
+			trail = Arrays.copyOf(trail, trail.length * 2);
+		}
+		
+		trail[trailSize++] = entry;
+		trail[trailSize++] = value;
+	}
+
+	private void undo(int trailMark) {
+		while(trailSize > trailMark) {
+			int value = trail[--trailSize];
+			int entry = trail[--trailSize];
+			
+			if(entry < slotCount) {
+				domainSizes[entry] = value;
+			}
+			else {
+				cellMasks[entry - slotCount] = value;
+			}
+		}
+	}
+
+	private void boardFound() {
+		String[][] board = new String[template.getWidth()][template.getHeight()];
+		
+		for(String[] column : board) {
+			Arrays.fill(column, "-");
+		}
+		
+		for(int slot = 0; slot < slotCount; slot++) {
+			String word = slots.tries[slot].wordAt(words[slot]);
+			
+			for(int i = 0; i < word.length(); i++) {
+				int cell = slots.cells[slot][i];
+				board[cell % template.getWidth()][cell / template.getWidth()] = String.valueOf(word.charAt(i));
+			}
+		}
+		
+		if(statistics != null) {
+			statistics.boardFound();
+		}
+		
+		if(!sink.boardFound(board)) {
+			stopped = true;
+		}
+	}
+
+}
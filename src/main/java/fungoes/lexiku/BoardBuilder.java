@@ -1,118 +1,1904 @@
-package fungoes.lexiku;
-
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-
-/**
- * Given dictionary and template, produce valid solved boards.
- * 
- * @author benjamin.lee
- *
- */
-public class BoardBuilder {
-
-	/**
-	 * Produce valid solved boards from the given dictionary and board template.
-	 * 
-	 * @param dictionary word list to build a board with
-	 * @param template template of all solved boards
-	 * @return list of valid boards that were found
-	 */
-	public List<String[][]> build(Dictionary dictionary, Template template) {
-
-		List<String[][]> completedBoards = new ArrayList<String[][]>();
-		Space[][] spaces = emptySpaces(template);
-		List<StartingPoint> startingPoints = template.horizontalStartingPoints();
-		int currentStartingPoints = 0;
-		Set<String> usedWords = new HashSet<String>(startingPoints.size() * 5);
-		
-		fillSpaces(spaces, startingPoints, currentStartingPoints, dictionary, template, completedBoards, usedWords);
-		
-		return completedBoards;
-	}
-
-	private void fillSpaces(Space[][] spaces,
-			List<StartingPoint> startingPoints, int currentStartingPoint,
-			Dictionary dictionary, Template template,
-			List<String[][]> completedBoards, Set<String> usedWords) {
-		
-		if(currentStartingPoint == startingPoints.size()) {
-			String[][] completedBoard = new String[template.getWidth()][template.getHeight()];
-			
-			for(int x = 0; x < template.getWidth(); x++) {
-				for(int y = 0; y < template.getHeight(); y++) {
-					completedBoard[x][y] = spaces[x][y].letter;
-				}
-			}
-			
-			Lexiku.printBoard(template, completedBoards);
-			
-			completedBoards.add(completedBoard);
-		}
-		else {
-			StartingPoint sPoint = startingPoints.get(currentStartingPoint++);
-			
-			for(String candidateWord : dictionary.byLengthIterable(sPoint.length)) {
-				if(candidateWord.length() == 1 || !usedWords.contains(candidateWord)) {
-					boolean works = true;
-					
-					if(sPoint.y > 0) {
-						for(int i = 0; i < sPoint.length && works; i++) {
-							int dx = sPoint.x + i;
-							int dy = sPoint.y - 1;
-							
-							String prefix = spaces[dx][dy].verticalWordSoFar + String.valueOf(candidateWord.charAt(i));
-							int verticalWordLength = template.verticalWordLengthFor(dx, sPoint.y);
-							
-							if(prefix.length() == verticalWordLength) {
-								works = !prefix.equals(candidateWord) && (prefix.length() == 1 || !usedWords.contains(prefix)) && dictionary.isWordPresent(prefix);
-							}
-							else {
-								works = dictionary.containsPrefix(prefix, verticalWordLength);
-							}
-						}
-					}
-					
-					if(works) {
-						for(int i = 0; i < sPoint.length; i++) {
-							int dx = sPoint.x + i;
-							int dy = sPoint.y - 1;
-							
-							spaces[dx][sPoint.y].letter = String.valueOf(candidateWord.charAt(i));
-							
-							if(sPoint.y > 0) {
-								spaces[dx][sPoint.y].verticalWordSoFar = spaces[dx][dy].verticalWordSoFar + String.valueOf(candidateWord.charAt(i));
-							}
-							else {
-								spaces[dx][sPoint.y].verticalWordSoFar = spaces[dx][sPoint.y].letter;
-							}
-						}
-						
-						usedWords.add(candidateWord);
-						fillSpaces(spaces, startingPoints, currentStartingPoint, dictionary, template, completedBoards, usedWords);
-						usedWords.remove(candidateWord);
-					}
-				}
-			}
-		}
-		
-	}
-
-	private Space[][] emptySpaces(Template template) {
-		Space[][] spaces = new Space[template.getWidth()][template.getHeight()];
-		for(int x = 0; x < template.getWidth(); x++) {
-			for(int y = 0; y < template.getHeight(); y++) {
-				spaces[x][y] = new Space();
-			}
-		}
-		return spaces;
-	}
-	
-	private static class Space {
-		public String letter = "-";
-		public String verticalWordSoFar = "";
-	}
-	
-}
+package fungoes.lexiku;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Given dictionary and template, produce valid solved boards.
+ * 
+ * @author benjamin.lee
+ *
+ */
+public class BoardBuilder {
+	private static final int MAX_SPLIT_DEPTH = 2;
+	private static final int TASKS_PER_WORKER = 8;
+	private static final int NOGOOD_CACHE_ENTRIES = 1 << 18;
+	private static final int PREFIXES_PER_SHARD = 16;
+
+	private final int parallelism;
+	private SearchStrategy strategy = SearchStrategy.RowOrder;
+	private SearchStatistics statistics = null;
+	private long nodeBudget = Long.MAX_VALUE;
+	private long timeBudgetNanos = Long.MAX_VALUE;
+	private CancellationToken cancellationToken = null;
+	private File checkpoint = null;
+	private int shard = 0;
+	private int shards = 1;
+	private boolean symmetryBreaking = false;
+	private SolutionCache solutionCache = null;
+	private boolean pruning = false;
+
+	/**
+	 * Creates a builder which searches on the calling thread.
+	 */
+	public BoardBuilder() {
+		this(1);
+	}
+
+	/**
+	 * Creates a builder which splits the search over the given number of worker threads.
+	 * 
+	 * @param parallelism number of worker threads, 1 searches on the calling thread
+	 */
+	public BoardBuilder(int parallelism) {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+		}
+		
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Chooses the order in which words are filled.  Every strategy finds the same boards.  Parallel searches always use
+	 * {@link SearchStrategy#RowOrder}.
+	 * 
+	 * @param strategy search strategy, {@link SearchStrategy#RowOrder} by default
+	 */
+	public void setStrategy(SearchStrategy strategy) {
+		this.strategy = strategy;
+	}
+
+	/**
+	 * @param statistics counters to update while searching, null (the default) to collect nothing
+	 */
+	public void setStatistics(SearchStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	/**
+	 * @param nodes most nodes a build or count visits before it stops, {@link Long#MAX_VALUE} (the default) for no limit
+	 */
+	public void setNodeBudget(long nodes) {
+		this.nodeBudget = nodes;
+	}
+
+	/**
+	 * @param time longest a build or count searches before it stops, {@link Long#MAX_VALUE} (the default) for no limit
+	 * @param unit unit of the time
+	 */
+	public void setTimeBudget(long time, TimeUnit unit) {
+		this.timeBudgetNanos = unit.toNanos(time);
+	}
+
+	/**
+	 * @param token token which stops a build or count when cancelled, null (the default) for none
+	 */
+	public void setCancellationToken(CancellationToken token) {
+		this.cancellationToken = token;
+	}
+
+	/**
+	 * Lets a build be stopped and picked up again later, in another process if need be.  When a budget or the cancellation token stops
+	 * the build, the candidate index at each starting point and the used words are written to the file.  A build which finds the file
+	 * already there resumes from it, finding only the boards after those found before it stopped, and deletes the file once it runs to
+	 * the end.  A build stopped by its sink leaves the file as it was.
+	 * 
+	 * Only a sequential {@link SearchStrategy#RowOrder} build has a frontier which can be written this way.
+	 * 
+	 * @param checkpoint file to write the frontier to and resume from, null (the default) for none
+	 */
+	public void setCheckpoint(File checkpoint) {
+		this.checkpoint = checkpoint;
+	}
+
+	/**
+	 * Makes builds and counts cover one part of the search, so one template can be spread over processes or machines which share
+	 * nothing but their inputs.  The candidates of the first starting point, or of the first two when the first has too few to go
+	 * round, are split into consecutive runs, one per shard, sized by an estimate of the search below each candidate: the number of
+	 * vertical words each of its letters could still start or continue.  The shards' boards together are the boards of the whole
+	 * search, each found by exactly one shard, and in shard order they are in search order.
+	 * 
+	 * Shards run a sequential {@link SearchStrategy#RowOrder} search and count without splitting the template into regions.
+	 * 
+	 * @param shard shard to search, from 0
+	 * @param shards number of shards, 1 (the default) for the whole search
+	 */
+	public void setShard(int shard, int shards) {
+		if(shards < 1 || shard < 0 || shard >= shards) {
+			throw new IllegalArgumentException("Shard must be from 0 to one less than the shard count: " + shard + "/" + shards);
+		}
+		
+		this.shard = shard;
+		this.shards = shards;
+	}
+
+	/**
+	 * Searches only one board of each orbit of a symmetric template, see {@link Template#symmetries()}, and finds the rest of the orbit
+	 * by moving it.  The symmetries used are those which move every board the search accepts to a board it accepts: the rotations and
+	 * reflections which read words backwards only if every word of the template's lengths is a word backwards as well, and none which
+	 * moves a one letter vertical slot of the top row, whose letter is never checked, to a slot which is.  Cuts the search by up to
+	 * the number of symmetries.
+	 * 
+	 * The search keeps the partial boards which no symmetry moves to an earlier partial board in search order, so it reaches the first
+	 * board of every orbit.  Since the rules against repeated words are not symmetric, the search lets words repeat and every board of
+	 * the orbit is checked against the rules before it is handed on.  A build hands on the boards of an orbit together, so they are
+	 * not in search order, though {@link #build(Dictionary, Template)} still sorts them.  Only a {@link SearchStrategy#RowOrder}
+	 * search breaks symmetries, and counting ignores the setting.
+	 * 
+	 * @param symmetryBreaking true to search one board of each orbit, false (the default) to search every board
+	 */
+	public void setSymmetryBreaking(boolean symmetryBreaking) {
+		this.symmetryBreaking = symmetryBreaking;
+	}
+
+	/**
+	 * Answers builds and counts from the cache when the same template was searched with the same words before, and keeps the boards
+	 * and counts of searches which run to the end.  The shard and whether words may repeat are part of what is looked up, the strategy
+	 * and parallelism are not since they find the same boards.  Builds with a checkpoint and canonical builds always search.  A build
+	 * answered from the cache hands on the boards in the order they were first found, on the calling thread, and updates no statistics.
+	 * 
+	 * @param solutionCache cache to consult before searching, null (the default) for none
+	 */
+	public void setSolutionCache(SolutionCache solutionCache) {
+		this.solutionCache = solutionCache;
+	}
+
+	/**
+	 * Searches, counts and estimates with the dictionary pruned for the template, see {@link Dictionary#prunedFor(Template)}, so
+	 * candidate loops skip the words which could never fit.  The boards and counts are the same, but the statistics count fewer
+	 * candidates.  Checkpoints and shard plans are of the pruned dictionary, so a build resumed from a checkpoint and the shards of
+	 * one search must all prune or all not.
+	 * 
+	 * @param pruning true to prune the dictionary before every search, false (the default) to search every word
+	 */
+	public void setPruning(boolean pruning) {
+		this.pruning = pruning;
+	}
+
+	/**
+	 * @return the words a search of the template goes through
+	 */
+	private Dictionary searchedWords(Dictionary dictionary, Template template) {
+		return pruning ? dictionary.prunedFor(template) : dictionary;
+	}
+
+	/**
+	 * Produce valid solved boards from the given dictionary and board template.  Boards are returned in the same order regardless of
+	 * the parallelism and strategy.
+	 * 
+	 * @param dictionary word list to build a board with
+	 * @param template template of all solved boards
+	 * @return list of valid boards that were found
+	 */
+	public List<String[][]> build(Dictionary dictionary, Template template) {
+		final List<String[][]> completedBoards = new ArrayList<String[][]>();
+
+		build(dictionary, template, new BoardSink() {
+			public boolean boardFound(String[][] board) {
+				completedBoards.add(board);
+				return true;
+			}
+		});
+		
+		if(parallelism > 1 || strategy != SearchStrategy.RowOrder || symmetryBreaking || solutionCache != null) {
+			Collections.sort(completedBoards, SEARCH_ORDER);
+		}
+		
+		return completedBoards;
+	}
+
+	/**
+	 * Searches for valid solved boards and hands each one to the sink as soon as it is found.  Nothing is kept once the sink returns.
+	 * With more than one worker the sink is called from the worker threads, one call at a time, in the order the boards are found.
+	 * 
+	 * @param dictionary word list to build a board with
+	 * @param template template of all solved boards
+	 * @param sink receives every board until it asks to stop
+	 * @return false if a budget or the cancellation token stopped the build before the end, true if it ran to the end or the sink
+	 *         stopped it
+	 * @throws IllegalStateException if a checkpoint or shard is set for a parallel search or another strategy, symmetry breaking for
+	 *         another strategy, or the checkpoint file was written for another template or dictionary
+	 * @throws UncheckedIOException if the checkpoint file or solution cache could not be read or written
+	 */
+	public boolean build(Dictionary dictionary, Template template, BoardSink sink) {
+		if(solutionCache == null || checkpoint != null) {
+			return build(dictionary, template, sink, null, newLimits());
+		}
+		
+		String search = cachedSearch("boards", false);
+		
+		if(solutionCache.replayBoards(dictionary, template, search, sink)) {
+			return true;
+		}
+		
+		SolutionCache.Recording recording = solutionCache.recordBoards(dictionary, template, search, sink);
+		boolean complete = false;
+		
+		try {
+			complete = build(dictionary, template, recording, null, newLimits());
+		}
+		finally {
+			recording.close(complete);
+		}
+		
+		return complete;
+	}
+
+	/**
+	 * @return what a search is looked up by in the solution cache besides its template and dictionary
+	 */
+	private String cachedSearch(String kind, boolean repeatsAllowed) {
+		return kind + (repeatsAllowed ? " repeats" : "") + (shards > 1 ? " shard " + shard + "/" + shards : "");
+	}
+
+	/**
+	 * Breaks the symmetries of the template as {@link #setSymmetryBreaking(boolean)} does, but hands on only the first board of each
+	 * orbit with the number of boards in it.  The sink is called as in {@link #build(Dictionary, Template, BoardSink)}.
+	 * 
+	 * @param dictionary word list to build a board with
+	 * @param template template of all solved boards
+	 * @param sink receives one board of every orbit until it asks to stop
+	 * @return false if a budget or the cancellation token stopped the build before the end
+	 * @throws IllegalStateException if the strategy is not {@link SearchStrategy#RowOrder}, or as
+	 *         {@link #build(Dictionary, Template, BoardSink)} does
+	 * @throws UncheckedIOException if the checkpoint file could not be read or written
+	 */
+	public boolean buildCanonical(Dictionary dictionary, Template template, final CanonicalBoardSink sink) {
+		return build(dictionary, template, new BoardSink() {
+			public boolean boardFound(String[][] board) {
+				return sink.canonicalBoardFound(board, 1);
+			}
+		}, sink, newLimits());
+	}
+
+	/**
+	 * @return budgets and token of one search, null if there are none
+	 */
+	private SearchLimits newLimits() {
+		if(nodeBudget != Long.MAX_VALUE || timeBudgetNanos != Long.MAX_VALUE || cancellationToken != null) {
+			return new SearchLimits(nodeBudget, timeBudgetNanos, cancellationToken);
+		}
+		
+		return null;
+	}
+
+	/**
+	 * @param limits budgets and token to stop at, null for none
+	 * @return false if a budget or the cancellation token stopped the search
+	 */
+	private boolean build(Dictionary dictionary, Template template, BoardSink sink, CanonicalBoardSink canonicalSink, SearchLimits limits) {
+		dictionary = searchedWords(dictionary, template);
+		
+		if((checkpoint != null || shards > 1) && (parallelism > 1 || strategy != SearchStrategy.RowOrder)) {
+			throw new IllegalStateException("Checkpoints and shards need a sequential " + SearchStrategy.RowOrder + " search");
+		}
+		
+		if((symmetryBreaking || canonicalSink != null) && strategy != SearchStrategy.RowOrder) {
+			throw new IllegalStateException("Symmetry breaking needs a " + SearchStrategy.RowOrder + " search");
+		}
+		
+		if(parallelism == 1 && strategy == SearchStrategy.MostConstrainedFirst) {
+			new SlotSearch(dictionary, template, sink, statistics, limits).run();
+			return limits == null || !limits.isReached();
+		}
+		
+		if(parallelism == 1 && strategy == SearchStrategy.ArcConsistency) {
+			new ArcConsistentSearch(dictionary, template, sink, statistics, limits).run();
+			return limits == null || !limits.isReached();
+		}
+		
+		Search search = new Search(dictionary, template, sink, statistics);
+		SearchState state = new SearchState(template.getWidth() * template.getHeight());
+		search.limits = limits;
+		search.recordsPath = checkpoint != null || shards > 1;
+		
+		if(symmetryBreaking || canonicalSink != null) {
+			search.breakSymmetries(wordSymmetries(dictionary, template), canonicalSink);
+		}
+		
+		if(shards > 1) {
+			search.shard = planShard(search);
+			
+			if(search.shard.empty) {
+				return true;
+			}
+		}
+		
+		if(checkpoint != null && checkpoint.exists()) {
+			search.resume = readCheckpoint(dictionary, template);
+		}
+		
+		if(statistics != null) {
+			statistics.searchStarted(search.startingPoints.size());
+		}
+		
+		try {
+			if(parallelism == 1 && strategy == SearchStrategy.Backjumping) {
+				jumpSpaces(search, new Backjumps(search), state, 0, search.newUsedWords());
+			}
+			else if(parallelism == 1) {
+				fillSpaces(search, state, 0, search.newUsedWords());
+			}
+			else {
+				ForkJoinPool pool = new ForkJoinPool(parallelism);
+				
+				try {
+					pool.invoke(new SearchTask(search, state, 0, new int[0], 1));
+				}
+				finally {
+					pool.shutdown();
+				}
+			}
+		}
+		finally {
+			if(statistics != null) {
+				statistics.searchEnded();
+			}
+		}
+		
+		if(checkpoint != null) {
+			updateCheckpoint(search);
+		}
+		
+		return limits == null || !limits.isReached();
+	}
+
+	private SearchCheckpoint readCheckpoint(Dictionary dictionary, Template template) {
+		SearchCheckpoint frontier;
+		
+		try {
+			frontier = SearchCheckpoint.read(checkpoint);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		if(!frontier.matches(dictionary, template)) {
+			throw new IllegalStateException("Checkpoint " + checkpoint + " was written for another template or dictionary");
+		}
+		
+		return frontier;
+	}
+
+	private void updateCheckpoint(Search search) {
+		try {
+			if(search.frontier != null) {
+				search.frontier.write(checkpoint);
+			}
+			else if(!search.stopped) {
+				Files.deleteIfExists(checkpoint.toPath());
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Counts the boards {@link #build(Dictionary, Template)} would find without building them.
+	 * 
+	 * @param dictionary word list to build a board with
+	 * @param template template of all solved boards
+	 * @return number of boards
+	 * @see #count(Dictionary, Template, boolean)
+	 */
+	public BigInteger count(Dictionary dictionary, Template template) {
+		return count(dictionary, template, false);
+	}
+
+	/**
+	 * Counts boards a row at a time.  From the start of a row on, the search only depends on the vertical prefixes reached in the rows
+	 * above and on the words placed so far which a later word of the same length could repeat.  The boards below each distinct row state
+	 * are counted once and reused, so the time taken grows with the number of row states rather than the number of boards.
+	 * 
+	 * A template with several regions, see {@link Template#regions()}, is counted region by region, on the worker threads when there
+	 * are several.  The count is the product of the region counts unless a region has words another region could repeat.  The boards
+	 * of such a region are built and grouped by those words, and only the groups of different regions which do not repeat each other's
+	 * words are multiplied.  A single region is counted on the calling thread in row order whatever the parallelism and strategy.
+	 * 
+	 * The budgets and cancellation token cover the whole count, every region included.  Boards counted before they stop it are no
+	 * more than part of the count, so none is returned.
+	 * 
+	 * @param dictionary word list to build a board with
+	 * @param template template of all solved boards
+	 * @param repeatsAllowed true to count boards as if words could repeat, an upper bound whose row states are the vertical prefixes
+	 *        alone, so there are far fewer of them
+	 * @return number of boards
+	 * @throws ArithmeticException if the count of a single region does not fit in a long
+	 * @throws CancellationException if a budget or the cancellation token stopped the count before the end
+	 * @throws UncheckedIOException if the solution cache could not be read or written
+	 */
+	public BigInteger count(Dictionary dictionary, Template template, boolean repeatsAllowed) {
+		if(solutionCache == null) {
+			return countBoards(dictionary, template, repeatsAllowed);
+		}
+		
+		String search = cachedSearch("count", repeatsAllowed);
+		BigInteger boards = solutionCache.count(dictionary, template, search);
+		
+		if(boards == null) {
+			boards = countBoards(dictionary, template, repeatsAllowed);
+			solutionCache.putCount(dictionary, template, search, boards);
+		}
+		
+		return boards;
+	}
+
+	/**
+	 * @throws CancellationException if a budget or the cancellation token stopped the count
+	 */
+	private BigInteger countBoards(Dictionary dictionary, Template template, boolean repeatsAllowed) {
+		SearchLimits limits = newLimits();
+		BigInteger boards = countBoards(dictionary, template, repeatsAllowed, limits);
+		
+		if(limits != null && limits.isReached()) {
+			throw new CancellationException("Count stopped by its budget or cancellation token before the end");
+		}
+		
+		return boards;
+	}
+
+	/**
+	 * @return boards counted, only part of them if the limits were reached
+	 */
+	private BigInteger countBoards(Dictionary allWords, Template template, final boolean repeatsAllowed, final SearchLimits limits) {
+		final Dictionary dictionary = searchedWords(allWords, template);
+		List<Template> regions = template.regions();
+		
+		if(regions.size() == 1 || shards > 1) {
+			return BigInteger.valueOf(countRegion(dictionary, template, repeatsAllowed, limits));
+		}
+		
+		final RegionWords words = new RegionWords(dictionary, template);
+		List<RecursiveTask<Map<RegionWords.Occurrences, Long>>> tasks = new ArrayList<RecursiveTask<Map<RegionWords.Occurrences, Long>>>();
+		
+		for(int i = 0; i < regions.size(); i++) {
+			final int region = i;
+			final Template regionTemplate = regions.get(i);
+			
+			tasks.add(new RecursiveTask<Map<RegionWords.Occurrences, Long>>() {
+				protected Map<RegionWords.Occurrences, Long> compute() {
+					if(repeatsAllowed || !words.hasSharedWords(region)) {
+						long boards = countRegion(dictionary, regionTemplate, repeatsAllowed, limits);
+						return Collections.singletonMap(new RegionWords.Occurrences(RegionWords.NO_OCCURRENCES), boards);
+					}
+					
+					return groupRegionBoards(dictionary, regionTemplate, words, region, limits);
+				}
+			});
+		}
+		
+		Map<RegionWords.Occurrences, BigInteger> combined = Collections.singletonMap(new RegionWords.Occurrences(RegionWords.NO_OCCURRENCES), BigInteger.ONE);
+		int region = 0;
+		
+		for(Map<RegionWords.Occurrences, Long> groups : solveRegions(tasks)) {
+			Map<RegionWords.Occurrences, BigInteger> next = new HashMap<RegionWords.Occurrences, BigInteger>();
+			region++;
+			
+			for(Map.Entry<RegionWords.Occurrences, BigInteger> before : combined.entrySet()) {
+				for(Map.Entry<RegionWords.Occurrences, Long> group : groups.entrySet()) {
+					if(group.getValue() != 0 && !RegionWords.repeats(before.getKey().get(), group.getKey().get())) {
+						RegionWords.Occurrences key = new RegionWords.Occurrences(words.merge(before.getKey().get(), group.getKey().get(), region));
+						BigInteger boards = before.getValue().multiply(BigInteger.valueOf(group.getValue()));
+						BigInteger known = next.get(key);
+						
+						next.put(key, known == null ? boards : known.add(boards));
+					}
+				}
+			}
+			
+			combined = next;
+		}
+		
+		BigInteger boards = BigInteger.ZERO;
+		
+		for(BigInteger groupBoards : combined.values()) {
+			boards = boards.add(groupBoards);
+		}
+		
+		return boards;
+	}
+
+	private long countRegion(Dictionary dictionary, Template template, boolean repeatsAllowed, SearchLimits limits) {
+		Search search = new Search(dictionary, template, null, statistics);
+		search.repeatsAllowed = repeatsAllowed;
+		search.limits = limits;
+		
+		if(shards > 1) {
+			search.shard = planShard(search);
+			
+			if(search.shard.empty) {
+				return 0;
+			}
+		}
+		
+		if(statistics != null) {
+			statistics.searchStarted(search.startingPoints.size());
+		}
+		
+		try {
+			return countSpaces(search, new RowStates(search), new SearchState(template.getWidth() * template.getHeight()), 0, search.newUsedWords());
+		}
+		finally {
+			if(statistics != null) {
+				statistics.searchEnded();
+			}
+		}
+	}
+
+	/**
+	 * @return number of boards of the region by the occurrences of the words another region could repeat
+	 */
+	private Map<RegionWords.Occurrences, Long> groupRegionBoards(Dictionary dictionary, Template regionTemplate, final RegionWords words, final int region, SearchLimits limits) {
+		final Map<RegionWords.Occurrences, Long> groups = new HashMap<RegionWords.Occurrences, Long>();
+		
+		regionBuilder().build(dictionary, regionTemplate, new BoardSink() {
+			public boolean boardFound(String[][] board) {
+				RegionWords.Occurrences key = new RegionWords.Occurrences(words.occurrences(region, board));
+				Long known = groups.get(key);
+				
+				groups.put(key, known == null ? 1L : known + 1);
+				return true;
+			}
+		}, null, limits);
+		
+		return groups;
+	}
+
+	/**
+	 * @return symmetries of the template which move every board the search accepts to a board it accepts, see
+	 *         {@link #setSymmetryBreaking(boolean)}
+	 */
+	private static List<Symmetry> wordSymmetries(Dictionary dictionary, Template template) {
+		List<Symmetry> symmetries = new ArrayList<Symmetry>();
+		Boolean reversible = null;
+		
+		for(Symmetry symmetry : template.symmetries()) {
+			if(symmetry.reversesWords() && reversible == null) {
+				reversible = wordsReverse(dictionary, template.slotGraph());
+			}
+			
+			if((!symmetry.reversesWords() || reversible) && keepsUncheckedSlots(symmetry, template)) {
+				symmetries.add(symmetry);
+			}
+		}
+		
+		return symmetries;
+	}
+
+	/**
+	 * The search checks every slot but the one letter vertical slots of the top row, since only the rows below check vertical words,
+	 * so a symmetry keeps the boards it accepts only if it moves those slots onto each other.
+	 * 
+	 * @return whether the symmetry moves every one letter vertical slot of the top row to another
+	 */
+	private static boolean keepsUncheckedSlots(Symmetry symmetry, Template template) {
+		int width = template.getWidth();
+		int height = template.getHeight();
+		
+		for(int x = 0; x < width; x++) {
+			if(template.checkTile(x, 0) == TileType.Open && template.verticalWordLengthFor(x, 0) == 1) {
+				if(symmetry.swapsAxes() || symmetry.y(x, 0, width, height) != 0) {
+					return false;
+				}
+			}
+		}
+		
+		return true;
+	}
+
+	/**
+	 * @return whether every word of the lengths of the slots is a word backwards as well
+	 */
+	private static boolean wordsReverse(Dictionary dictionary, SlotGraph graph) {
+		boolean[] checked = new boolean[graph.cellCount() + 1];
+		
+		for(int slot = 0; slot < graph.slotCount(); slot++) {
+			int length = graph.length(slot);
+			
+			if(length > 1 && !checked[length]) {
+				checked[length] = true;
+				
+				for(String word : dictionary.prefixTrie(length).words()) {
+					if(!dictionary.isWordPresent(new StringBuilder(word).reverse().toString())) {
+						return false;
+					}
+				}
+			}
+		}
+		
+		return true;
+	}
+
+	/**
+	 * Moves the first board of an orbit by every symmetry and hands on those which follow the rules, or the first of them with their
+	 * number to the canonical sink.
+	 */
+	private void orbitFound(Search search, String[][] board) {
+		List<String[][]> images = new ArrayList<String[][]>(search.symmetries.size());
+		
+		for(Symmetry symmetry : search.symmetries) {
+			String[][] image = symmetry.apply(board);
+			
+			if(!containsBoard(images, image) && followsRules(search.rules, image)) {
+				images.add(image);
+			}
+		}
+		
+		Collections.sort(images, SEARCH_ORDER);
+		
+		if(search.canonicalSink != null) {
+			if(!images.isEmpty()) {
+				search.canonicalBoardFound(images.get(0), images.size());
+			}
+		}
+		else {
+			for(String[][] image : images) {
+				search.boardFound(image);
+			}
+		}
+	}
+
+	private static boolean containsBoard(List<String[][]> boards, String[][] board) {
+		for(String[][] other : boards) {
+			if(Arrays.deepEquals(other, board)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+
+	/**
+	 * @param rules search which does not allow repeated words
+	 * @param board board of the template whose words are all in the dictionary
+	 * @return whether a row order search places every word of the board
+	 */
+	private boolean followsRules(Search rules, String[][] board) {
+		SearchState state = new SearchState(rules.template.getWidth() * rules.template.getHeight());
+		long[] usedWords = rules.newUsedWords();
+		
+		for(int depth = 0; depth < rules.startingPoints.size(); depth++) {
+			StartingPoint sPoint = rules.startingPoints.get(depth);
+			PrefixTrie trie = rules.dictionary.prefixTrie(sPoint.length);
+			StringBuilder word = new StringBuilder(sPoint.length);
+			
+			for(int x = sPoint.x; x < sPoint.x + sPoint.length; x++) {
+				word.append(board[x][sPoint.y]);
+			}
+			
+			int node = trie.walk(trie.root(), word);
+			
+			if(!trie.isWord(node)) {
+				return false;
+			}
+			
+			int candidateId = rules.firstCandidateIds[depth] + trie.wordIndex(node);
+			
+			if(place(rules, state, sPoint, trie, trie.wordIndex(node), candidateId, usedWords) != Placement.Fits) {
+				return false;
+			}
+			
+			usedWords[candidateId >>> 6] |= 1L << candidateId;
+		}
+		
+		return true;
+	}
+
+	/**
+	 * Estimates the size of the row order search {@link #build(Dictionary, Template, BoardSink)} would run, without running it.  Each
+	 * probe walks down from the first starting point, tries every candidate of a starting point the way the search does, and places one
+	 * of those which fit, chosen at random, until it reaches a board or a starting point where nothing fits.  This builder's shard is
+	 * probed alone, and budgets, checkpoints and statistics are left out.
+	 * 
+	 * @param dictionary word list to build a board with
+	 * @param template template of all solved boards
+	 * @param probes number of random probes to average, more giving a steadier estimate
+	 * @param seed seed of the random choices, the same seed giving the same estimate
+	 * @return estimated nodes, boards and time of the search
+	 * @see SearchEstimate
+	 */
+	public SearchEstimate estimate(Dictionary dictionary, Template template, int probes, long seed) {
+		if(probes < 1) {
+			throw new IllegalArgumentException("At least one probe is needed, not " + probes);
+		}
+		
+		dictionary = searchedWords(dictionary, template);
+		Search search = new Search(dictionary, template, null, null);
+		search.recordsPath = true;
+		
+		if(shards > 1) {
+			search.shard = planShard(search);
+			
+			if(search.shard.empty) {
+				return new SearchEstimate(probes, 0, 0, 0, 0, parallelism);
+			}
+		}
+		
+		Random random = new Random(seed);
+		int[] fitting = new int[0];
+		double nodes = 0;
+		double boards = 0;
+		double[] candidatesTried = new double[search.startingPoints.size()];
+		long[] probedCandidates = new long[search.startingPoints.size()];
+		long[] probedNanos = new long[search.startingPoints.size()];
+		
+		for(int probe = 0; probe < probes; probe++) {
+			SearchState state = new SearchState(template.getWidth() * template.getHeight());
+			long[] usedWords = search.newUsedWords();
+			double siblings = 1;
+			int depth = 0;
+			
+			for(; depth < search.startingPoints.size(); depth++) {
+				StartingPoint sPoint = search.startingPoints.get(depth);
+				PrefixTrie candidates = dictionary.prefixTrie(sPoint.length);
+				int firstCandidateId = search.firstCandidateIds[depth];
+				int firstCandidate = 0;
+				int endCandidate = candidates.wordCount();
+				int fits = 0;
+				long start = System.nanoTime();
+				
+				if(search.shard != null && depth < search.shard.depth) {
+					firstCandidate = search.shard.firstCandidate(search.placedCandidates, depth);
+					endCandidate = search.shard.endCandidate(search.placedCandidates, depth, endCandidate);
+				}
+				
+				if(fitting.length < endCandidate - firstCandidate) {
+					fitting = new int[endCandidate - firstCandidate];
+				}
+				
+				for(int candidate = firstCandidate; candidate < endCandidate; candidate++) {
+					if(place(search, state, sPoint, candidates, candidate, firstCandidateId + candidate, usedWords) == Placement.Fits) {
+						fitting[fits++] = candidate;
+					}
+				}
+				
+				probedNanos[depth] += System.nanoTime() - start;
+				probedCandidates[depth] += Math.max(0, endCandidate - firstCandidate);
+				candidatesTried[depth] += siblings * Math.max(0, endCandidate - firstCandidate);
+				
+				if(fits == 0) {
+					break;
+				}
+				
+				int candidate = fitting[random.nextInt(fits)];
+				int candidateId = firstCandidateId + candidate;
+				
+				place(search, state, sPoint, candidates, candidate, candidateId, usedWords);
+				usedWords[candidateId >>> 6] |= 1L << candidateId;
+				search.placedCandidates[depth] = candidate;
+				siblings *= fits;
+				nodes += siblings;
+			}
+			
+			if(depth == search.startingPoints.size()) {
+				boards += siblings;
+			}
+		}
+		
+		double tried = 0;
+		double nanos = 0;
+		
+		for(int depth = 0; depth < candidatesTried.length; depth++) {
+			tried += candidatesTried[depth];
+			
+			if(probedCandidates[depth] > 0) {
+				nanos += candidatesTried[depth] * probedNanos[depth] / probedCandidates[depth];
+			}
+		}
+		
+		return new SearchEstimate(probes, nodes / probes, boards / probes, tried / probes, nanos / probes, parallelism);
+	}
+
+	/**
+	 * Solves every region of the template on its own, on the worker threads when there are several, and keeps the boards of each.
+	 * The boards of the template are then combined from them as they are iterated, which takes far less time and memory than building
+	 * them when the template has several regions, see {@link Template#regions()}.
+	 * 
+	 * @param dictionary word list to build a board with
+	 * @param template template of all solved boards
+	 * @return boards of every region and their combinations
+	 */
+	public RegionBoards buildRegions(final Dictionary dictionary, Template template) {
+		List<Template> regions = template.regions();
+		
+		if(regions.size() == 1) {
+			return new RegionBoards(template, Collections.singletonList(build(dictionary, template)), new RegionWords(dictionary, template));
+		}
+		
+		List<RecursiveTask<List<String[][]>>> tasks = new ArrayList<RecursiveTask<List<String[][]>>>();
+		
+		for(final Template regionTemplate : regions) {
+			tasks.add(new RecursiveTask<List<String[][]>>() {
+				protected List<String[][]> compute() {
+					return regionBuilder().build(dictionary, regionTemplate);
+				}
+			});
+		}
+		
+		return new RegionBoards(template, solveRegions(tasks), new RegionWords(dictionary, template));
+	}
+
+	/**
+	 * @return builder for one region, which searches on its own thread with this builder's strategy and statistics
+	 */
+	private BoardBuilder regionBuilder() {
+		BoardBuilder builder = new BoardBuilder();
+		builder.setStrategy(strategy);
+		builder.setStatistics(statistics);
+		return builder;
+	}
+
+	/**
+	 * Runs the tasks one after another on the calling thread, or on the worker threads when there are several.
+	 * 
+	 * @return results of the tasks in order
+	 */
+	private <T> List<T> solveRegions(final List<? extends RecursiveTask<T>> tasks) {
+		if(parallelism == 1) {
+			for(RecursiveTask<T> task : tasks) {
+				task.invoke();
+			}
+		}
+		else {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			
+			try {
+				pool.invoke(new RecursiveAction() {
+					protected void compute() {
+						invokeAll(tasks);
+					}
+				});
+			}
+			finally {
+				pool.shutdown();
+			}
+		}
+		
+		List<T> results = new ArrayList<T>(tasks.size());
+		
+		for(RecursiveTask<T> task : tasks) {
+			results.add(task.join());
+		}
+		
+		return results;
+	}
+
+	/**
+	 * Runs the search on a background thread and iterates over the boards as they are found.  The search waits while the caller is
+	 * not consuming boards.  Close the iterator to stop the search early.
+	 * 
+	 * @param dictionary word list to build a board with
+	 * @param template template of all solved boards
+	 * @return iterator over the boards
+	 */
+	public BoardIterator iterator(Dictionary dictionary, Template template) {
+		return new BoardIterator(this, dictionary, template);
+	}
+
+	/**
+	 * Same as {@link #iterator(Dictionary, Template)} as a sequential {@link Stream}.  Closing the stream stops the search.
+	 * 
+	 * @param dictionary word list to build a board with
+	 * @param template template of all solved boards
+	 * @return stream of the boards
+	 */
+	public Stream<String[][]> stream(Dictionary dictionary, Template template) {
+		final BoardIterator boards = iterator(dictionary, template);
+		
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(boards, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(new Runnable() {
+			public void run() {
+				boards.close();
+			}
+		});
+	}
+
+	/**
+	 * Lists the fitting candidates of the first starting point, or of the first two if there are too few for every shard to get
+	 * {@link #PREFIXES_PER_SHARD} of them, and plans this builder's shard over them.
+	 */
+	private ShardPlan planShard(Search search) {
+		if(search.startingPoints.isEmpty()) {
+			return ShardPlan.whole(shard);
+		}
+		
+		List<int[]> prefixes = new ArrayList<int[]>();
+		List<Double> weights = new ArrayList<Double>();
+		int depth = 0;
+		
+		while(depth < Math.min(2, search.startingPoints.size()) && (depth == 0 || prefixes.size() < shards * PREFIXES_PER_SHARD)) {
+			depth++;
+			prefixes.clear();
+			weights.clear();
+			collectPrefixes(search, new SearchState(search.template.getWidth() * search.template.getHeight()), new int[depth], 0,
+					search.newUsedWords(), prefixes, weights);
+		}
+		
+		double[] prefixWeights = new double[weights.size()];
+		for(int i = 0; i < prefixWeights.length; i++) {
+			prefixWeights[i] = weights.get(i);
+		}
+		
+		return ShardPlan.plan(depth, prefixes, prefixWeights, shard, shards);
+	}
+
+	/**
+	 * Walks the fitting candidates of the starting points before the length of the prefix.  The weight of each prefix is the product,
+	 * over the cells of its frontier, of the number of vertical words which could still go through the cell.
+	 */
+	private void collectPrefixes(Search search, SearchState state, int[] prefix, int depth, long[] usedWords, List<int[]> prefixes, List<Double> weights) {
+		if(depth == prefix.length) {
+			double weight = 1;
+			
+			for(int cell : depth < search.startingPoints.size() ? search.frontierCells[depth] : new int[0]) {
+				int node = state.verticalNodes[cell];
+				PrefixTrie trie = search.verticalTries[cell];
+				
+				weight *= node == PrefixTrie.NO_NODE ? 0 : trie.wordRangeEnd(node) - trie.wordRangeStart(node);
+			}
+			
+			prefixes.add(prefix.clone());
+			weights.add(weight);
+			return;
+		}
+		
+		StartingPoint sPoint = search.startingPoints.get(depth);
+		PrefixTrie candidates = search.dictionary.prefixTrie(sPoint.length);
+		
+		for(int candidate = 0; candidate < candidates.wordCount(); candidate++) {
+			int candidateId = search.firstCandidateIds[depth] + candidate;
+			
+			if(place(search, state, sPoint, candidates, candidate, candidateId, usedWords) == Placement.Fits) {
+				prefix[depth] = candidate;
+				
+				if(!search.repeatsAllowed) {
+					usedWords[candidateId >>> 6] |= 1L << candidateId;
+				}
+				
+				collectPrefixes(search, state, prefix, depth + 1, usedWords, prefixes, weights);
+				usedWords[candidateId >>> 6] &= ~(1L << candidateId);
+			}
+		}
+	}
+
+	/**
+	 * @param usedWords bit set over the search word ids of every word placed so far
+	 */
+	private void fillSpaces(Search search, SearchState state, int currentStartingPoint, long[] usedWords) {
+		
+		if(currentStartingPoint == search.startingPoints.size()) {
+			if(search.symmetries != null) {
+				orbitFound(search, state.toBoard(search.template));
+			}
+			else {
+				search.boardFound(state.toBoard(search.template));
+			}
+		}
+		else {
+			int depth = currentStartingPoint++;
+			StartingPoint sPoint = search.startingPoints.get(depth);
+			PrefixTrie candidates = search.dictionary.prefixTrie(sPoint.length);
+			int firstCandidateId = search.firstCandidateIds[depth];
+			int firstCandidate = search.resume != null ? search.resumeAt(depth, usedWords) : 0;
+			int endCandidate = candidates.wordCount();
+			int prefixRejected = 0;
+			int duplicateRejected = 0;
+			
+			if(search.shard != null && depth < search.shard.depth) {
+				firstCandidate = Math.max(firstCandidate, search.shard.firstCandidate(search.placedCandidates, depth));
+				endCandidate = search.shard.endCandidate(search.placedCandidates, depth, endCandidate);
+			}
+			
+			for(int candidate = firstCandidate; candidate < endCandidate && !search.stopped; candidate++) {
+				int candidateId = firstCandidateId + candidate;
+				Placement placement = place(search, state, sPoint, candidates, candidate, candidateId, usedWords);
+				
+				if(search.resume != null && placement != Placement.Fits) {
+					throw search.resumeMismatch();
+				}
+				
+				if(placement == Placement.Fits) {
+					if(search.limits != null && search.resume == null && !search.limits.allowsNode()) {
+						search.limitReached(depth, candidate, usedWords);
+						break;
+					}
+					
+					if(search.symmetries != null && search.breaksSymmetry(state, sPoint)) {
+						continue;
+					}
+					
+					if(search.statistics != null) {
+						search.statistics.candidatesTried(depth, 1, prefixRejected, duplicateRejected);
+						search.statistics.nodeVisited();
+						prefixRejected = 0;
+						duplicateRejected = 0;
+					}
+					
+					if(search.recordsPath) {
+						search.placedCandidates[depth] = candidate;
+					}
+					
+					if(!search.repeatsAllowed) {
+						usedWords[candidateId >>> 6] |= 1L << candidateId;
+					}
+					
+					fillSpaces(search, state, currentStartingPoint, usedWords);
+					usedWords[candidateId >>> 6] &= ~(1L << candidateId);
+				}
+				else if(placement == Placement.VerticalPrefixMissing) {
+					prefixRejected++;
+				}
+				else {
+					duplicateRejected++;
+				}
+			}
+			
+			if(search.statistics != null) {
+				search.statistics.candidatesTried(depth, 0, prefixRejected, duplicateRejected);
+			}
+		}
+		
+	}
+
+	/**
+	 * Same search as {@link #fillSpaces(Search, SearchState, int, long[])}, but a starting point which runs out of candidates without a
+	 * board reports which earlier starting points caused its failures.  Starting points in between are left at once, since no other
+	 * word of theirs can change the outcome, and the partial board is added to the nogood cache unless a repeated word was among the
+	 * causes.
+	 * 
+	 * @return null if a board was found below or the search was stopped, otherwise the starting points whose words left no candidates,
+	 *         with {@link Backjumps#repeatedWord} set if a repeated word was among the causes
+	 */
+	private BitSet jumpSpaces(Search search, Backjumps jumps, SearchState state, int currentStartingPoint, long[] usedWords) {
+		if(currentStartingPoint == search.startingPoints.size()) {
+			search.boardFound(state.toBoard(search.template));
+			return null;
+		}
+		
+		int depth = currentStartingPoint++;
+		
+		if(jumps.nogoods.contains(depth, search.frontierCells[depth], state.verticalNodes)) {
+			if(search.statistics != null) {
+				search.statistics.nogoodHit();
+			}
+			
+			return jumps.frontierConflicts[depth];
+		}
+		
+		StartingPoint sPoint = search.startingPoints.get(depth);
+		PrefixTrie candidates = search.dictionary.prefixTrie(sPoint.length);
+		int firstCandidateId = search.firstCandidateIds[depth];
+		BitSet conflicts = jumps.conflicts[depth];
+		boolean boardsFound = false;
+		int lastFailedCell = NO_CELL;
+		int prefixRejected = 0;
+		int duplicateRejected = 0;
+		conflicts.clear();
+		
+		for(int candidate = 0; candidate < candidates.wordCount() && !search.stopped; candidate++) {
+			int candidateId = firstCandidateId + candidate;
+			Placement placement = place(search, state, sPoint, candidates, candidate, candidateId, usedWords);
+			
+			if(placement == Placement.Fits) {
+				if(search.limits != null && !search.limits.allowsNode()) {
+					search.limitReached(depth, candidate, usedWords);
+					break;
+				}
+				
+				if(search.statistics != null) {
+					search.statistics.candidatesTried(depth, 1, prefixRejected, duplicateRejected);
+					search.statistics.nodeVisited();
+					prefixRejected = 0;
+					duplicateRejected = 0;
+				}
+				
+				jumps.placedIds[depth] = candidateId;
+				usedWords[candidateId >>> 6] |= 1L << candidateId;
+				BitSet below = jumpSpaces(search, jumps, state, currentStartingPoint, usedWords);
+				usedWords[candidateId >>> 6] &= ~(1L << candidateId);
+				
+				if(below == null) {
+					boardsFound = true;
+				}
+				else if(!below.get(depth) && !boardsFound) {
+					if(search.statistics != null) {
+						search.statistics.candidatesTried(depth, 0, prefixRejected, duplicateRejected);
+						search.statistics.backjump();
+					}
+					
+					if(!below.get(jumps.repeatedWord)) {
+						jumps.nogoods.add(depth, search.frontierCells[depth], state.verticalNodes);
+					}
+					
+					return below;
+				}
+				else {
+					conflicts.or(below);
+					conflicts.clear(depth);
+				}
+			}
+			else if(placement == Placement.VerticalPrefixMissing) {
+				prefixRejected++;
+				
+				if(state.failedCell != lastFailedCell) {
+					conflicts.or(jumps.verticalConflicts[state.failedCell]);
+					lastFailedCell = state.failedCell;
+				}
+			}
+			else {
+				duplicateRejected++;
+				conflicts.set(jumps.repeatedWord);
+				
+				if(state.failedCell != NO_CELL) {
+					conflicts.or(jumps.verticalConflicts[state.failedCell]);
+				}
+				
+				if(state.repeatedWordId != Dictionary.NO_WORD) {
+					conflicts.set(jumps.depthOf(state.repeatedWordId, depth));
+				}
+			}
+		}
+		
+		if(search.statistics != null) {
+			search.statistics.candidatesTried(depth, 0, prefixRejected, duplicateRejected);
+		}
+		
+		if(boardsFound || search.stopped) {
+			return null;
+		}
+		
+		if(!conflicts.get(jumps.repeatedWord)) {
+			jumps.nogoods.add(depth, search.frontierCells[depth], state.verticalNodes);
+		}
+		
+		return conflicts;
+	}
+
+	/**
+	 * Same search as {@link #fillSpaces(Search, SearchState, int, long[])}, counting the boards instead of building them.
+	 * 
+	 * @return number of boards below the starting point
+	 */
+	private long countSpaces(Search search, RowStates rowStates, SearchState state, int currentStartingPoint, long[] usedWords) {
+		if(currentStartingPoint == search.startingPoints.size()) {
+			return 1;
+		}
+		
+		int depth = currentStartingPoint++;
+		RowState rowState = null;
+		boolean sharded = search.shard != null && depth < search.shard.depth;
+		
+		if(rowStates.rowStarts[depth] && !sharded) {
+			rowState = rowStates.rowState(search, state, depth, usedWords);
+			Long knownBoards = rowStates.boards.get(rowState);
+			
+			if(knownBoards != null) {
+				return knownBoards;
+			}
+		}
+		
+		StartingPoint sPoint = search.startingPoints.get(depth);
+		PrefixTrie candidates = search.dictionary.prefixTrie(sPoint.length);
+		int firstCandidateId = search.firstCandidateIds[depth];
+		int prefixRejected = 0;
+		int duplicateRejected = 0;
+		int firstCandidate = sharded ? search.shard.firstCandidate(search.placedCandidates, depth) : 0;
+		int endCandidate = sharded ? search.shard.endCandidate(search.placedCandidates, depth, candidates.wordCount()) : candidates.wordCount();
+		long boards = 0;
+		
+		for(int candidate = firstCandidate; candidate < endCandidate && !search.stopped; candidate++) {
+			int candidateId = firstCandidateId + candidate;
+			Placement placement = place(search, state, sPoint, candidates, candidate, candidateId, usedWords);
+			
+			if(placement == Placement.Fits) {
+				if(search.limits != null && !search.limits.allowsNode()) {
+					search.stopped = true;
+					break;
+				}
+				
+				if(search.statistics != null) {
+					search.statistics.candidatesTried(depth, 1, prefixRejected, duplicateRejected);
+					search.statistics.nodeVisited();
+					prefixRejected = 0;
+					duplicateRejected = 0;
+				}
+				
+				if(sharded) {
+					search.placedCandidates[depth] = candidate;
+				}
+				
+				if(!search.repeatsAllowed) {
+					usedWords[candidateId >>> 6] |= 1L << candidateId;
+				}
+				
+				boards = Math.addExact(boards, countSpaces(search, rowStates, state, currentStartingPoint, usedWords));
+				usedWords[candidateId >>> 6] &= ~(1L << candidateId);
+			}
+			else if(placement == Placement.VerticalPrefixMissing) {
+				prefixRejected++;
+			}
+			else {
+				duplicateRejected++;
+			}
+		}
+		
+		if(search.statistics != null) {
+			search.statistics.candidatesTried(depth, 0, prefixRejected, duplicateRejected);
+		}
+		
+		// the boards below a row state are only known if the count got through all of them
+		if(rowState != null && !search.stopped) {
+			rowStates.boards.put(rowState, boards);
+		}
+		
+		return boards;
+	}
+
+	/**
+	 * Writes the candidate into the row and extends the vertical prefix of every cell it covers.  Only cells below the row read these
+	 * values, so a candidate which does not fit can leave them behind for the next candidate to overwrite.  Letters are read from the
+	 * trie one at a time, so no string is made for a candidate.
+	 * 
+	 * @param candidates trie of the words of the starting point's length
+	 * @param candidate index of the candidate in the trie, see {@link PrefixTrie#letterAt(int, int)}
+	 * @return {@link Placement#Fits} if the candidate fits with the rows above it, otherwise the reason it does not, the cell and word
+	 *         involved being left in the state
+	 */
+	private Placement place(Search search, SearchState state, StartingPoint sPoint, PrefixTrie candidates, int candidate, int candidateId,
+			long[] usedWords) {
+		if(sPoint.length != 1 && isUsed(usedWords, candidateId)) {
+			state.failedCell = NO_CELL;
+			state.repeatedWordId = candidateId;
+			return Placement.DuplicateWord;
+		}
+		
+		int cell = search.cell(sPoint.x, sPoint.y);
+		
+		for(int i = 0; i < sPoint.length; i++, cell++) {
+			PrefixTrie verticalTrie = search.verticalTries[cell];
+			int parentNode = search.continuesVerticalWord[cell] ? state.verticalNodes[cell - search.width] : verticalTrie.root();
+			char letter = candidates.letterAt(candidate, i);
+			int node = verticalTrie.child(parentNode, letter);
+			
+			if(sPoint.y > 0) {
+				if(node == PrefixTrie.NO_NODE) {
+					state.failedCell = cell;
+					return Placement.VerticalPrefixMissing;
+				}
+				
+				if(search.endsVerticalWord[cell]) {
+					int verticalId = search.firstVerticalIds[cell] + verticalTrie.wordIndex(node);
+					
+					if((verticalId == candidateId && !search.repeatsAllowed) || (verticalTrie.getWordLength() != 1 && isUsed(usedWords, verticalId))) {
+						state.failedCell = cell;
+						state.repeatedWordId = verticalId == candidateId ? Dictionary.NO_WORD : verticalId;
+						return Placement.DuplicateWord;
+					}
+				}
+			}
+			
+			state.letters[cell] = letter;
+			state.verticalNodes[cell] = node;
+		}
+		
+		return Placement.Fits;
+	}
+
+	private static boolean isUsed(long[] usedWords, int wordId) {
+		return (usedWords[wordId >>> 6] & (1L << wordId)) != 0;
+	}
+
+	/**
+	 * Result of trying to place a candidate word.
+	 */
+	private enum Placement {
+		Fits, VerticalPrefixMissing, DuplicateWord
+	}
+
+	private static final int NO_CELL = -1;
+
+	/**
+	 * Order in which a sequential search finds boards.  Words are tried in sorted order one starting point after another, left to
+	 * right and top to bottom, which is the same as comparing the letters of two boards row by row.
+	 */
+	private static final Comparator<String[][]> SEARCH_ORDER = new Comparator<String[][]>() {
+		public int compare(String[][] first, String[][] second) {
+			for(int y = 0; y < first[0].length; y++) {
+				for(int x = 0; x < first.length; x++) {
+					int result = first[x][y].compareTo(second[x][y]);
+					
+					if(result != 0) {
+						return result;
+					}
+				}
+			}
+			
+			return 0;
+		}
+	};
+
+	/**
+	 * Letters placed so far and, for every placed letter, the node reached in the prefix trie of its vertical word.  Cells are
+	 * numbered row by row.  After a candidate does not fit, the cell where it failed and the earlier word it repeated are kept as well.
+	 */
+	private static class SearchState {
+		public final char[] letters;
+		public final int[] verticalNodes;
+		public int failedCell;
+		public int repeatedWordId;
+		
+		public SearchState(int cells) {
+			letters = new char[cells];
+			verticalNodes = new int[cells];
+			Arrays.fill(letters, '-');
+		}
+		
+		private SearchState(SearchState state) {
+			letters = state.letters.clone();
+			verticalNodes = state.verticalNodes.clone();
+		}
+		
+		public SearchState copy() {
+			return new SearchState(this);
+		}
+		
+		public String[][] toBoard(Template template) {
+			String[][] board = new String[template.getWidth()][template.getHeight()];
+			
+			for(int x = 0; x < template.getWidth(); x++) {
+				for(int y = 0; y < template.getHeight(); y++) {
+					board[x][y] = String.valueOf(letters[x + y * template.getWidth()]);
+				}
+			}
+			
+			return board;
+		}
+	}
+
+	/**
+	 * State shared by every part of one build.
+	 * 
+	 * Words are tracked by search word id, which is the dictionary word id less the id of the first word as long as the shortest word
+	 * of the template.  The used word bit set then only covers the word lengths the template needs and stays small for small templates.
+	 * 
+	 * Apart from repeated words, the search below a depth, the index of a starting point, only depends on the vertical prefix nodes of
+	 * its frontier: the cells filled before the depth whose vertical word continues into a cell filled from the depth on.
+	 */
+	private static class Search {
+		public final Dictionary dictionary;
+		public final Template template;
+		public final List<StartingPoint> startingPoints;
+		public final int[] firstCandidateIds;
+		public final BoardSink sink;
+		public final SearchStatistics statistics;
+		public final int width;
+		public final PrefixTrie[] verticalTries;
+		public final int[] firstVerticalIds;
+		public final int firstUsableId;
+		public final int usedWordIds;
+		public final boolean[] continuesVerticalWord;
+		public final boolean[] endsVerticalWord;
+		public final int[] fillDepths;
+		public final int[][] frontierCells;
+		public final int[] placedCandidates;
+		public boolean repeatsAllowed = false;
+		public SearchLimits limits = null;
+		public boolean recordsPath = false;
+		public ShardPlan shard = null;
+		public SearchCheckpoint resume = null;
+		public SearchCheckpoint frontier = null;
+		public List<Symmetry> symmetries = null;
+		public int[][] symmetricCells = null;
+		public Search rules = null;
+		public CanonicalBoardSink canonicalSink = null;
+		public volatile boolean stopped = false;
+		
+		public Search(Dictionary dictionary, Template template, BoardSink sink, SearchStatistics statistics) {
+			this.dictionary = dictionary;
+			this.template = template;
+			this.startingPoints = template.horizontalStartingPoints();
+			this.sink = sink;
+			this.statistics = statistics;
+			this.width = template.getWidth();
+			
+			int cells = template.getWidth() * template.getHeight();
+			verticalTries = new PrefixTrie[cells];
+			firstVerticalIds = new int[cells];
+			continuesVerticalWord = new boolean[cells];
+			endsVerticalWord = new boolean[cells];
+			
+			SlotGraph graph = template.slotGraph();
+			int shortestWord = Integer.MAX_VALUE;
+			int longestWord = 0;
+			
+			for(int slot = 0; slot < graph.slotCount(); slot++) {
+				shortestWord = Math.min(shortestWord, graph.length(slot));
+				longestWord = Math.max(longestWord, graph.length(slot));
+			}
+			
+			shortestWord = Math.min(shortestWord, longestWord + 1);
+			firstUsableId = dictionary.firstWordId(shortestWord);
+			usedWordIds = dictionary.firstWordId(longestWord + 1) - firstUsableId;
+			
+			firstCandidateIds = new int[startingPoints.size()];
+			for(int i = 0; i < startingPoints.size(); i++) {
+				firstCandidateIds[i] = dictionary.firstWordId(startingPoints.get(i).length) - firstUsableId;
+			}
+			
+			for(int slot = graph.horizontalSlotCount(); slot < graph.slotCount(); slot++) {
+				int length = graph.length(slot);
+				
+				for(int i = 0; i < length; i++) {
+					int cell = graph.cell(slot, i);
+					
+					verticalTries[cell] = dictionary.prefixTrie(length);
+					firstVerticalIds[cell] = dictionary.firstWordId(length) - firstUsableId;
+					continuesVerticalWord[cell] = i > 0;
+					endsVerticalWord[cell] = i == length - 1;
+				}
+			}
+			
+			fillDepths = new int[cells];
+			frontierCells = new int[startingPoints.size()][];
+			placedCandidates = new int[startingPoints.size()];
+			
+			for(int depth = 0; depth < startingPoints.size(); depth++) {
+				StartingPoint sPoint = startingPoints.get(depth);
+				
+				for(int i = 0; i < sPoint.length; i++) {
+					fillDepths[cell(sPoint.x + i, sPoint.y)] = depth;
+				}
+			}
+			
+			for(int depth = 0; depth < startingPoints.size(); depth++) {
+				List<Integer> frontier = new ArrayList<Integer>();
+				
+				for(int cell = width; cell < cells; cell++) {
+					if(continuesVerticalWord[cell] && fillDepths[cell - width] < depth && fillDepths[cell] >= depth) {
+						frontier.add(cell - width);
+					}
+				}
+				
+				frontierCells[depth] = new int[frontier.size()];
+				for(int i = 0; i < frontier.size(); i++) {
+					frontierCells[depth][i] = frontier.get(i);
+				}
+			}
+		}
+		
+		public int cell(int x, int y) {
+			return x + y * width;
+		}
+		
+		/**
+		 * @param wordIds search word ids of the words to mark as used
+		 * @return bit set over the search word ids
+		 */
+		public long[] newUsedWords(int... wordIds) {
+			long[] usedWords = new long[(usedWordIds + 63) >>> 6];
+			
+			for(int wordId : wordIds) {
+				usedWords[wordId >>> 6] |= 1L << wordId;
+			}
+			
+			return usedWords;
+		}
+		
+		/**
+		 * Stops the search at the candidate a budget or cancellation refused and, for a search recording its path, keeps the frontier.
+		 */
+		public synchronized void limitReached(int depth, int candidate, long[] usedWords) {
+			if(recordsPath && !stopped) {
+				int[] candidates = Arrays.copyOf(placedCandidates, depth + 1);
+				candidates[depth] = candidate;
+				frontier = new SearchCheckpoint(startingPoints.size(), template.contentHash(), dictionary.contentHash(), candidates,
+						usedWords.clone());
+			}
+			
+			stopped = true;
+		}
+		
+		/**
+		 * @return candidate index to start from at the depth while replaying the checkpoint, which is done after its last depth
+		 */
+		public int resumeAt(int depth, long[] usedWords) {
+			int candidate = resume.candidates[depth];
+			
+			if(depth == resume.candidates.length - 1) {
+				if(!sameRepeatableWords(usedWords, resume.usedWords)) {
+					throw resumeMismatch();
+				}
+				
+				resume = null;
+			}
+			
+			return candidate;
+		}
+		
+		/**
+		 * Single letter words are never checked for repeats and their bits are cleared as soon as any placement of the same letter
+		 * is undone, so only the bits of longer words are compared.
+		 */
+		private boolean sameRepeatableWords(long[] usedWords, long[] otherUsedWords) {
+			int firstId = Math.max(0, dictionary.firstWordId(2) - firstUsableId);
+			
+			if(usedWords.length != otherUsedWords.length) {
+				return false;
+			}
+			
+			for(int i = firstId >>> 6; i < usedWords.length; i++) {
+				long repeatable = i == firstId >>> 6 ? -1L << firstId : -1L;
+				
+				if(((usedWords[i] ^ otherUsedWords[i]) & repeatable) != 0) {
+					return false;
+				}
+			}
+			
+			return true;
+		}
+		
+		public IllegalStateException resumeMismatch() {
+			return new IllegalStateException("Checkpoint does not fit this template and dictionary");
+		}
+		
+		/**
+		 * Searches one board of each orbit of the symmetries, letting words repeat so the orbits are the same whichever board of
+		 * them is searched.  Nothing changes if the identity is the only symmetry, unless boards go to a canonical sink.
+		 * 
+		 * @param symmetries symmetries of the template which keep words in the dictionary, the identity first
+		 * @param canonicalSink sink for the first board of every orbit, null to hand every board to the sink
+		 */
+		public void breakSymmetries(List<Symmetry> symmetries, CanonicalBoardSink canonicalSink) {
+			if(symmetries.size() == 1) {
+				return;
+			}
+			
+			this.symmetries = symmetries;
+			this.canonicalSink = canonicalSink;
+			repeatsAllowed = true;
+			rules = new Search(dictionary, template, null, null);
+			symmetricCells = new int[symmetries.size() - 1][template.getWidth() * template.getHeight()];
+			
+			for(int i = 1; i < symmetries.size(); i++) {
+				Symmetry symmetry = symmetries.get(i);
+				
+				for(int x = 0; x < template.getWidth(); x++) {
+					for(int y = 0; y < template.getHeight(); y++) {
+						int image = cell(symmetry.x(x, y, template.getWidth(), template.getHeight()), symmetry.y(x, y, template.getWidth(), template.getHeight()));
+						
+						// closed tiles move to closed tiles, and comparing one with itself keeps a closed tile after the last word
+						// from ending the comparison early
+						symmetricCells[i - 1][image] = template.checkTile(x, y) == TileType.Open ? cell(x, y) : image;
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Compares the letters of the partial board up to the end of the word just placed with the letters a symmetry moves to the
+		 * same tiles, in search order, as far as both are known.
+		 * 
+		 * @return true if a symmetry moves the partial board to an earlier one, whose orbit is the same and is searched instead
+		 */
+		public boolean breaksSymmetry(SearchState state, StartingPoint placed) {
+			int filledCells = cell(placed.x, placed.y) + placed.length;
+			
+			for(int[] cells : symmetricCells) {
+				for(int cell = 0; cell < filledCells && cells[cell] < filledCells; cell++) {
+					char letter = state.letters[cell];
+					char image = state.letters[cells[cell]];
+					
+					if(letter != image) {
+						if(image < letter) {
+							return true;
+						}
+						
+						break;
+					}
+				}
+			}
+			
+			return false;
+		}
+		
+		public synchronized void canonicalBoardFound(String[][] board, int orbitSize) {
+			if(statistics != null) {
+				statistics.boardFound();
+			}
+			
+			if(!stopped && !canonicalSink.canonicalBoardFound(board, orbitSize)) {
+				stopped = true;
+			}
+		}
+		
+		public synchronized void boardFound(String[][] board) {
+			if(statistics != null) {
+				statistics.boardFound();
+			}
+			
+			if(!stopped && !sink.boardFound(board)) {
+				stopped = true;
+			}
+		}
+	}
+
+	/**
+	 * What a backjumping search knows about which starting points can cause a failure, by depth.  The nodes of the frontier are the
+	 * nogood cache key.  Apart from repeated words, a failure at a cell depends on the starting points which filled the cells above it
+	 * in its vertical word.
+	 */
+	private static class Backjumps {
+		public final int repeatedWord;
+		public final BitSet[] verticalConflicts;
+		public final BitSet[] frontierConflicts;
+		public final BitSet[] conflicts;
+		public final int[] placedIds;
+		public final NogoodCache nogoods = new NogoodCache(NOGOOD_CACHE_ENTRIES);
+		
+		public Backjumps(Search search) {
+			int depths = search.startingPoints.size();
+			int cells = search.template.getWidth() * search.template.getHeight();
+			
+			repeatedWord = depths;
+			verticalConflicts = new BitSet[cells];
+			frontierConflicts = new BitSet[depths];
+			conflicts = new BitSet[depths];
+			placedIds = new int[depths];
+			
+			for(int cell = 0; cell < cells; cell++) {
+				verticalConflicts[cell] = new BitSet(depths);
+				
+				if(search.continuesVerticalWord[cell]) {
+					verticalConflicts[cell].or(verticalConflicts[cell - search.width]);
+					verticalConflicts[cell].set(search.fillDepths[cell - search.width]);
+				}
+			}
+			
+			for(int depth = 0; depth < depths; depth++) {
+				frontierConflicts[depth] = new BitSet(depths + 1);
+				conflicts[depth] = new BitSet(depths + 1);
+				
+				for(int cell : search.frontierCells[depth]) {
+					frontierConflicts[depth].or(verticalConflicts[cell + search.width]);
+				}
+			}
+		}
+		
+		/**
+		 * @return depth before the given one at which the word was placed
+		 */
+		public int depthOf(int wordId, int depth) {
+			while(placedIds[--depth] != wordId) {
+			}
+			
+			return depth;
+		}
+	}
+
+	/**
+	 * Boards counted from the start of a row on, by row state.  A row state is the depth of the row's first starting point, the nodes
+	 * of its frontier and, unless repeats are allowed, the placed words which a later word of the same length could repeat.
+	 */
+	private static class RowStates {
+		public final boolean[] rowStarts;
+		public final int[][] repeatableWordIds;
+		public final Map<RowState, Long> boards = new HashMap<RowState, Long>();
+		private int[] key = new int[64];
+		
+		public RowStates(Search search) {
+			int depths = search.startingPoints.size();
+			SlotGraph graph = search.template.slotGraph();
+			
+			rowStarts = new boolean[depths];
+			repeatableWordIds = new int[depths][];
+			
+			for(int depth = 0; depth < depths; depth++) {
+				rowStarts[depth] = depth == 0 || search.startingPoints.get(depth).y != search.startingPoints.get(depth - 1).y;
+				boolean[] repeatableLengths = new boolean[search.template.getWidth() + search.template.getHeight() + 1];
+				
+				for(int later = depth; later < depths; later++) {
+					repeatableLengths[search.startingPoints.get(later).length] = true;
+				}
+				
+				for(int slot = graph.horizontalSlotCount(); slot < graph.slotCount(); slot++) {
+					int length = graph.length(slot);
+					
+					if(search.fillDepths[graph.cell(slot, length - 1)] >= depth) {
+						repeatableLengths[length] = true;
+					}
+				}
+				
+				List<Integer> idRanges = new ArrayList<Integer>();
+				
+				for(int length = 2; length < repeatableLengths.length; length++) {
+					if(repeatableLengths[length]) {
+						idRanges.add(search.dictionary.firstWordId(length) - search.firstUsableId);
+						idRanges.add(search.dictionary.firstWordId(length + 1) - search.firstUsableId);
+					}
+				}
+				
+				repeatableWordIds[depth] = new int[idRanges.size()];
+				for(int i = 0; i < idRanges.size(); i++) {
+					repeatableWordIds[depth][i] = idRanges.get(i);
+				}
+			}
+		}
+		
+		public RowState rowState(Search search, SearchState state, int depth, long[] usedWords) {
+			int size = 0;
+			key[size++] = depth;
+			
+			for(int cell : search.frontierCells[depth]) {
+				size = append(size, state.verticalNodes[cell]);
+			}
+			
+			int[] idRanges = repeatableWordIds[depth];
+			
+			for(int range = 0; range < idRanges.length && !search.repeatsAllowed; range += 2) {
+				for(int wordId = idRanges[range]; wordId < idRanges[range + 1]; wordId = (wordId | 63) + 1) {
+					long used = usedWords[wordId >>> 6] >>> wordId;
+					
+					while(used != 0) {
+						int usedId = wordId + Long.numberOfTrailingZeros(used);
+						
+						if(usedId < idRanges[range + 1]) {
+							size = append(size, usedId);
+						}
+						
+						used &= used - 1;
+					}
+				}
+			}
+			
+			return new RowState(Arrays.copyOf(key, size));
+		}
+		
+		private int append(int size, int value) {
+			if(size == key.length) {
+				key = Arrays.copyOf(key, size * 2);
+			}
+			
+			key[size] = value;
+			return size + 1;
+		}
+	}
+
+	private static final class RowState {
+		private final int[] key;
+		private final int hash;
+		
+		public RowState(int[] key) {
+			this.key = key;
+			this.hash = Arrays.hashCode(key);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof RowState && Arrays.equals(key, ((RowState) obj).key);
+		}
+	}
+
+	/**
+	 * One subtree of the search.  The first {@link StartingPoint}s are split into one task per fitting candidate, each with its own copy
+	 * of the search state and the ids of the words placed before it, so idle workers can steal the uneven subtrees.  The used word bit
+	 * set is only built once a task runs.
+	 */
+	@SuppressWarnings("serial")
+	private class SearchTask extends RecursiveAction {
+		private final Search search;
+		private final SearchState state;
+		private final int currentStartingPoint;
+		private final int[] usedWordIds;
+		private final int splitDepth;
+		
+		SearchTask(Search search, SearchState state, int currentStartingPoint, int[] usedWordIds, int splitDepth) {
+			this.search = search;
+			this.state = state;
+			this.currentStartingPoint = currentStartingPoint;
+			this.usedWordIds = usedWordIds;
+			this.splitDepth = splitDepth;
+		}
+		
+		@Override
+		protected void compute() {
+			long[] usedWords = search.newUsedWords(usedWordIds);
+			
+			if(currentStartingPoint < splitDepth && currentStartingPoint < search.startingPoints.size()) {
+				StartingPoint sPoint = search.startingPoints.get(currentStartingPoint);
+				PrefixTrie candidates = search.dictionary.prefixTrie(sPoint.length);
+				int firstCandidateId = search.firstCandidateIds[currentStartingPoint];
+				List<SearchState> fittingStates = new ArrayList<SearchState>();
+				List<Integer> fittingIds = new ArrayList<Integer>();
+				
+				for(int candidate = 0; candidate < candidates.wordCount(); candidate++) {
+					int candidateId = firstCandidateId + candidate;
+					Placement placement = place(search, state, sPoint, candidates, candidate, candidateId, usedWords);
+					
+					if(search.statistics != null) {
+						search.statistics.candidatesTried(currentStartingPoint, placement == Placement.Fits ? 1 : 0,
+								placement == Placement.VerticalPrefixMissing ? 1 : 0, placement == Placement.DuplicateWord ? 1 : 0);
+					}
+					
+					if(placement == Placement.Fits) {
+						if(search.limits != null && !search.limits.allowsNode()) {
+							search.limitReached(currentStartingPoint, candidate, usedWords);
+							break;
+						}
+						
+						if(search.symmetries != null && search.breaksSymmetry(state, sPoint)) {
+							continue;
+						}
+						
+						if(search.statistics != null) {
+							search.statistics.nodeVisited();
+						}
+						
+						fittingStates.add(state.copy());
+						fittingIds.add(candidateId);
+					}
+				}
+				
+				int subtaskSplitDepth = splitDepth;
+				
+				if(currentStartingPoint == 0 && fittingIds.size() < parallelism * TASKS_PER_WORKER) {
+					subtaskSplitDepth = MAX_SPLIT_DEPTH;
+				}
+				
+				List<SearchTask> subtasks = new ArrayList<SearchTask>(fittingIds.size());
+				
+				for(int i = 0; i < fittingIds.size(); i++) {
+					int[] subtaskUsedWordIds = usedWordIds;
+					
+					if(!search.repeatsAllowed) {
+						subtaskUsedWordIds = Arrays.copyOf(usedWordIds, usedWordIds.length + 1);
+						subtaskUsedWordIds[usedWordIds.length] = fittingIds.get(i);
+					}
+					
+					subtasks.add(new SearchTask(search, fittingStates.get(i), currentStartingPoint + 1, subtaskUsedWordIds, subtaskSplitDepth));
+				}
+				
+				invokeAll(subtasks);
+			}
+			else if(!search.stopped) {
+				fillSpaces(search, state, currentStartingPoint, usedWords);
+			}
+		}
+	}
+
+}
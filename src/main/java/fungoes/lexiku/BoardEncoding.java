@@ -0,0 +1,159 @@
+package fungoes.lexiku;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Packs a board of a {@link Template} into a few bytes.  Every open tile is part of exactly one horizontal word, so a board is the
+ * index of the word at each {@link StartingPoint} in the {@link PrefixTrie} of its length.  Each index takes just enough bits for the
+ * number of words of that length, and the indices of a board are packed one after another, the first in the lowest bits, into
+ * {@link #bytesPerBoard()} bytes.  A board takes at least one byte, so a run of boards can be counted by its length even when every
+ * starting point has a single word to choose from.
+ * 
+ * A board encoded with one dictionary and template can only be decoded with the same ones, see {@link #matches(int, long, int, int)}.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public final class BoardEncoding {
+	private final Template template;
+	private final List<StartingPoint> startingPoints;
+	private final PrefixTrie[] tries;
+	private final int[] bits;
+	private final int bytesPerBoard;
+	private final Dictionary dictionary;
+
+	/**
+	 * @param dictionary dictionary the boards were built with
+	 * @param template template of the boards
+	 */
+	public BoardEncoding(Dictionary dictionary, Template template) {
+		this.template = template;
+		this.startingPoints = template.horizontalStartingPoints();
+		this.tries = new PrefixTrie[startingPoints.size()];
+		this.bits = new int[startingPoints.size()];
+		this.dictionary = dictionary;
+		
+		int totalBits = 0;
+		
+		for(int i = 0; i < startingPoints.size(); i++) {
+			tries[i] = dictionary.prefixTrie(startingPoints.get(i).length);
+			bits[i] = tries[i].wordCount() <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(tries[i].wordCount() - 1);
+			totalBits += bits[i];
+		}
+		
+		bytesPerBoard = Math.max(1, (totalBits + 7) / 8);
+	}
+
+	/**
+	 * @return number of bytes every encoded board takes
+	 */
+	public int bytesPerBoard() {
+		return bytesPerBoard;
+	}
+
+	/**
+	 * @return fingerprint of the template, equal for templates with the same size and starting points
+	 */
+	public int templateHash() {
+		return 31 * (31 * template.getWidth() + template.getHeight()) + startingPoints.hashCode();
+	}
+
+	/**
+	 * @return fingerprint of the dictionary, the first 64 bits of its {@link Dictionary#contentHash()}
+	 */
+	public long dictionaryHash() {
+		return Long.parseUnsignedLong(dictionary.contentHash().substring(0, 16), 16);
+	}
+
+	/**
+	 * @return whether boards encoded with the given fingerprints decode with this encoding
+	 */
+	public boolean matches(int templateHash, long dictionaryHash, int startingPoints, int bytesPerBoard) {
+		return templateHash == templateHash() && startingPoints == this.startingPoints.size() && bytesPerBoard == this.bytesPerBoard
+				&& dictionaryHash == dictionaryHash();
+	}
+
+	/**
+	 * Puts the board at the buffer's position and moves the position past it.
+	 * 
+	 * @param board board of the template, as built from the dictionary
+	 * @param buffer buffer with at least {@link #bytesPerBoard()} bytes remaining
+	 * @throws IllegalArgumentException if a horizontal word of the board is not in the dictionary, the position being left where it was
+	 */
+	public void encode(String[][] board, ByteBuffer buffer) {
+		int start = buffer.position();
+		long pending = 0;
+		int pendingBits = 0;
+		int written = 0;
+		
+		for(int i = 0; i < startingPoints.size(); i++) {
+			StartingPoint sPoint = startingPoints.get(i);
+			PrefixTrie trie = tries[i];
+			int node = trie.root();
+			
+			for(int x = sPoint.x; x < sPoint.x + sPoint.length && node != PrefixTrie.NO_NODE; x++) {
+				node = trie.child(node, board[x][sPoint.y].charAt(0));
+			}
+			
+			if(!trie.isWord(node)) {
+				buffer.position(start);
+				throw new IllegalArgumentException("The word at " + sPoint + " is not in the dictionary");
+			}
+			
+			pending |= (long) trie.wordIndex(node) << pendingBits;
+			pendingBits += bits[i];
+			
+			while(pendingBits >= 8) {
+				buffer.put((byte) pending);
+				pending >>>= 8;
+				pendingBits -= 8;
+				written++;
+			}
+		}
+		
+		if(written < bytesPerBoard) {
+			buffer.put((byte) pending);
+		}
+	}
+
+	/**
+	 * Takes a board from the buffer's position and moves the position past it.
+	 * 
+	 * @param buffer buffer with at least {@link #bytesPerBoard()} bytes remaining
+	 * @return letters of the board indexed [x][y], closed tiles are "-"
+	 */
+	public String[][] decode(ByteBuffer buffer) {
+		String[][] board = new String[template.getWidth()][template.getHeight()];
+		long pending = 0;
+		int pendingBits = 0;
+		int read = 0;
+		
+		for(int x = 0; x < template.getWidth(); x++) {
+			for(int y = 0; y < template.getHeight(); y++) {
+				board[x][y] = "-";
+			}
+		}
+		
+		for(int i = 0; i < startingPoints.size(); i++) {
+			while(pendingBits < bits[i]) {
+				pending |= (buffer.get() & 0xFFL) << pendingBits;
+				pendingBits += 8;
+				read++;
+			}
+			
+			StartingPoint sPoint = startingPoints.get(i);
+			String word = tries[i].wordAt((int) (pending & ((1L << bits[i]) - 1)));
+			pending >>>= bits[i];
+			pendingBits -= bits[i];
+			
+			for(int offset = 0; offset < sPoint.length; offset++) {
+				board[sPoint.x + offset][sPoint.y] = String.valueOf(word.charAt(offset));
+			}
+		}
+		
+		buffer.position(buffer.position() + bytesPerBoard - read);
+		return board;
+	}
+
+}
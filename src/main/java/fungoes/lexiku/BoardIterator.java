@@ -0,0 +1,111 @@
+package fungoes.lexiku;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pulls boards from a {@link BoardBuilder} search running on a background thread.  Only a few boards are buffered, the search waits
+ * until the caller asks for more.  {@link #close()} stops the search if the caller does not want every board.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public class BoardIterator implements Iterator<String[][]>, Closeable {
+	private static final int BUFFERED_BOARDS = 64;
+	private static final String[][] END_OF_SEARCH = new String[0][0];
+
+	private final BlockingQueue<String[][]> boards = new ArrayBlockingQueue<String[][]>(BUFFERED_BOARDS);
+	private final Thread searchThread;
+	private volatile boolean closed = false;
+	private volatile RuntimeException failure = null;
+	private String[][] next = null;
+
+	BoardIterator(final BoardBuilder builder, final Dictionary dictionary, final Template template) {
+		searchThread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					builder.build(dictionary, template, new BoardSink() {
+						public boolean boardFound(String[][] board) {
+							return offer(board);
+						}
+					});
+				}
+				catch(RuntimeException e) {
+					failure = e;
+				}
+				finally {
+					offer(END_OF_SEARCH);
+				}
+			}
+		}, "lexiku-board-search");
+		
+		searchThread.setDaemon(true);
+		searchThread.start();
+	}
+
+	private boolean offer(String[][] board) {
+		try {
+			while(!closed) {
+				if(boards.offer(board, 100, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		return false;
+	}
+
+	public boolean hasNext() {
+		if(next == null) {
+			if(closed) {
+				return false;
+			}
+			
+			try {
+				next = boards.take();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				return false;
+			}
+			
+			if(next == END_OF_SEARCH && failure != null) {
+				throw failure;
+			}
+		}
+		
+		return next != END_OF_SEARCH;
+	}
+
+	public String[][] next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		
+		String[][] board = next;
+		next = null;
+		return board;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Stops the background search.  Boards which are already buffered are discarded.
+	 */
+	public void close() {
+		closed = true;
+		boards.clear();
+		next = END_OF_SEARCH;
+	}
+
+}
@@ -0,0 +1,130 @@
+package fungoes.lexiku;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads back the boards of a file written by a {@link BoardWriter}, compressed or not, decoding each one as it is reached.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public class BoardReader implements Iterator<String[][]>, Closeable {
+	private static final int GZIP_MAGIC = 0x1F8B;
+
+	private final BoardEncoding encoding;
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer;
+	private boolean endOfFile = false;
+
+	/**
+	 * @param dictionary dictionary the boards were built with
+	 * @param template template of the boards
+	 * @param file file written by a {@link BoardWriter}
+	 * @throws IOException if the file is not a board file, or was written for another template or dictionary
+	 */
+	public BoardReader(Dictionary dictionary, Template template, File file) throws IOException {
+		encoding = new BoardEncoding(dictionary, template);
+		
+		FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		ByteBuffer magic = ByteBuffer.allocate(2);
+		fileChannel.read(magic, 0);
+		magic.flip();
+		
+		if(magic.remaining() == 2 && (magic.getShort() & 0xFFFF) == GZIP_MAGIC) {
+			channel = Channels.newChannel(new GZIPInputStream(Channels.newInputStream(fileChannel), BoardWriter.CHUNK_BYTES));
+		}
+		else {
+			channel = fileChannel;
+		}
+		
+		buffer = ByteBuffer.allocateDirect(Math.max(BoardWriter.CHUNK_BYTES, BoardWriter.HEADER_BYTES + encoding.bytesPerBoard()));
+		buffer.limit(0);
+		
+		try {
+			if(!fill(BoardWriter.HEADER_BYTES) || buffer.getInt() != BoardWriter.MAGIC) {
+				throw new IOException("Not a board file: " + file);
+			}
+			
+			if(buffer.getInt() != BoardWriter.VERSION) {
+				throw new IOException("Unsupported board file version: " + file);
+			}
+			
+			if(!encoding.matches(buffer.getInt(), buffer.getLong(), buffer.getInt(), buffer.getInt())) {
+				throw new IOException("Boards in " + file + " were written for another template or dictionary");
+			}
+		}
+		catch(IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads until at least the given number of bytes are buffered or the file ends.
+	 * 
+	 * @return whether the bytes are buffered
+	 */
+	private boolean fill(int bytes) throws IOException {
+		if(buffer.remaining() >= bytes) {
+			return true;
+		}
+		
+		buffer.compact();
+		
+		while(buffer.position() < bytes && !endOfFile) {
+			endOfFile = channel.read(buffer) < 0;
+		}
+		
+		buffer.flip();
+		return buffer.remaining() >= bytes;
+	}
+
+	/**
+	 * @throws UncheckedIOException if the file could not be read or ends inside a board
+	 */
+	public boolean hasNext() {
+		try {
+			if(fill(encoding.bytesPerBoard())) {
+				return true;
+			}
+			
+			if(buffer.hasRemaining()) {
+				throw new EOFException("Board file ends inside a board");
+			}
+			
+			return false;
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public String[][] next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		
+		return encoding.decode(buffer);
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
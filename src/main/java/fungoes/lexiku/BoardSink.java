@@ -0,0 +1,19 @@
+package fungoes.lexiku;
+
+/**
+ * Receives solved boards from a {@link BoardBuilder} as soon as they are found.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public interface BoardSink {
+
+	/**
+	 * Called once for every solved board.
+	 * 
+	 * @param board letters of the board indexed [x][y], closed tiles are "-"
+	 * @return true to keep searching, false to stop the search
+	 */
+	boolean boardFound(String[][] board);
+
+}
@@ -0,0 +1,180 @@
+package fungoes.lexiku;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes boards to a file packed with a {@link BoardEncoding}, to be read back with a {@link BoardReader}.  Boards are packed into
+ * chunks on the search's thread and the chunks are written by a background thread, so the search only waits for the disk when
+ * {@link #QUEUED_CHUNKS} chunks are already waiting to be written.  Close the writer once the search is done.
+ * 
+ * Layout, big endian: magic, version, template hash, dictionary hash, starting point count and bytes per board, followed by the
+ * boards.  A gzip compressed file holds the same bytes.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public class BoardWriter implements BoardSink, Closeable {
+	static final int MAGIC = 0x4C584B42;
+	static final int VERSION = 2;
+	static final int HEADER_BYTES = 28;
+	static final int CHUNK_BYTES = 1 << 16;
+
+	private static final int QUEUED_CHUNKS = 16;
+	private static final ByteBuffer END_OF_BOARDS = ByteBuffer.allocate(0);
+
+	private final BoardEncoding encoding;
+	private final WritableByteChannel channel;
+	private final BlockingQueue<ByteBuffer> chunks = new ArrayBlockingQueue<ByteBuffer>(QUEUED_CHUNKS);
+	private final BlockingQueue<ByteBuffer> spareChunks = new ArrayBlockingQueue<ByteBuffer>(QUEUED_CHUNKS + 1);
+	private final Thread writerThread;
+	private volatile IOException failure = null;
+	private ByteBuffer chunk;
+	private long boardsWritten = 0;
+	private boolean closed = false;
+
+	/**
+	 * @param dictionary dictionary the boards are built with
+	 * @param template template of the boards
+	 * @param file file to write, replaced if it exists
+	 * @param compressed true to gzip the file
+	 * @throws IOException if the file could not be created
+	 */
+	public BoardWriter(Dictionary dictionary, Template template, File file, boolean compressed) throws IOException {
+		encoding = new BoardEncoding(dictionary, template);
+		
+		FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		channel = compressed ? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(fileChannel), CHUNK_BYTES)) : fileChannel;
+		
+		chunk = newChunk();
+		chunk.putInt(MAGIC).putInt(VERSION).putInt(encoding.templateHash()).putLong(encoding.dictionaryHash());
+		chunk.putInt(template.horizontalStartingPoints().size()).putInt(encoding.bytesPerBoard());
+		
+		writerThread = new Thread(new Runnable() {
+			public void run() {
+				writeChunks();
+			}
+		}, "lexiku-board-writer");
+		
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	private ByteBuffer newChunk() {
+		ByteBuffer spare = spareChunks.poll();
+		return spare != null ? spare : ByteBuffer.allocateDirect(Math.max(CHUNK_BYTES, HEADER_BYTES + encoding.bytesPerBoard()));
+	}
+
+	private void writeChunks() {
+		try {
+			try {
+				ByteBuffer written;
+				
+				while((written = chunks.take()) != END_OF_BOARDS) {
+					while(written.hasRemaining()) {
+						channel.write(written);
+					}
+					
+					written.clear();
+					spareChunks.offer(written);
+				}
+			}
+			finally {
+				channel.close();
+			}
+		}
+		catch(IOException e) {
+			failure = e;
+			chunks.clear();
+		}
+		catch(InterruptedException e) {
+			failure = new InterruptedIOException("Board writer interrupted");
+		}
+	}
+
+	private void enqueue(ByteBuffer full) {
+		try {
+			while(!chunks.offer(full, 100, TimeUnit.MILLISECONDS)) {
+				if(!writerThread.isAlive()) {
+					throw new UncheckedIOException(failure != null ? failure : new IOException("Board writer stopped"));
+				}
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UncheckedIOException(new InterruptedIOException("Interrupted waiting for the board writer"));
+		}
+	}
+
+	/**
+	 * Packs the board into the current chunk, handing the chunk to the writer thread once it is full.
+	 * 
+	 * @throws UncheckedIOException if writing an earlier chunk failed
+	 */
+	public synchronized boolean boardFound(String[][] board) {
+		if(failure != null) {
+			throw new UncheckedIOException(failure);
+		}
+		
+		if(chunk.remaining() < encoding.bytesPerBoard()) {
+			chunk.flip();
+			enqueue(chunk);
+			chunk = newChunk();
+		}
+		
+		encoding.encode(board, chunk);
+		boardsWritten++;
+		return true;
+	}
+
+	/**
+	 * @return number of boards written so far
+	 */
+	public synchronized long getBoardsWritten() {
+		return boardsWritten;
+	}
+
+	/**
+	 * Writes the boards still in memory, waits for the writer thread and closes the file.
+	 * 
+	 * @throws IOException if any chunk could not be written
+	 */
+	public synchronized void close() throws IOException {
+		if(closed) {
+			return;
+		}
+		
+		closed = true;
+		
+		try {
+			chunk.flip();
+			enqueue(chunk);
+			enqueue(END_OF_BOARDS);
+			writerThread.join();
+		}
+		catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for the board writer");
+		}
+		
+		if(failure != null) {
+			throw failure;
+		}
+	}
+
+}
@@ -0,0 +1,24 @@
+package fungoes.lexiku;
+
+/**
+ * Stops a {@link BoardBuilder} search from another thread.  The search notices at its next node and returns as if its budget had run
+ * out, writing a checkpoint if it has one.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public class CancellationToken {
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Asks every search holding this token to stop.  A token stays cancelled.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+}
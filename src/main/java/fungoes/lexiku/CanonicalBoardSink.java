@@ -0,0 +1,20 @@
+package fungoes.lexiku;
+
+/**
+ * Receives one board per orbit of a symmetric template from {@link BoardBuilder#buildCanonical(Dictionary, Template, CanonicalBoardSink)}.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public interface CanonicalBoardSink {
+
+	/**
+	 * Called once for every orbit, the boards the symmetries of the template move a board to, which has at least one solved board.
+	 * 
+	 * @param board first solved board of the orbit in search order, indexed [x][y], closed tiles are "-"
+	 * @param orbitSize number of different solved boards in the orbit, this one included
+	 * @return true to keep searching, false to stop the search
+	 */
+	boolean canonicalBoardFound(String[][] board, int orbitSize);
+
+}
@@ -1,144 +1,548 @@
-package fungoes.lexiku;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.Reader;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-
-/**
- * In memory data store for word lists including search/filter methods.
- * 
- * @author benjamin.lee
- *
- */
-public class Dictionary implements Iterable<String> {
-	private Map<Integer, List<String>> wordsBySize;
-	private Set<String> words;
-	
-	/**
-	 * Create a new empty Dictionary
-	 */
-	public Dictionary() {
-		initialize();
-	}
-
-	private void initialize() {
-		words = new HashSet<String>();
-		wordsBySize = new HashMap<Integer, List<String>>();
-	}
-
-	public boolean isEmpty() {
-		return size() == 0;
-	}
-
-	public int size() {
-		return words.size();
-	}
-
-	/**
-	 * Reviews the {@link BufferedReader} lines and creates a new word per line.  Duplicates, within one reader or between multiple invokations,
-	 * will be counted only once.  Subsequent calls to loadWords are additive.
-	 * 
-	 * @param reader containing word list, one word per line
-	 * @throws IOException
-	 */
-	public void loadWords(Reader reader) throws IOException {
-		BufferedReader bufferedReader = new BufferedReader(reader);
-		
-		String word;
-		while((word = bufferedReader.readLine()) != null) {
-			word = word.toLowerCase();
-			
-			if(!words.contains(word)) {
-				words.add(word);
-				updateWordsBySizeSets(word);
-			}
-		}
-		
-		for (Integer wordSize : wordsBySize.keySet()) {
-			Collections.sort(wordsBySize.get(wordSize));
-		}
-	}
-
-	private void updateWordsBySizeSets(String word) {
-		Integer size = new Integer(word.length());
-		List<String> sameSizedWords = wordsBySize.get(size);
-		
-		if(sameSizedWords == null) {
-			sameSizedWords = new ArrayList<String>(1000);
-		}
-		
-		sameSizedWords.add(word);
-		
-		wordsBySize.put(size, sameSizedWords);
-	}
-
-	/**
-	 * Returns true if the given word is found in the dictionary.
-	 * 
-	 * @param candidate word to test
-	 * @return true if the word has been loaded into the dictionary
-	 */
-	public boolean isWordPresent(String candidate) {
-		return words.contains(candidate);
-	}
-
-	/**
-	 * Iterates over all words loaded into the dictionary in an undefined order.
-	 */
-	public Iterator<String> iterator() {
-		return words.iterator();
-	}
-
-	/**
-	 * Returns an {@link Iterable} object containing references to all of the words in the dictionary with the given word length
-	 * 
-	 * @param wordLength desired word length
-	 * @return all words matching the word length
-	 */
-	public Iterable<String> byLengthIterable(int wordLength) {
-		Collection<String> wordList = wordsBySize.get(new Integer(wordLength));
-		
-		if(wordList != null) {
-			return Collections.unmodifiableCollection(wordList);
-		}
-		
-		return Collections.emptySet();
-	}
-
-	/**
-	 * Returns true if the dictionary contains a word with the given prefix (this includes if the prefix equals a word) AND the given length.
-	 * 
-	 * @param prefix word prefix or the whole word
-	 * @param wordLength length of words to search
-	 * @return true if a matching word is in the dictionary
-	 */
-	public boolean containsPrefix(String prefix, int wordLength) {
-		List<String> sizedWords = wordsBySize.get(new Integer(wordLength));
-		
-		if(sizedWords == null) {
-			return false;
-		}
-		
-		int resultIndex = Collections.binarySearch(sizedWords, prefix);
-		
-		if(resultIndex < 0) {
-			resultIndex = (resultIndex + 1) * -1;
-			
-			if(resultIndex == sizedWords.size() || !sizedWords.get(resultIndex).startsWith(prefix)) {
-				return false;
-			}
-		}
-		
-		return true;
-	}
-
-}
+package fungoes.lexiku;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * In memory data store for word lists including search/filter methods.
+ * 
+ * Every word has a dense id.  Ids are handed out by word length, then in sorted order, so the words of one length have the ids from
+ * {@link #firstWordId(int)} up to the number of words of that length later.  Ids change when more words are loaded.
+ * 
+ * @author benjamin.lee
+ *
+ */
+public class Dictionary implements Iterable<String> {
+	/**
+	 * Returned by {@link #wordId(String)} for words which are not in the dictionary.
+	 */
+	public static final int NO_WORD = -1;
+
+	private static final PrefixTrie EMPTY_TRIE = new PrefixTrie(0, Collections.<String>emptyList());
+
+	private PrefixTrie[] triesBySize;
+	private int[] firstWordIds;
+	private int wordCount;
+	private volatile String contentHash = null;
+	private final boolean immutable;
+	private LetterPostings[] letterPostings;
+	
+	/**
+	 * Create a new empty Dictionary
+	 */
+	public Dictionary() {
+		triesBySize = new PrefixTrie[0];
+		immutable = false;
+		numberWords();
+	}
+
+	/**
+	 * Creates a dictionary of the given tries to which no words can be loaded.
+	 * 
+	 * @param triesBySize trie of every word length, null for lengths without words
+	 */
+	Dictionary(PrefixTrie[] triesBySize) {
+		this.triesBySize = triesBySize;
+		this.immutable = true;
+		numberWords();
+	}
+
+	/**
+	 * Maps a dictionary image written by {@link #compile(File)} and walks its tries where they lie in the mapping.  Neither the words
+	 * nor the trie nodes are copied to the heap, so the heap taken stays the same however many words the image holds, and processes
+	 * mapping the same image share its pages.  Words are only made into strings when asked for, and are not kept.
+	 * 
+	 * @param image dictionary image file
+	 * @return immutable dictionary of the image
+	 * @throws IOException if the file cannot be read or is not a dictionary image
+	 */
+	public static Dictionary offHeap(File image) throws IOException {
+		return new Dictionary(byLength(DictionaryImage.map(image, true)));
+	}
+
+	/**
+	 * Copies the words into one direct buffer, laid out like a dictionary image, and walks them there as {@link #offHeap(File)} does.
+	 * Once this dictionary is dropped its words no longer take heap.
+	 * 
+	 * @return immutable dictionary of the same words with the same ids
+	 * @throws IllegalArgumentException if the words take more than 2GB
+	 */
+	public Dictionary offHeapCopy() {
+		List<PrefixTrie> tries = new ArrayList<PrefixTrie>();
+		
+		for(PrefixTrie trie : triesBySize) {
+			if(trie != null && trie.wordCount() > 0) {
+				tries.add(trie);
+			}
+		}
+		
+		return new Dictionary(byLength(DictionaryImage.copyOffHeap(tries)));
+	}
+
+	private static PrefixTrie[] byLength(List<PrefixTrie> tries) {
+		PrefixTrie[] triesBySize = new PrefixTrie[0];
+		
+		for(PrefixTrie trie : tries) {
+			triesBySize = Arrays.copyOf(triesBySize, Math.max(triesBySize.length, trie.getWordLength() + 1));
+			triesBySize[trie.getWordLength()] = trie;
+		}
+		
+		return triesBySize;
+	}
+
+	private void checkMutable() {
+		if(immutable) {
+			throw new UnsupportedOperationException("Words cannot be loaded into an immutable dictionary");
+		}
+	}
+
+	/**
+	 * Keeps only the words which can appear on a board of the template, for a search which then tries far fewer candidates.  Words
+	 * of lengths the template has no slot for are dropped, and so are words with a letter which no word of a crossing slot has at the
+	 * crossing, repeatedly until every word left has some word to cross at each of its letters in at least one slot of its length.
+	 * Every board of the template is still built from the words kept, in the same order.
+	 * 
+	 * @param template template the words are for
+	 * @return immutable dictionary of the words kept, this dictionary's ids do not apply to it
+	 */
+	public Dictionary prunedFor(Template template) {
+		return DictionaryPruner.prune(this, template);
+	}
+
+	/**
+	 * @return whether more words can be loaded
+	 */
+	public boolean isImmutable() {
+		return immutable;
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public int size() {
+		return wordCount;
+	}
+
+	/**
+	 * Reviews the {@link BufferedReader} lines and creates a new word per line.  Duplicates, within one reader or between multiple invokations,
+	 * will be counted only once.  Subsequent calls to loadWords are additive.
+	 * 
+	 * @param reader containing word list, one word per line
+	 * @throws IOException
+	 * @throws UnsupportedOperationException if the dictionary is immutable
+	 */
+	public void loadWords(Reader reader) throws IOException {
+		checkMutable();
+		BufferedReader bufferedReader = new BufferedReader(reader);
+		Set<String> newWords = new HashSet<String>();
+		Map<Integer, List<String>> newWordsBySize = new HashMap<Integer, List<String>>();
+		
+		String word;
+		while((word = bufferedReader.readLine()) != null) {
+			word = word.toLowerCase();
+			
+			if(!isWordPresent(word) && newWords.add(word)) {
+				updateWordsBySizeSets(newWordsBySize, word);
+			}
+		}
+		
+		addWords(newWordsBySize);
+	}
+
+	/**
+	 * Same as {@link #loadWords(Reader)} with a {@link java.io.FileReader} on the file, but reads the file in chunks on several threads
+	 * and builds the tries of different word lengths at the same time.
+	 * 
+	 * @param wordList word list file, one word per line, in the platform's default charset
+	 * @param parallelism number of threads to use
+	 * @throws IOException
+	 * @throws UnsupportedOperationException if the dictionary is immutable
+	 */
+	public void loadWords(File wordList, int parallelism) throws IOException {
+		loadWords(wordList, Charset.defaultCharset(), parallelism, WordListReader.DEFAULT_CHUNK_BYTES);
+	}
+
+	void loadWords(File wordList, Charset charset, int parallelism, int chunkBytes) throws IOException {
+		checkMutable();
+		ExecutorService executor = new ForkJoinPool(parallelism);
+		RandomAccessFile file = new RandomAccessFile(wordList, "r");
+		
+		try {
+			final Map<Integer, List<List<String>>> runsBySize = WordListReader.readSortedRuns(file, charset, executor, chunkBytes);
+			List<Callable<PrefixTrie>> merges = new ArrayList<Callable<PrefixTrie>>();
+			
+			for(final Integer wordSize : runsBySize.keySet()) {
+				final PrefixTrie oldTrie = prefixTrie(wordSize);
+				
+				merges.add(new Callable<PrefixTrie>() {
+					public PrefixTrie call() {
+						List<List<String>> runs = runsBySize.get(wordSize);
+						runs.add(oldTrie.words());
+						return new PrefixTrie(wordSize, WordListReader.mergeDistinct(runs));
+					}
+				});
+			}
+			
+			for(PrefixTrie trie : WordListReader.invokeAll(executor, merges)) {
+				triesBySize = Arrays.copyOf(triesBySize, Math.max(triesBySize.length, trie.getWordLength() + 1));
+				triesBySize[trie.getWordLength()] = trie;
+			}
+			
+			numberWords();
+		}
+		finally {
+			file.close();
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Loads a dictionary image written by {@link #compile(File)}.  On an empty dictionary the tries of the image are used as they are,
+	 * which takes a few milliseconds even for large word lists.  Otherwise the words of the image are added like
+	 * {@link #loadWords(Reader)} would.
+	 * 
+	 * @param image dictionary image file
+	 * @throws IOException if the file cannot be read or is not a dictionary image
+	 * @throws UnsupportedOperationException if the dictionary is immutable
+	 */
+	public void loadCompiled(File image) throws IOException {
+		checkMutable();
+		List<PrefixTrie> tries = DictionaryImage.map(image);
+		
+		if(isEmpty()) {
+			for(PrefixTrie trie : tries) {
+				triesBySize = Arrays.copyOf(triesBySize, Math.max(triesBySize.length, trie.getWordLength() + 1));
+				triesBySize[trie.getWordLength()] = trie;
+			}
+			
+			numberWords();
+			return;
+		}
+		
+		Map<Integer, List<String>> newWordsBySize = new HashMap<Integer, List<String>>();
+		
+		for(PrefixTrie trie : tries) {
+			for(String word : trie.words()) {
+				if(!isWordPresent(word)) {
+					updateWordsBySizeSets(newWordsBySize, word);
+				}
+			}
+		}
+		
+		addWords(newWordsBySize);
+	}
+
+	/**
+	 * Writes the words of this dictionary, already indexed, to an image which {@link #loadCompiled(File)} can load.
+	 * 
+	 * @param image file to write, replaced if it exists
+	 * @throws IOException
+	 */
+	public void compile(File image) throws IOException {
+		List<PrefixTrie> tries = new ArrayList<PrefixTrie>();
+		
+		for(PrefixTrie trie : triesBySize) {
+			if(trie != null && trie.wordCount() > 0) {
+				tries.add(trie);
+			}
+		}
+		
+		DictionaryImage.write(tries, image);
+	}
+
+	/**
+	 * Rebuilds the trie of every length with new words.  The words are only kept by the tries, so the new words are merged with the
+	 * words of the old trie.
+	 */
+	private void addWords(Map<Integer, List<String>> newWordsBySize) {
+		for (Integer wordSize : newWordsBySize.keySet()) {
+			List<String> sameSizedWords = new ArrayList<String>(prefixTrie(wordSize).words());
+			sameSizedWords.addAll(newWordsBySize.get(wordSize));
+			Collections.sort(sameSizedWords);
+			
+			triesBySize = Arrays.copyOf(triesBySize, Math.max(triesBySize.length, wordSize + 1));
+			triesBySize[wordSize] = new PrefixTrie(wordSize, sameSizedWords);
+		}
+		
+		numberWords();
+	}
+
+	private void numberWords() {
+		contentHash = null;
+		letterPostings = new LetterPostings[triesBySize.length];
+		firstWordIds = new int[triesBySize.length + 1];
+		wordCount = 0;
+		
+		for(int wordSize = 0; wordSize < triesBySize.length; wordSize++) {
+			firstWordIds[wordSize] = wordCount;
+			wordCount += prefixTrie(wordSize).wordCount();
+		}
+		
+		firstWordIds[triesBySize.length] = wordCount;
+	}
+
+	private void updateWordsBySizeSets(Map<Integer, List<String>> wordsBySize, String word) {
+		Integer size = new Integer(word.length());
+		List<String> sameSizedWords = wordsBySize.get(size);
+		
+		if(sameSizedWords == null) {
+			sameSizedWords = new ArrayList<String>(1000);
+		}
+		
+		sameSizedWords.add(word);
+		
+		wordsBySize.put(size, sameSizedWords);
+	}
+
+	/**
+	 * @param word word to look up
+	 * @return id of the word, or {@link #NO_WORD} if it is not in the dictionary
+	 */
+	public int wordId(String word) {
+		PrefixTrie trie = prefixTrie(word.length());
+		int node = trie.walk(trie.root(), word);
+		
+		return trie.isWord(node) ? firstWordId(word.length()) + trie.wordIndex(node) : NO_WORD;
+	}
+
+	/**
+	 * Words of a length have the ids from this one up to, but not including, this one plus the word count of
+	 * {@link #prefixTrie(int)}.  The word at index i of the trie has this id plus i.
+	 * 
+	 * @param wordLength desired word length
+	 * @return id of the first word with the given length
+	 */
+	public int firstWordId(int wordLength) {
+		if(wordLength < 0) {
+			return 0;
+		}
+		
+		return firstWordIds[Math.min(wordLength, triesBySize.length)];
+	}
+
+	/**
+	 * @param id word id, from 0 to {@link #size()} - 1
+	 * @return the word with the id
+	 */
+	public String word(int id) {
+		if(id < 0 || id >= wordCount) {
+			throw new IndexOutOfBoundsException("No word with id " + id);
+		}
+		
+		int wordSize = 0;
+		while(firstWordIds[wordSize + 1] <= id) {
+			wordSize++;
+		}
+		
+		return prefixTrie(wordSize).wordAt(id - firstWordIds[wordSize]);
+	}
+
+	/**
+	 * Fingerprints the words of the dictionary, so results computed from it can be kept and recognised later, in another process or
+	 * after the dictionary was loaded from an image rather than a word list.  Computed once and kept until more words are loaded.
+	 * 
+	 * @return SHA-256 of the words in id order, in hex, equal for dictionaries with the same words
+	 */
+	public String contentHash() {
+		String hash = contentHash;
+		
+		if(hash == null) {
+			MessageDigest digest = sha256();
+			
+			for(String word : this) {
+				digest.update(word.getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) '\n');
+			}
+			
+			hash = hex(digest.digest());
+			contentHash = hash;
+		}
+		
+		return hash;
+	}
+
+	static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Every JVM has SHA-256", e);
+		}
+	}
+
+	static String hex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		
+		for(byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		
+		return hex.toString();
+	}
+
+	/**
+	 * Returns true if the given word is found in the dictionary.
+	 * 
+	 * @param candidate word to test
+	 * @return true if the word has been loaded into the dictionary
+	 */
+	public boolean isWordPresent(String candidate) {
+		PrefixTrie trie = prefixTrie(candidate.length());
+		
+		return trie.isWord(trie.walk(trie.root(), candidate));
+	}
+
+	/**
+	 * Iterates over all words loaded into the dictionary in id order.
+	 */
+	public Iterator<String> iterator() {
+		final PrefixTrie[] tries = triesBySize;
+		
+		return new Iterator<String>() {
+			private int wordLength = 0;
+			private int index = 0;
+			
+			public boolean hasNext() {
+				while(wordLength < tries.length && (tries[wordLength] == null || index >= tries[wordLength].wordCount())) {
+					wordLength++;
+					index = 0;
+				}
+				
+				return wordLength < tries.length;
+			}
+			
+			public String next() {
+				if(!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				
+				return tries[wordLength].wordAt(index++);
+			}
+			
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Returns an {@link Iterable} object containing references to all of the words in the dictionary with the given word length
+	 * 
+	 * @param wordLength desired word length
+	 * @return all words matching the word length
+	 */
+	public Iterable<String> byLengthIterable(int wordLength) {
+		return Collections.unmodifiableList(prefixTrie(wordLength).words());
+	}
+
+	/**
+	 * Finds the words matching a pattern of one element per letter: the letter itself, "?" for any letter, or the letters allowed in
+	 * brackets, so "[aeiou]??s" matches four letter words starting with a vowel and ending in s.  Letters are lowercased like the
+	 * words loaded.  The words of the pattern's length are indexed by the letter at each position the first time a pattern of that
+	 * length is matched, which takes one bit per word for every position and letter in use, and the index is kept until more words
+	 * are loaded.  A pattern with the letters known at the crossings of a slot answers whether any word still fits the slot.
+	 * 
+	 * @param pattern pattern to match
+	 * @return words matching the pattern, found as they are iterated
+	 * @throws IllegalArgumentException if a bracket is empty or not closed
+	 */
+	public PatternMatches match(String pattern) {
+		char[][] letterSets = letterSets(pattern.toLowerCase());
+		return letterPostings(letterSets.length).match(letterSets);
+	}
+
+	/**
+	 * @return letters allowed at each position of the pattern, null for any letter
+	 */
+	private static char[][] letterSets(String pattern) {
+		List<char[]> letterSets = new ArrayList<char[]>();
+		
+		for(int i = 0; i < pattern.length(); i++) {
+			char letter = pattern.charAt(i);
+			
+			if(letter == '?') {
+				letterSets.add(null);
+			}
+			else if(letter == '[') {
+				int close = pattern.indexOf(']', i + 1);
+				
+				if(close < 0 || close == i + 1) {
+					throw new IllegalArgumentException("Letters in brackets must be closed and not empty: " + pattern);
+				}
+				
+				letterSets.add(pattern.substring(i + 1, close).toCharArray());
+				i = close;
+			}
+			else if(letter == ']') {
+				throw new IllegalArgumentException("Closing bracket without an opening one: " + pattern);
+			}
+			else {
+				letterSets.add(new char[] {letter});
+			}
+		}
+		
+		return letterSets.toArray(new char[letterSets.size()][]);
+	}
+
+	private synchronized LetterPostings letterPostings(int wordLength) {
+		if(wordLength >= letterPostings.length) {
+			return new LetterPostings(prefixTrie(wordLength));
+		}
+		
+		if(letterPostings[wordLength] == null) {
+			letterPostings[wordLength] = new LetterPostings(prefixTrie(wordLength));
+		}
+		
+		return letterPostings[wordLength];
+	}
+
+	/**
+	 * Returns true if the dictionary contains a word with the given prefix (this includes if the prefix equals a word) AND the given length.
+	 * 
+	 * @param prefix word prefix or the whole word
+	 * @param wordLength length of words to search
+	 * @return true if a matching word is in the dictionary
+	 */
+	public boolean containsPrefix(String prefix, int wordLength) {
+		PrefixTrie trie = prefixTrie(wordLength);
+		
+		return trie.walk(trie.root(), prefix) != PrefixTrie.NO_NODE;
+	}
+
+	/**
+	 * Returns the prefix index of all words with the given length.  Callers may keep nodes of the trie to resume a prefix walk later
+	 * instead of starting again from the root.  The trie is replaced, not modified, when more words are loaded.
+	 * 
+	 * @param wordLength desired word length
+	 * @return prefix trie, empty if there are no words of the given length
+	 */
+	public PrefixTrie prefixTrie(int wordLength) {
+		if(wordLength >= 0 && wordLength < triesBySize.length && triesBySize[wordLength] != null) {
+			return triesBySize[wordLength];
+		}
+		
+		return EMPTY_TRIE;
+	}
+
+}
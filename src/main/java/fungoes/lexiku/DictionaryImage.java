@@ -0,0 +1,297 @@
+package fungoes.lexiku;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary file holding the finished prefix tries of a {@link Dictionary}, so a word list only has to be read, sorted and indexed once.
+ * 
+ * The file is mapped rather than read.  Trie nodes are copied out of the mapping in one bulk move per table; the packed words stay in
+ * the mapping and are only turned into strings when asked for.  Processes mapping the same image share it through the page cache.
+ * Mapped off heap, the nodes stay in the mapping as well, and the same layout in a direct buffer keeps any dictionary off the heap.
+ * 
+ * Layout, little endian: magic, version, number of tries, then per trie its word length, word count, node count, first word node,
+ * bytes per letter and data offset.  The data of each trie is the node letters, the first child table (node count + 1 entries), the
+ * word range starts and the packed words, every table starting on a 4 byte boundary.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+class DictionaryImage {
+	static final int MAGIC = 0x4C584B44;
+	static final int VERSION = 1;
+
+	private static final int FILE_HEADER_BYTES = 12;
+	private static final int TRIE_HEADER_BYTES = 24;
+
+	private DictionaryImage() {
+	}
+
+	/**
+	 * @param file any file
+	 * @return true if the file starts like a dictionary image
+	 * @throws IOException
+	 */
+	static boolean isImage(File file) throws IOException {
+		FileInputStream input = new FileInputStream(file);
+		
+		try {
+			byte[] header = new byte[4];
+			
+			if(input.read(header) != header.length) {
+				return false;
+			}
+			
+			return ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt() == MAGIC;
+		}
+		finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Writes the tries to a new image, replacing the file if it exists.
+	 * 
+	 * @param tries non empty tries, each of a different word length
+	 * @param file image to write
+	 * @throws IOException
+	 */
+	static void write(List<PrefixTrie> tries, File file) throws IOException {
+		ByteBuffer header = header(tries);
+		RandomAccessFile output = new RandomAccessFile(file, "rw");
+		
+		try {
+			output.setLength(0);
+			FileChannel channel = output.getChannel();
+			writeFully(channel, header);
+			
+			for(PrefixTrie trie : tries) {
+				writeFully(channel, trieData(trie, bytesPerLetter(trie)));
+			}
+		}
+		finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * @return file header and trie headers, ready to be written
+	 */
+	private static ByteBuffer header(List<PrefixTrie> tries) {
+		int dataOffset = FILE_HEADER_BYTES + tries.size() * TRIE_HEADER_BYTES;
+		
+		ByteBuffer header = ByteBuffer.allocate(dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(tries.size());
+		
+		for(PrefixTrie trie : tries) {
+			int bytesPerLetter = bytesPerLetter(trie);
+			
+			header.putInt(trie.getWordLength());
+			header.putInt(trie.wordCount());
+			header.putInt(trie.nodeCount());
+			header.putInt(trie.firstWordNode());
+			header.putInt(bytesPerLetter);
+			header.putInt(dataOffset);
+			
+			dataOffset += dataBytes(trie, bytesPerLetter);
+		}
+		
+		header.flip();
+		return header;
+	}
+
+	/**
+	 * Lays the tries out as an image in one direct buffer and reads them back as {@link OffHeapPrefixTrie}s, which leaves nothing of
+	 * their words on the heap.
+	 * 
+	 * @param tries non empty tries, each of a different word length
+	 * @return tries reading the direct buffer
+	 * @throws IllegalArgumentException if the image would not fit in one buffer
+	 */
+	static List<PrefixTrie> copyOffHeap(List<PrefixTrie> tries) {
+		ByteBuffer header = header(tries);
+		long bytes = header.remaining();
+		
+		for(PrefixTrie trie : tries) {
+			bytes += dataBytes(trie, bytesPerLetter(trie));
+		}
+		
+		if(bytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Dictionary of " + bytes + " bytes is too large for one off heap buffer");
+		}
+		
+		ByteBuffer image = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+		image.put(header);
+		
+		for(PrefixTrie trie : tries) {
+			image.put(trieData(trie, bytesPerLetter(trie)));
+		}
+		
+		try {
+			return read(image, true, "off heap copy");
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Off heap copy is not a valid image", e);
+		}
+	}
+
+	/**
+	 * Maps an image written by {@link #write(List, File)}.
+	 * 
+	 * @param file image to map
+	 * @return the tries of the image
+	 * @throws IOException if the file is not a dictionary image of this version
+	 */
+	static List<PrefixTrie> map(File file) throws IOException {
+		return map(file, false);
+	}
+
+	/**
+	 * Maps an image written by {@link #write(List, File)}.
+	 * 
+	 * @param file image to map
+	 * @param offHeap true to read the nodes in place as {@link OffHeapPrefixTrie}s rather than copy them to the heap
+	 * @return the tries of the image
+	 * @throws IOException if the file is not a dictionary image of this version
+	 */
+	static List<PrefixTrie> map(File file, boolean offHeap) throws IOException {
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		MappedByteBuffer image;
+		
+		try {
+			image = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+		}
+		finally {
+			input.close();
+		}
+		
+		image.order(ByteOrder.LITTLE_ENDIAN);
+		return read(image, offHeap, file.toString());
+	}
+
+	private static List<PrefixTrie> read(ByteBuffer image, boolean offHeap, String source) throws IOException {
+		if(image.limit() < FILE_HEADER_BYTES || image.getInt(0) != MAGIC) {
+			throw new IOException("Not a dictionary image: " + source);
+		}
+		
+		if(image.getInt(4) != VERSION) {
+			throw new IOException("Unsupported dictionary image version " + image.getInt(4) + ": " + source);
+		}
+		
+		int trieCount = image.getInt(8);
+		List<PrefixTrie> tries = new ArrayList<PrefixTrie>(trieCount);
+		
+		for(int i = 0; i < trieCount; i++) {
+			int headerOffset = FILE_HEADER_BYTES + i * TRIE_HEADER_BYTES;
+			int wordLength = image.getInt(headerOffset);
+			int wordCount = image.getInt(headerOffset + 4);
+			int nodeCount = image.getInt(headerOffset + 8);
+			int firstWordNode = image.getInt(headerOffset + 12);
+			int bytesPerLetter = image.getInt(headerOffset + 16);
+			int offset = image.getInt(headerOffset + 20);
+			
+			CharBuffer letters = slice(image, offset, nodeCount * 2).asCharBuffer();
+			offset += align(nodeCount * 2);
+			
+			IntBuffer firstChildren = slice(image, offset, (nodeCount + 1) * 4).asIntBuffer();
+			offset += (nodeCount + 1) * 4;
+			
+			IntBuffer wordRangeStarts = slice(image, offset, nodeCount * 4).asIntBuffer();
+			offset += nodeCount * 4;
+			
+			ByteBuffer packedWords = slice(image, offset, wordCount * wordLength * bytesPerLetter);
+			
+			if(offHeap) {
+				tries.add(new OffHeapPrefixTrie(wordLength, firstWordNode, letters, firstChildren, wordRangeStarts, packedWords, bytesPerLetter));
+			}
+			else {
+				char[] letterArray = new char[nodeCount];
+				int[] firstChildArray = new int[nodeCount + 1];
+				int[] wordRangeStartArray = new int[nodeCount];
+				
+				letters.get(letterArray);
+				firstChildren.get(firstChildArray);
+				wordRangeStarts.get(wordRangeStartArray);
+				
+				tries.add(new PrefixTrie(wordLength, firstWordNode, letterArray, firstChildArray, wordRangeStartArray, packedWords, bytesPerLetter));
+			}
+		}
+		
+		return tries;
+	}
+
+	/**
+	 * @return little endian view of the bytes of the image
+	 */
+	private static ByteBuffer slice(ByteBuffer image, int offset, int bytes) {
+		ByteBuffer view = image.duplicate();
+		view.limit(offset + bytes).position(offset);
+		return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static int bytesPerLetter(PrefixTrie trie) {
+		char[] letters = trie.letters();
+		
+		for(int node = 1; node < letters.length; node++) {
+			if(letters[node] > 0xFF) {
+				return 2;
+			}
+		}
+		
+		return 1;
+	}
+
+	private static int dataBytes(PrefixTrie trie, int bytesPerLetter) {
+		int nodeCount = trie.nodeCount();
+		return align(nodeCount * 2) + (nodeCount + 1) * 4 + nodeCount * 4 + align(trie.wordCount() * trie.getWordLength() * bytesPerLetter);
+	}
+
+	private static ByteBuffer trieData(PrefixTrie trie, int bytesPerLetter) {
+		int nodeCount = trie.nodeCount();
+		ByteBuffer data = ByteBuffer.allocate(dataBytes(trie, bytesPerLetter)).order(ByteOrder.LITTLE_ENDIAN);
+		
+		data.asCharBuffer().put(trie.letters());
+		data.position(align(nodeCount * 2));
+		data.asIntBuffer().put(trie.firstChildren());
+		data.position(data.position() + (nodeCount + 1) * 4);
+		data.asIntBuffer().put(trie.wordRangeStarts());
+		data.position(data.position() + nodeCount * 4);
+		
+		for(int index = 0; index < trie.wordCount(); index++) {
+			String word = trie.wordAt(index);
+			
+			for(int i = 0; i < word.length(); i++) {
+				if(bytesPerLetter == 1) {
+					data.put((byte) word.charAt(i));
+				}
+				else {
+					data.putChar(word.charAt(i));
+				}
+			}
+		}
+		
+		data.clear();
+		return data;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static int align(int bytes) {
+		return (bytes + 3) & ~3;
+	}
+
+}
@@ -0,0 +1,203 @@
+package fungoes.lexiku;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Drops the words of a dictionary which cannot appear on any board of a template, see {@link Dictionary#prunedFor(Template)}.
+ * 
+ * Every slot of the template's {@link SearchSlots} keeps the set of words of its length still possible there, and the number of those
+ * words with each letter at each offset.  A word is dropped from a slot once a letter of it has no word left at the same cell of the
+ * crossing slot, which may drop letters of the slot in turn and so send the slots crossing there back to be checked, AC-3 style,
+ * until nothing changes.  A word is kept if any slot of its length still holds it.
+ * 
+ * Letters are numbered over the words of the slot lengths, so the counts of an offset take one int per letter used.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+final class DictionaryPruner {
+	private final SearchSlots slots;
+	private final int letterCount;
+	private final int[][] letterCodes;
+	private final boolean[][] possible;
+	private final int[][] letterCounts;
+	private final int[] queue;
+	private final boolean[] queued;
+	private int queueHead = 0;
+	private int queueSize = 0;
+
+	private DictionaryPruner(Dictionary dictionary, Template template) {
+		slots = new SearchSlots(dictionary, template.slotGraph());
+		letterCodes = new int[slots.slotCount][];
+		possible = new boolean[slots.slotCount][];
+		letterCounts = new int[slots.slotCount][];
+		queue = new int[slots.slotCount];
+		queued = new boolean[slots.slotCount];
+		
+		int[] letterNumbers = new int[Character.MAX_VALUE + 1];
+		int[][] codesByLength = new int[maxLength() + 1][];
+		int letters = 0;
+		
+		for(int slot = 0; slot < slots.slotCount; slot++) {
+			PrefixTrie trie = slots.tries[slot];
+			int length = slots.cells[slot].length;
+			
+			if(codesByLength[length] == null) {
+				codesByLength[length] = new int[trie.wordCount() * length];
+				
+				for(int word = 0; word < trie.wordCount(); word++) {
+					String letterString = trie.wordAt(word);
+					
+					for(int offset = 0; offset < length; offset++) {
+						char letter = letterString.charAt(offset);
+						
+						if(letterNumbers[letter] == 0) {
+							letterNumbers[letter] = ++letters;
+						}
+						
+						codesByLength[length][word * length + offset] = letterNumbers[letter] - 1;
+					}
+				}
+			}
+			
+			letterCodes[slot] = codesByLength[length];
+		}
+		
+		letterCount = letters;
+		
+		for(int slot = 0; slot < slots.slotCount; slot++) {
+			int length = slots.cells[slot].length;
+			int wordCount = slots.tries[slot].wordCount();
+			
+			possible[slot] = new boolean[wordCount];
+			letterCounts[slot] = new int[length * letterCount];
+			Arrays.fill(possible[slot], true);
+			
+			for(int code = 0; code < wordCount * length; code++) {
+				letterCounts[slot][code % length * letterCount + letterCodes[slot][code]]++;
+			}
+			
+			enqueue(slot);
+		}
+	}
+
+	private int maxLength() {
+		int maxLength = 0;
+		
+		for(int[] cells : slots.cells) {
+			maxLength = Math.max(maxLength, cells.length);
+		}
+		
+		return maxLength;
+	}
+
+	/**
+	 * @param dictionary dictionary to prune
+	 * @param template template the words are for
+	 * @return immutable dictionary of the words which fit some slot of the template
+	 */
+	static Dictionary prune(Dictionary dictionary, Template template) {
+		DictionaryPruner pruner = new DictionaryPruner(dictionary, template);
+		pruner.propagate();
+		return pruner.keptWords();
+	}
+
+	private void enqueue(int slot) {
+		if(!queued[slot]) {
+			queued[slot] = true;
+			queue[(queueHead + queueSize++) % queue.length] = slot;
+		}
+	}
+
+	private void propagate() {
+		while(queueSize > 0) {
+			int slot = queue[queueHead];
+			queueHead = (queueHead + 1) % queue.length;
+			queueSize--;
+			queued[slot] = false;
+			revise(slot);
+		}
+	}
+
+	/**
+	 * Drops the words of the slot with a letter no crossing word has, and queues the slots crossing letters which went with them.
+	 */
+	private void revise(int slot) {
+		int length = slots.cells[slot].length;
+		int[] codes = letterCodes[slot];
+		int[] counts = letterCounts[slot];
+		
+		for(int word = 0; word < possible[slot].length; word++) {
+			if(possible[slot][word] && !supported(slot, word)) {
+				possible[slot][word] = false;
+				
+				for(int offset = 0; offset < length; offset++) {
+					int crossingSlot = slots.crossingSlots[slot][offset];
+					
+					if(--counts[offset * letterCount + codes[word * length + offset]] == 0 && crossingSlot != SlotGraph.NO_SLOT) {
+						enqueue(crossingSlot);
+					}
+				}
+			}
+		}
+	}
+
+	private boolean supported(int slot, int word) {
+		int length = slots.cells[slot].length;
+		
+		for(int offset = 0; offset < length; offset++) {
+			int crossingSlot = slots.crossingSlots[slot][offset];
+			
+			if(crossingSlot != SlotGraph.NO_SLOT) {
+				int crossingOffset = slots.crossingOffsets[slot][offset];
+				
+				if(letterCounts[crossingSlot][crossingOffset * letterCount + letterCodes[slot][word * length + offset]] == 0) {
+					return false;
+				}
+			}
+		}
+		
+		return true;
+	}
+
+	/**
+	 * @return dictionary of the words some slot of their length still holds, in the same order as before
+	 */
+	private Dictionary keptWords() {
+		PrefixTrie[] tries = new PrefixTrie[maxLength() + 1];
+		boolean[][] keptByLength = new boolean[tries.length][];
+		
+		for(int slot = 0; slot < slots.slotCount; slot++) {
+			int length = slots.cells[slot].length;
+			
+			if(keptByLength[length] == null) {
+				keptByLength[length] = new boolean[possible[slot].length];
+			}
+			
+			for(int word = 0; word < possible[slot].length; word++) {
+				keptByLength[length][word] |= possible[slot][word];
+			}
+		}
+		
+		for(int slot = 0; slot < slots.slotCount; slot++) {
+			int length = slots.cells[slot].length;
+			
+			if(tries[length] == null) {
+				List<String> words = new ArrayList<String>();
+				
+				for(int word = 0; word < keptByLength[length].length; word++) {
+					if(keptByLength[length][word]) {
+						words.add(slots.tries[slot].wordAt(word));
+					}
+				}
+				
+				tries[length] = new PrefixTrie(length, words);
+			}
+		}
+		
+		return new Dictionary(tries);
+	}
+
+}
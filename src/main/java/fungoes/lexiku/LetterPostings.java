@@ -0,0 +1,111 @@
+package fungoes.lexiku;
+
+import java.util.Arrays;
+
+/**
+ * Index of the words of one {@link PrefixTrie} by the letter at each position: for every position and letter a bit set of the word
+ * indices with that letter there.  A pattern is matched by intersecting, for each position it restricts, the union of the bit sets of
+ * the letters it allows there, see {@link PatternMatches}.
+ * 
+ * The index is built from the trie's nodes without reading a word.  A node at depth d ends the prefixes of the words in its word
+ * range, so their letter at position d - 1 is the node's letter and the range is set in one go.  It takes one bit per word for every
+ * position and letter of the trie's alphabet.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+final class LetterPostings {
+	private final PrefixTrie trie;
+	private final char[] alphabet;
+	private final long[][] postings;
+
+	/**
+	 * @param trie trie to index
+	 */
+	LetterPostings(PrefixTrie trie) {
+		this.trie = trie;
+		
+		int wordLength = trie.getWordLength();
+		int nodeCount = trie.nodeCount();
+		char[] letters = new char[Math.max(0, nodeCount - 1)];
+		
+		for(int node = 1; node < nodeCount; node++) {
+			letters[node - 1] = trie.letter(node);
+		}
+		
+		Arrays.sort(letters);
+		int letterCount = 0;
+		
+		for(int i = 0; i < letters.length; i++) {
+			if(i == 0 || letters[i] != letters[i - 1]) {
+				letters[letterCount++] = letters[i];
+			}
+		}
+		
+		alphabet = Arrays.copyOf(letters, letterCount);
+		postings = new long[wordLength * alphabet.length][];
+		
+		int blocks = (trie.wordCount() + 63) >>> 6;
+		int[] depths = new int[nodeCount];
+		
+		for(int node = 0; node < nodeCount; node++) {
+			for(int child = trie.firstChild(node); child < trie.endChild(node); child++) {
+				depths[child] = depths[node] + 1;
+				
+				int posting = (depths[child] - 1) * alphabet.length + Arrays.binarySearch(alphabet, trie.letter(child));
+				
+				if(postings[posting] == null) {
+					postings[posting] = new long[blocks];
+				}
+				
+				setRange(postings[posting], trie.wordRangeStart(child), trie.wordRangeEnd(child));
+			}
+		}
+	}
+
+	private static void setRange(long[] bits, int from, int to) {
+		for(int bit = from; bit < to; ) {
+			int block = bit >>> 6;
+			int end = Math.min(to, (block + 1) << 6);
+			
+			bits[block] |= (end - bit == 64 ? -1L : ((1L << (end - bit)) - 1)) << (bit & 63);
+			bit = end;
+		}
+	}
+
+	/**
+	 * @param letterSets letters allowed at each position, null for any letter
+	 * @return words of the trie with an allowed letter at every position
+	 */
+	PatternMatches match(char[][] letterSets) {
+		long[][][] restrictions = new long[letterSets.length][][];
+		
+		for(int position = 0; position < letterSets.length; position++) {
+			if(letterSets[position] != null) {
+				long[][] unioned = new long[letterSets[position].length][];
+				int count = 0;
+				
+				for(char letter : letterSets[position]) {
+					long[] posting = posting(position, letter);
+					
+					if(posting != null) {
+						unioned[count++] = posting;
+					}
+				}
+				
+				restrictions[position] = Arrays.copyOf(unioned, count);
+			}
+		}
+		
+		return new PatternMatches(trie, restrictions);
+	}
+
+	/**
+	 * @return indices of the words with the letter at the position, null if there are none
+	 */
+	long[] posting(int position, char letter) {
+		int code = Arrays.binarySearch(alphabet, letter);
+		return code < 0 ? null : postings[position * alphabet.length + code];
+	}
+
+}
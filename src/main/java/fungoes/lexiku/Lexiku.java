@@ -1,44 +1,519 @@
-package fungoes.lexiku;
-
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.List;
-
-public class Lexiku {
-
-	public static void main(String[] args) throws FileNotFoundException, IOException {
-		if(args.length != 2) {
-			System.out.println("2 Arguments Required. (dictionary file, template file)");
-			return;
-		}
-		
-		Dictionary dictionary = new Dictionary();
-		dictionary.loadWords(new FileReader(new File(args[0])));
-		
-		Template template = new Template(new FileReader(new File(args[1])));
-		
-		BoardBuilder builder = new BoardBuilder();
-		
-		List<String[][]> boards = builder.build(dictionary, template);
-
-		System.out.println("Boards Found: " + boards.size());
-		
-		//printBoard(template, boards);
-	}
-
-	public static void printBoard(Template template, List<String[][]> boards) {
-		for(String[][] board : boards) {
-			for(int y = 0; y < template.getHeight(); y++) {
-				for(int x = 0; x < template.getWidth(); x++) {
-					System.out.print(board[x][y]);
-				}
-				System.out.println();
-			}
-			
-			System.out.println();
-		}
-	}
-
-}
+package fungoes.lexiku;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+public class Lexiku {
+	private static final long SHUTDOWN_WAIT_MILLIS = 10000;
+	private static final String BOARDS_FOUND = "Boards Found: ";
+	private static final String BOARDS_COUNTED = "Boards Counted: ";
+	private static final String CHECKPOINT_WRITTEN = "Checkpoint Written: ";
+	private static final String SEARCH_STOPPED = "Search Stopped Early";
+	private static final String SHARD = "Shard: ";
+	private static final String ORBIT_SIZE = "Orbit Size: ";
+	private static final String CANONICAL_BOARDS = "Canonical Boards: ";
+	private static final long ESTIMATE_SEED = 1;
+	private static final int QUEUED_REQUESTS_PER_WORKER = 64;
+	private static final long DEFAULT_CACHE_MEGABYTES = 1024;
+
+	public static void main(String[] args) throws FileNotFoundException, IOException {
+		List<String> files = new ArrayList<String>();
+		int workers = 1;
+		SearchStrategy strategy = SearchStrategy.RowOrder;
+		boolean compile = false;
+		boolean count = false;
+		boolean repeatsAllowed = false;
+		int progressSeconds = -1;
+		long nodeBudget = Long.MAX_VALUE;
+		long timeBudgetSeconds = Long.MAX_VALUE;
+		File checkpoint = null;
+		int shard = 0;
+		int shards = 1;
+		boolean sharded = false;
+		boolean merge = false;
+		int estimateProbes = 0;
+		int etaProbes = 0;
+		File output = null;
+		boolean compressed = false;
+		boolean decode = false;
+		boolean symmetryBreaking = false;
+		boolean canonical = false;
+		boolean pruning = false;
+		boolean offHeap = false;
+		String serve = null;
+		int queuedRequests = -1;
+		File cacheDirectory = null;
+		long cacheMegabytes = DEFAULT_CACHE_MEGABYTES;
+		
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].equals("--workers") && i + 1 < args.length) {
+				workers = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("--strategy") && i + 1 < args.length) {
+				strategy = SearchStrategy.valueOf(args[++i]);
+			}
+			else if(args[i].equals("--progress") && i + 1 < args.length) {
+				progressSeconds = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("--node-budget") && i + 1 < args.length) {
+				nodeBudget = Long.parseLong(args[++i]);
+			}
+			else if(args[i].equals("--time-budget") && i + 1 < args.length) {
+				timeBudgetSeconds = Long.parseLong(args[++i]);
+			}
+			else if(args[i].equals("--checkpoint") && i + 1 < args.length) {
+				checkpoint = new File(args[++i]);
+			}
+			else if(args[i].equals("--shard") && i + 1 < args.length) {
+				int[] shardOfShards = parseShard(args[++i]);
+				
+				if(shardOfShards == null) {
+					System.out.println("--shard needs <index from 0>/<count> with the index below the count: " + args[i]);
+					return;
+				}
+				
+				shard = shardOfShards[0];
+				shards = shardOfShards[1];
+				sharded = true;
+			}
+			else if(args[i].equals("--estimate") && i + 1 < args.length) {
+				estimateProbes = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("--eta") && i + 1 < args.length) {
+				etaProbes = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("--output") && i + 1 < args.length) {
+				output = new File(args[++i]);
+			}
+			else if(args[i].equals("--gzip")) {
+				compressed = true;
+			}
+			else if(args[i].equals("--decode")) {
+				decode = true;
+			}
+			else if(args[i].equals("--symmetry")) {
+				symmetryBreaking = true;
+			}
+			else if(args[i].equals("--canonical")) {
+				canonical = true;
+			}
+			else if(args[i].equals("--serve") && i + 1 < args.length) {
+				serve = args[++i];
+			}
+			else if(args[i].equals("--queue") && i + 1 < args.length) {
+				queuedRequests = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("--cache") && i + 1 < args.length) {
+				cacheDirectory = new File(args[++i]);
+			}
+			else if(args[i].equals("--cache-megabytes") && i + 1 < args.length) {
+				cacheMegabytes = Long.parseLong(args[++i]);
+			}
+			else if(args[i].equals("--off-heap")) {
+				offHeap = true;
+			}
+			else if(args[i].equals("--prune")) {
+				pruning = true;
+			}
+			else if(args[i].equals("--merge")) {
+				merge = true;
+			}
+			else if(args[i].equals("--compile")) {
+				compile = true;
+			}
+			else if(args[i].equals("--count")) {
+				count = true;
+			}
+			else if(args[i].equals("--allow-repeats")) {
+				repeatsAllowed = true;
+			}
+			else {
+				files.add(args[i]);
+			}
+		}
+		
+		if(merge) {
+			mergeShardOutputs(files);
+			return;
+		}
+		
+		if(canonical && output != null) {
+			System.out.println("--canonical prints each board with the size of its orbit, which a packed --output file cannot hold");
+			return;
+		}
+		
+		if(files.size() != (decode ? 3 : serve != null ? 1 : 2) || workers < 1) {
+			System.out.println("2 Arguments Required. (dictionary file, template file) Options: --workers <count> --strategy <RowOrder|MostConstrainedFirst|ArcConsistency|Backjumping> --progress <seconds, 0 for JMX only>");
+			System.out.println("To count boards without printing them: --count, with --allow-repeats to count as if words could repeat");
+			System.out.println("To stop a search early: --node-budget <nodes> --time-budget <seconds>, with --checkpoint <file> to resume it on the next run");
+			System.out.println("To search or count one of several parts of the search: --shard <index from 0>/<count>");
+			System.out.println("To estimate the size and time of a search from random probes: --estimate <probes>, or --eta <probes> with --progress to report the time left");
+			System.out.println("To write the boards packed instead of printing them: --output <file>, with --gzip to compress it");
+			System.out.println("To print the boards of a packed file: --decode <dictionary file> <template file> <packed file>");
+			System.out.println("To search one board of each rotation and reflection of a symmetric template: --symmetry, or --canonical to print only that board and the size of its orbit");
+			System.out.println("To keep the dictionary loaded and solve templates sent by other programs: --serve <port on the loopback interface, or - for stdin, ended with a quit line to wait for the answers> <dictionary file>, with --queue <requests> to bound the requests waiting for a worker");
+			System.out.println("To answer searches done before from disk: --cache <directory>, with --cache-megabytes <size> to bound it (default " + DEFAULT_CACHE_MEGABYTES + ")");
+			System.out.println("To keep the dictionary off the heap, mapped in place if it is an image: --off-heap");
+			System.out.println("To drop the words which cannot fit the template before searching: --prune");
+			System.out.println("To combine the outputs of every shard: --merge <output file of each shard, in shard order>...");
+			System.out.println("To compile a word list: --compile <word list file> <dictionary image file>");
+			return;
+		}
+		
+		Dictionary dictionary = new Dictionary();
+		File dictionaryFile = new File(files.get(0));
+		
+		if(offHeap && DictionaryImage.isImage(dictionaryFile)) {
+			dictionary = Dictionary.offHeap(dictionaryFile);
+		}
+		else if(DictionaryImage.isImage(dictionaryFile)) {
+			dictionary.loadCompiled(dictionaryFile);
+		}
+		else {
+			dictionary.loadWords(dictionaryFile, workers);
+			
+			if(offHeap) {
+				dictionary = dictionary.offHeapCopy();
+			}
+		}
+		
+		if(compile) {
+			dictionary.compile(new File(files.get(1)));
+			System.out.println("Words Compiled: " + dictionary.size());
+			return;
+		}
+		
+		SolutionCache solutionCache = null;
+		
+		if(cacheDirectory != null) {
+			solutionCache = new SolutionCache(cacheDirectory, cacheMegabytes << 20);
+		}
+		
+		if(serve != null) {
+			serve(dictionary, solutionCache, serve, workers, queuedRequests >= 0 ? queuedRequests : workers * QUEUED_REQUESTS_PER_WORKER);
+			return;
+		}
+		
+		Template template = new Template(new FileReader(new File(files.get(1))));
+		
+		if(decode) {
+			decodeBoards(dictionary, template, new File(files.get(2)));
+			return;
+		}
+		
+		BoardBuilder builder = new BoardBuilder(workers);
+		builder.setStrategy(strategy);
+		builder.setNodeBudget(nodeBudget);
+		builder.setTimeBudget(timeBudgetSeconds, TimeUnit.SECONDS);
+		builder.setShard(shard, shards);
+		builder.setSymmetryBreaking(symmetryBreaking);
+		builder.setSolutionCache(solutionCache);
+		builder.setPruning(pruning);
+		
+		if(checkpoint != null) {
+			builder.setCheckpoint(checkpoint);
+		}
+		
+		if(checkpoint != null || count) {
+			builder.setCancellationToken(cancelOnShutdown());
+		}
+		
+		if(estimateProbes > 0) {
+			SearchEstimate estimate = builder.estimate(dictionary, template, estimateProbes, ESTIMATE_SEED);
+			System.out.println(String.format(Locale.ROOT, "Estimated Nodes: %.4g", estimate.getNodes()));
+			System.out.println(String.format(Locale.ROOT, "Estimated Boards: %.4g", estimate.getBoards()));
+			System.out.println(String.format(Locale.ROOT, "Estimated Seconds: %.4g", estimate.getSeconds()));
+			return;
+		}
+		
+		PrintingSink sink = new PrintingSink(template);
+		BoardWriter writer = null;
+		boolean complete;
+		ProgressLogger progressLogger = null;
+		
+		if(progressSeconds >= 0) {
+			SearchStatistics statistics = new SearchStatistics();
+			statistics.register("fungoes.lexiku:type=SearchStatistics");
+			builder.setStatistics(statistics);
+			
+			if(etaProbes > 0 && !count) {
+				statistics.setEstimate(builder.estimate(dictionary, template, etaProbes, ESTIMATE_SEED));
+			}
+			
+			if(progressSeconds > 0) {
+				progressLogger = new ProgressLogger(statistics, System.err, progressSeconds, TimeUnit.SECONDS);
+			}
+		}
+		
+		if(sharded) {
+			System.out.println(SHARD + shard + "/" + shards);
+		}
+		
+		try {
+			if(count) {
+				try {
+					System.out.println(BOARDS_COUNTED + builder.count(dictionary, template, repeatsAllowed));
+				}
+				catch(CancellationException e) {
+					System.out.println(SEARCH_STOPPED);
+				}
+				
+				return;
+			}
+			
+			if(output != null) {
+				writer = new BoardWriter(dictionary, template, output, compressed);
+			}
+			
+			if(canonical) {
+				complete = builder.buildCanonical(dictionary, template, sink);
+			}
+			else {
+				complete = builder.build(dictionary, template, writer != null ? writer : sink);
+			}
+		}
+		finally {
+			if(progressLogger != null) {
+				progressLogger.close();
+			}
+			
+			if(writer != null) {
+				writer.close();
+			}
+		}
+
+		if(canonical) {
+			System.out.println(CANONICAL_BOARDS + sink.canonicalBoards);
+		}
+		
+		System.out.println(BOARDS_FOUND + (writer != null ? writer.getBoardsWritten() : sink.boardsFound));
+		
+		if(checkpoint != null && checkpoint.exists()) {
+			System.out.println(CHECKPOINT_WRITTEN + checkpoint);
+		}
+		else if(!complete) {
+			System.out.println(SEARCH_STOPPED);
+		}
+	}
+
+	/**
+	 * @return shard index and count of "index/count", null unless the index is from 0 to one less than the count
+	 */
+	private static int[] parseShard(String shardOfShards) {
+		String[] parts = shardOfShards.split("/", -1);
+		
+		try {
+			if(parts.length == 2) {
+				int shard = Integer.parseInt(parts[0].trim());
+				int shards = Integer.parseInt(parts[1].trim());
+				
+				if(shard >= 0 && shard < shards) {
+					return new int[] {shard, shards};
+				}
+			}
+		}
+		catch(NumberFormatException e) {
+			// not a number, refused below
+		}
+		
+		return null;
+	}
+
+	/**
+	 * @return token cancelled when the JVM is asked to shut down, which then waits for the search to write its checkpoint or the count
+	 *         to say it stopped
+	 */
+	private static CancellationToken cancelOnShutdown() {
+		final CancellationToken token = new CancellationToken();
+		final Thread searchThread = Thread.currentThread();
+		
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			public void run() {
+				token.cancel();
+				
+				try {
+					searchThread.join(SHUTDOWN_WAIT_MILLIS);
+				}
+				catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}));
+		
+		return token;
+	}
+
+	/**
+	 * Solves the templates sent over the given loopback port, or over stdin and stdout if the port is "-", until the JVM is stopped or
+	 * stdin ends.
+	 */
+	private static void serve(Dictionary dictionary, SolutionCache solutionCache, String port, int workers, int queuedRequests) throws IOException {
+		LexikuServer server = new LexikuServer(dictionary, workers, queuedRequests);
+		server.setSolutionCache(solutionCache);
+		server.getStatistics().register("fungoes.lexiku:type=ServerStatistics");
+		
+		if(port.equals("-")) {
+			try {
+				server.serve(System.in, System.out);
+			}
+			finally {
+				server.close();
+			}
+		}
+		else {
+			System.out.println("Listening: " + server.listen(Integer.parseInt(port)));
+		}
+	}
+
+	/**
+	 * Prints the boards of the shard outputs in the order given, followed by the total of their board counts.  Every output must be
+	 * of a shard which ran to the end, and the outputs must be those of every shard of one search, each once and in shard order.
+	 * 
+	 * @param outputs files holding what each shard printed, in shard order
+	 * @throws IOException if an output has no count or shard line, stopped at a checkpoint, a budget or a shutdown, or a shard is
+	 *         missing, repeated, out of order or of another shard count
+	 */
+	public static void mergeShardOutputs(List<String> outputs) throws IOException {
+		BigInteger boardsFound = null;
+		BigInteger boardsCounted = null;
+		
+		for(int i = 0; i < outputs.size(); i++) {
+			String output = outputs.get(i);
+			BufferedReader reader = new BufferedReader(new FileReader(output));
+			boolean counted = false;
+			int[] shardOfShards = null;
+			
+			try {
+				String line;
+				while((line = reader.readLine()) != null) {
+					if(line.startsWith(SHARD)) {
+						int[] shardOfLine = parseShard(line.substring(SHARD.length()));
+						
+						if(shardOfShards != null || shardOfLine == null || shardOfLine[0] != i || shardOfLine[1] != outputs.size()) {
+							throw new IOException("Shard output " + output + " has " + line + " where shard " + i + "/" + outputs.size()
+									+ " was expected, merge the output of every shard once and in shard order");
+						}
+						
+						shardOfShards = shardOfLine;
+					}
+					else if(line.startsWith(BOARDS_FOUND)) {
+						boardsFound = add(boardsFound, line.substring(BOARDS_FOUND.length()));
+						counted = true;
+					}
+					else if(line.startsWith(BOARDS_COUNTED)) {
+						boardsCounted = add(boardsCounted, line.substring(BOARDS_COUNTED.length()));
+						counted = true;
+					}
+					else if(line.startsWith(CHECKPOINT_WRITTEN)) {
+						throw new IOException("Shard output " + output + " stopped at a checkpoint before the end of its search");
+					}
+					else if(line.equals(SEARCH_STOPPED)) {
+						throw new IOException("Shard output " + output + " stopped at a budget or shutdown before the end of its search");
+					}
+					else {
+						System.out.println(line);
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+			
+			if(shardOfShards == null) {
+				throw new IOException("Shard output " + output + " does not say which shard it is, it was not run with --shard");
+			}
+			
+			if(!counted) {
+				throw new IOException("Shard output " + output + " has no board count, the shard did not finish");
+			}
+		}
+		
+		if(boardsCounted != null) {
+			System.out.println(BOARDS_COUNTED + boardsCounted);
+		}
+		
+		if(boardsFound != null) {
+			System.out.println(BOARDS_FOUND + boardsFound);
+		}
+	}
+
+	/**
+	 * Prints the boards of a file written with --output, followed by their count.
+	 * 
+	 * @throws IOException if the file is not a board file of the template and dictionary
+	 */
+	public static void decodeBoards(Dictionary dictionary, Template template, File packed) throws IOException {
+		BoardReader reader = new BoardReader(dictionary, template, packed);
+		long boardsFound = 0;
+		
+		try {
+			while(reader.hasNext()) {
+				printBoard(template, reader.next());
+				boardsFound++;
+			}
+		}
+		finally {
+			reader.close();
+		}
+		
+		System.out.println(BOARDS_FOUND + boardsFound);
+	}
+
+	private static BigInteger add(BigInteger total, String count) {
+		BigInteger boards = new BigInteger(count.trim());
+		return total == null ? boards : total.add(boards);
+	}
+
+	public static void printBoard(Template template, List<String[][]> boards) {
+		for(String[][] board : boards) {
+			printBoard(template, board);
+		}
+	}
+
+	public static synchronized void printBoard(Template template, String[][] board) {
+		StringBuilder text = new StringBuilder((template.getWidth() + 1) * template.getHeight() + 1);
+		
+		for(int y = 0; y < template.getHeight(); y++) {
+			for(int x = 0; x < template.getWidth(); x++) {
+				text.append(board[x][y]);
+			}
+			text.append('\n');
+		}
+		
+		System.out.println(text);
+	}
+
+	private static class PrintingSink implements BoardSink, CanonicalBoardSink {
+		private final Template template;
+		private long boardsFound = 0;
+		private long canonicalBoards = 0;
+		
+		public PrintingSink(Template template) {
+			this.template = template;
+		}
+		
+		public boolean boardFound(String[][] board) {
+			printBoard(template, board);
+			boardsFound++;
+			return true;
+		}
+		
+		public boolean canonicalBoardFound(String[][] board, int orbitSize) {
+			System.out.println(ORBIT_SIZE + orbitSize);
+			printBoard(template, board);
+			boardsFound += orbitSize;
+			canonicalBoards++;
+			return true;
+		}
+	}
+
+}
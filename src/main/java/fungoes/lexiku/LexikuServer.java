@@ -0,0 +1,365 @@
+package fungoes.lexiku;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Solves templates against one dictionary which is loaded once, for callers with many small templates.  Requests are read as lines
+ * from a local socket or from any pair of streams such as stdin and stdout, solved by a fixed number of workers, and answered on the
+ * stream they came from.  Requests beyond the workers wait in a bounded queue, and a request arriving to a full queue is turned away
+ * at once rather than held.
+ * 
+ * A request is a line "count &lt;id&gt;" or "boards &lt;id&gt;", then the rows of the template, then a blank line.  The id is any word
+ * the caller chooses.  Answers of different requests interleave, so every answer line starts with its kind and the id:
+ * 
+ * <pre>
+ * board &lt;id&gt; &lt;row&gt;/&lt;row&gt;/...   one line per board of a boards request, closed tiles "-"
+ * done &lt;id&gt; &lt;boards&gt; &lt;milliseconds&gt;  last line of a request
+ * error &lt;id&gt; &lt;message&gt;                  last line of a request which failed or was turned away
+ * cancelled &lt;id&gt;                          last line of a request stopped before the end, its boards so far sent
+ * </pre>
+ * 
+ * A "stats" line is answered with a "stats" line of the {@link ServerStatistics}, and a "quit" line ends the connection once its
+ * requests are answered.  When the input ends without a "quit", or an answer cannot be written, the caller has gone away and the
+ * requests still running or waiting are cancelled.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public class LexikuServer implements Closeable {
+	private final Dictionary dictionary;
+	private final ThreadPoolExecutor executor;
+	private final ServerStatistics statistics;
+	private final ThreadFactory connectionThreads = connectionThreads();
+	private volatile ServerSocket serverSocket = null;
+	private volatile SolutionCache solutionCache = null;
+
+	/**
+	 * @param dictionary dictionary to solve every template with
+	 * @param workers number of requests solved at the same time
+	 * @param queuedRequests number of requests which may wait for a worker
+	 */
+	public LexikuServer(Dictionary dictionary, int workers, int queuedRequests) {
+		this.dictionary = dictionary;
+		
+		final AtomicInteger workerNumber = new AtomicInteger();
+		executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queuedRequests), new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "lexiku-worker-" + workerNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		
+		statistics = new ServerStatistics(executor);
+	}
+
+	/**
+	 * Connections are mostly waiting on their caller, so they get virtual threads on a JVM which has them.
+	 */
+	private static ThreadFactory connectionThreads() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+		}
+		catch(ReflectiveOperationException e) {
+			return new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "lexiku-connection");
+					thread.setDaemon(true);
+					return thread;
+				}
+			};
+		}
+	}
+
+	/**
+	 * @param solutionCache cache to answer repeated requests from, null (the default) for none
+	 * @see BoardBuilder#setSolutionCache(SolutionCache)
+	 */
+	public void setSolutionCache(SolutionCache solutionCache) {
+		this.solutionCache = solutionCache;
+	}
+
+	public ServerStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Listens for connections on the loopback interface until the server is closed, each connection served as
+	 * {@link #serve(InputStream, OutputStream)} does.
+	 * 
+	 * @param port port to listen on, 0 for any free port
+	 * @return port listened on
+	 * @throws IOException if the port could not be bound
+	 */
+	public int listen(int port) throws IOException {
+		final ServerSocket socket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+		serverSocket = socket;
+		
+		Thread acceptor = new Thread(new Runnable() {
+			public void run() {
+				while(!socket.isClosed()) {
+					try {
+						connectionThreads.newThread(connection(socket.accept())).start();
+					}
+					catch(IOException e) {
+						// closed, or a connection failed before it was accepted
+					}
+				}
+			}
+		}, "lexiku-server");
+		
+		acceptor.start();
+		return socket.getLocalPort();
+	}
+
+	private Runnable connection(final Socket client) {
+		return new Runnable() {
+			public void run() {
+				try {
+					serve(client.getInputStream(), client.getOutputStream());
+				}
+				catch(IOException e) {
+					// the caller went away
+				}
+				finally {
+					try {
+						client.close();
+					}
+					catch(IOException e) {
+						// nothing left to do with it
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Reads requests until the input ends or a "quit" line, and returns once every request read has been answered.  The requests
+	 * still running or waiting when the input ends without a "quit" are cancelled.
+	 * 
+	 * @param input requests
+	 * @param output answers
+	 * @throws IOException if the input could not be read
+	 */
+	public void serve(InputStream input, OutputStream output) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+		Connection connection = new Connection(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+		boolean quit = false;
+		
+		try {
+			String line;
+			while((line = reader.readLine()) != null) {
+				String[] words = line.trim().split("\\s+");
+				
+				if(words[0].isEmpty()) {
+					continue;
+				}
+				else if(words[0].equals("quit")) {
+					quit = true;
+					break;
+				}
+				else if(words[0].equals("stats")) {
+					connection.answer(statisticsLine());
+				}
+				else if((words[0].equals("count") || words[0].equals("boards")) && words.length == 2) {
+					StringBuilder rows = new StringBuilder();
+					
+					while((line = reader.readLine()) != null && !line.trim().isEmpty()) {
+						rows.append(line.trim()).append('\n');
+					}
+					
+					submit(connection, words[0].equals("count"), words[1], rows.toString());
+				}
+				else {
+					connection.answer("error - Unknown request: " + line);
+				}
+			}
+		}
+		finally {
+			if(!quit || Thread.currentThread().isInterrupted()) {
+				connection.cancellation.cancel();
+			}
+			
+			connection.requests.arriveAndAwaitAdvance();
+		}
+	}
+
+	private String statisticsLine() {
+		return String.format(Locale.ROOT, "stats queue=%d active=%d completed=%d rejected=%d failed=%d cancelled=%d meanMillis=%.3f maxMillis=%.3f",
+				statistics.getQueueDepth(), statistics.getActiveRequests(), statistics.getCompletedRequests(), statistics.getRejectedRequests(),
+				statistics.getFailedRequests(), statistics.getCancelledRequests(), statistics.getMeanLatencyMillis(), statistics.getMaxLatencyMillis());
+	}
+
+	private void submit(final Connection connection, final boolean count, final String id, final String rows) {
+		final long received = System.nanoTime();
+		connection.requests.register();
+		
+		try {
+			executor.execute(new Runnable() {
+				public void run() {
+					try {
+						BigInteger boards = solve(connection, count, id, rows);
+						long nanos = System.nanoTime() - received;
+						
+						if(boards == null) {
+							statistics.requestCancelled();
+							connection.answer("cancelled " + id);
+						}
+						else {
+							statistics.requestCompleted(nanos);
+							connection.answer("done " + id + " " + boards + " " + TimeUnit.NANOSECONDS.toMillis(nanos));
+						}
+					}
+					catch(IOException e) {
+						statistics.requestFailed();
+						connection.answer("error " + id + " " + e.getMessage());
+					}
+					catch(RuntimeException e) {
+						statistics.requestFailed();
+						connection.answer("error " + id + " " + e);
+					}
+					finally {
+						connection.requests.arriveAndDeregister();
+					}
+				}
+			});
+		}
+		catch(RejectedExecutionException e) {
+			statistics.requestRejected();
+			connection.answer("error " + id + " Busy, " + executor.getQueue().size() + " requests queued");
+			connection.requests.arriveAndDeregister();
+		}
+	}
+
+	/**
+	 * @return number of boards, null if the request was cancelled before the end
+	 */
+	private BigInteger solve(final Connection connection, boolean count, final String id, String rows) throws IOException {
+		Template template = new Template(new StringReader(rows));
+		BoardBuilder builder = new BoardBuilder();
+		builder.setCancellationToken(connection.cancellation);
+		builder.setSolutionCache(solutionCache);
+		
+		if(count) {
+			try {
+				return builder.count(dictionary, template);
+			}
+			catch(CancellationException e) {
+				return null;
+			}
+		}
+		
+		final long[] boards = new long[1];
+		final boolean[] sent = {true};
+		
+		boolean complete = builder.build(dictionary, template, new BoardSink() {
+			public boolean boardFound(String[][] board) {
+				StringBuilder line = new StringBuilder("board ").append(id).append(' ');
+				
+				for(int y = 0; y < board[0].length; y++) {
+					if(y > 0) {
+						line.append('/');
+					}
+					
+					for(int x = 0; x < board.length; x++) {
+						line.append(board[x][y]);
+					}
+				}
+				
+				boards[0]++;
+				sent[0] = connection.send(line.toString());
+				return sent[0];
+			}
+		});
+		
+		return complete && sent[0] ? BigInteger.valueOf(boards[0]) : null;
+	}
+
+	/**
+	 * Stops listening and lets the requests already taken finish.
+	 */
+	public void close() throws IOException {
+		if(serverSocket != null) {
+			serverSocket.close();
+		}
+		
+		executor.shutdown();
+	}
+
+	/**
+	 * Answers of one caller, written a line at a time by the workers.
+	 */
+	private static class Connection {
+		public final Writer output;
+		public final Phaser requests = new Phaser(1);
+		public final CancellationToken cancellation = new CancellationToken();
+		private boolean closed = false;
+		
+		public Connection(Writer output) {
+			this.output = output;
+		}
+		
+		/**
+		 * @return false if the answers can no longer be written, which cancels the caller's requests
+		 */
+		public synchronized boolean send(String line) {
+			if(closed) {
+				return false;
+			}
+			
+			try {
+				output.write(line);
+				output.write('\n');
+				return true;
+			}
+			catch(IOException e) {
+				close();
+				return false;
+			}
+		}
+		
+		private void close() {
+			closed = true;
+			cancellation.cancel();
+		}
+		
+		/**
+		 * Sends the last line of an answer and flushes everything before it.
+		 */
+		public synchronized void answer(String line) {
+			if(send(line)) {
+				try {
+					output.flush();
+				}
+				catch(IOException e) {
+					close();
+				}
+			}
+		}
+	}
+
+}
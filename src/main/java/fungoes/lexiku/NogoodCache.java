@@ -0,0 +1,70 @@
+package fungoes.lexiku;
+
+/**
+ * Bounded table of partial boards known to have no solutions.  A partial board is keyed by the depth of the search and the trie nodes
+ * reached at a list of cells, which must be all the search below that depth depends on.
+ * 
+ * Each key hashes to one entry of a fixed size table and replaces whatever was there, so the table never grows and recent failures
+ * are the ones remembered.  Keys are compared in full, a hash collision is only a miss.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+class NogoodCache {
+	private final int[][] entries;
+	private final int mask;
+
+	/**
+	 * @param capacity most entries kept, rounded up to a power of two
+	 */
+	NogoodCache(int capacity) {
+		int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		entries = new int[size][];
+		mask = size - 1;
+	}
+
+	/**
+	 * @return whether the nodes at the cells were added for the depth and not replaced since
+	 */
+	boolean contains(int depth, int[] cells, int[] nodes) {
+		int[] entry = entries[bucket(depth, cells, nodes)];
+		
+		if(entry == null || entry[0] != depth) {
+			return false;
+		}
+		
+		for(int i = 0; i < cells.length; i++) {
+			if(entry[i + 1] != nodes[cells[i]]) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+
+	/**
+	 * Remembers that the search has no solutions below the depth while the cells hold these nodes.
+	 */
+	void add(int depth, int[] cells, int[] nodes) {
+		int[] entry = new int[cells.length + 1];
+		entry[0] = depth;
+		
+		for(int i = 0; i < cells.length; i++) {
+			entry[i + 1] = nodes[cells[i]];
+		}
+		
+		entries[bucket(depth, cells, nodes)] = entry;
+	}
+
+	private int bucket(int depth, int[] cells, int[] nodes) {
+		int hash = depth;
+		
+		for(int cell : cells) {
+			hash = hash * 31 + nodes[cell];
+		}
+		
+		hash *= 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+}
@@ -0,0 +1,136 @@
+package fungoes.lexiku;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * {@link PrefixTrie} whose nodes and words stay in a direct or mapped buffer laid out as a {@link DictionaryImage} trie, so the heap
+ * holds a handful of objects per trie whatever the number of words.  Walks read the node tables in place.  Words are unpacked each
+ * time they are asked for and never kept, so {@link #wordAt(int)} allocates a new string on every call, while
+ * {@link #letterAt(int, int)} reads a single letter in place.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+final class OffHeapPrefixTrie extends PrefixTrie {
+	private final CharBuffer letters;
+	private final IntBuffer firstChildren;
+	private final IntBuffer wordRangeStarts;
+	private final ByteBuffer packedWords;
+	private final int bytesPerLetter;
+
+	/**
+	 * @param letters letter of every node
+	 * @param firstChildren first child of every node, then the node count
+	 * @param wordRangeStarts first word below every node
+	 * @param packedWords words one after another, bytesPerLetter bytes a letter
+	 */
+	OffHeapPrefixTrie(int wordLength, int firstWordNode, CharBuffer letters, IntBuffer firstChildren, IntBuffer wordRangeStarts, ByteBuffer packedWords, int bytesPerLetter) {
+		super(wordLength, letters.limit(), firstWordNode);
+		
+		this.letters = letters;
+		this.firstChildren = firstChildren;
+		this.wordRangeStarts = wordRangeStarts;
+		this.packedWords = packedWords;
+		this.bytesPerLetter = bytesPerLetter;
+	}
+
+	@Override
+	public int child(int node, char letter) {
+		if(node == NO_NODE) {
+			return NO_NODE;
+		}
+		
+		int low = firstChildren.get(node);
+		int high = firstChildren.get(node + 1) - 1;
+		
+		while(low <= high) {
+			int middle = (low + high) >>> 1;
+			char middleLetter = letters.get(middle);
+			
+			if(middleLetter < letter) {
+				low = middle + 1;
+			}
+			else if(middleLetter > letter) {
+				high = middle - 1;
+			}
+			else {
+				return middle;
+			}
+		}
+		
+		return NO_NODE;
+	}
+
+	@Override
+	public int firstChild(int node) {
+		return firstChildren.get(node);
+	}
+
+	@Override
+	public int endChild(int node) {
+		return firstChildren.get(node + 1);
+	}
+
+	@Override
+	public int wordRangeStart(int node) {
+		return wordRangeStarts.get(node);
+	}
+
+	@Override
+	public int wordRangeEnd(int node) {
+		int next = node + 1;
+		
+		if(next < nodeCount() && wordRangeStarts.get(next) > wordRangeStarts.get(node)) {
+			return wordRangeStarts.get(next);
+		}
+		
+		return wordCount();
+	}
+
+	@Override
+	public String wordAt(int index) {
+		if(index < 0 || index >= wordCount()) {
+			throw new IndexOutOfBoundsException("No word " + index + " of " + wordCount());
+		}
+		
+		return unpackWord(packedWords, bytesPerLetter, getWordLength(), index);
+	}
+
+	@Override
+	public char letterAt(int index, int offset) {
+		if(index < 0 || index >= wordCount()) {
+			throw new IndexOutOfBoundsException("No word " + index + " of " + wordCount());
+		}
+		
+		return unpackLetter(packedWords, bytesPerLetter, getWordLength(), index, offset);
+	}
+
+	@Override
+	public char letter(int node) {
+		return letters.get(node);
+	}
+
+	@Override
+	char[] letters() {
+		char[] copy = new char[nodeCount()];
+		letters.duplicate().get(copy);
+		return copy;
+	}
+
+	@Override
+	int[] firstChildren() {
+		int[] copy = new int[nodeCount() + 1];
+		firstChildren.duplicate().get(copy);
+		return copy;
+	}
+
+	@Override
+	int[] wordRangeStarts() {
+		int[] copy = new int[nodeCount()];
+		wordRangeStarts.duplicate().get(copy);
+		return copy;
+	}
+
+}
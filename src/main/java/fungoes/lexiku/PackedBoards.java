@@ -0,0 +1,76 @@
+package fungoes.lexiku;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boards kept in memory packed with a {@link BoardEncoding}, a few bytes each rather than a String per tile.  Boards are decoded when
+ * they are read, so a board read twice is two different arrays.  Hand the list to a {@link BoardBuilder} as the sink to keep every
+ * board of a search.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public class PackedBoards extends AbstractList<String[][]> implements BoardSink {
+	private static final int BOARDS_PER_CHUNK = 4096;
+
+	private final BoardEncoding encoding;
+	private final ByteBuffer encoded;
+	private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+	private int size = 0;
+
+	/**
+	 * @param dictionary dictionary the boards are built with
+	 * @param template template of the boards
+	 */
+	public PackedBoards(Dictionary dictionary, Template template) {
+		encoding = new BoardEncoding(dictionary, template);
+		encoded = ByteBuffer.allocate(encoding.bytesPerBoard());
+	}
+
+	public boolean boardFound(String[][] board) {
+		add(board);
+		return true;
+	}
+
+	/**
+	 * The board is encoded before it is stored, so a board which cannot be leaves the list as it was.
+	 * 
+	 * @throws IllegalArgumentException if a horizontal word of the board is not in the dictionary
+	 * @throws IndexOutOfBoundsException if the board is smaller than the template
+	 */
+	@Override
+	public synchronized boolean add(String[][] board) {
+		encoded.clear();
+		encoding.encode(board, encoded);
+		encoded.flip();
+		
+		if(size % BOARDS_PER_CHUNK == 0) {
+			chunks.add(ByteBuffer.allocate(BOARDS_PER_CHUNK * encoding.bytesPerBoard()));
+		}
+		
+		chunks.get(chunks.size() - 1).put(encoded);
+		size++;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public synchronized String[][] get(int index) {
+		if(index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("No board " + index + " of " + size);
+		}
+		
+		ByteBuffer board = chunks.get(index / BOARDS_PER_CHUNK).duplicate();
+		board.position(index % BOARDS_PER_CHUNK * encoding.bytesPerBoard());
+		return encoding.decode(board);
+	}
+
+	@Override
+	public synchronized int size() {
+		return size;
+	}
+
+}
@@ -0,0 +1,106 @@
+package fungoes.lexiku;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Words of one length matching a pattern, see {@link Dictionary#match(String)}.  Nothing is matched up front: the letter bit sets are
+ * intersected 64 words at a time as the words are iterated or counted, and a word is only made into a string when the iterator
+ * reaches it.  Words come in sorted order, which is id order.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public final class PatternMatches implements Iterable<String> {
+	private final PrefixTrie trie;
+	private final long[][][] restrictions;
+	private final int blocks;
+
+	/**
+	 * @param trie words of the pattern's length
+	 * @param restrictions for each position the bit sets of the letters allowed there, null for any letter
+	 */
+	PatternMatches(PrefixTrie trie, long[][][] restrictions) {
+		this.trie = trie;
+		this.restrictions = restrictions;
+		this.blocks = (trie.wordCount() + 63) >>> 6;
+	}
+
+	/**
+	 * @return matching words among the 64 words of the block, one bit each
+	 */
+	private long matchingBlock(int block) {
+		int wordsLeft = trie.wordCount() - (block << 6);
+		long matching = wordsLeft >= 64 ? -1L : (1L << wordsLeft) - 1;
+		
+		for(int position = 0; position < restrictions.length && matching != 0; position++) {
+			if(restrictions[position] != null) {
+				long allowed = 0;
+				
+				for(long[] posting : restrictions[position]) {
+					allowed |= posting[block];
+				}
+				
+				matching &= allowed;
+			}
+		}
+		
+		return matching;
+	}
+
+	/**
+	 * @return number of matching words
+	 */
+	public int count() {
+		int count = 0;
+		
+		for(int block = 0; block < blocks; block++) {
+			count += Long.bitCount(matchingBlock(block));
+		}
+		
+		return count;
+	}
+
+	/**
+	 * @return true if no word matches, found at the first match rather than by counting them all
+	 */
+	public boolean isEmpty() {
+		for(int block = 0; block < blocks; block++) {
+			if(matchingBlock(block) != 0) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+			private int block = -1;
+			private long matching = 0;
+			
+			public boolean hasNext() {
+				while(matching == 0 && block + 1 < blocks) {
+					matching = matchingBlock(++block);
+				}
+				
+				return matching != 0;
+			}
+			
+			public String next() {
+				if(!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				
+				int index = (block << 6) + Long.numberOfTrailingZeros(matching);
+				matching &= matching - 1;
+				return trie.wordAt(index);
+			}
+			
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+}
@@ -0,0 +1,387 @@
+package fungoes.lexiku;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable prefix tree over a sorted list of words which all share the same length.
+ * 
+ * Nodes are numbered breadth first so the children of a node are stored next to each other, ordered by letter.  As a result the
+ * nodes on the deepest level are the words themselves in sorted order.  Node numbers can be kept by callers and a walk resumed later.
+ * 
+ * A trie can also be read back from a {@link DictionaryImage}.  Its words then stay in the mapped image until they are asked for.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public class PrefixTrie {
+	/**
+	 * Returned when a walk leaves the trie.
+	 */
+	public static final int NO_NODE = -1;
+
+	private static final Charset WORD_CHARSET = Charset.forName("ISO-8859-1");
+
+	private final int wordLength;
+	private final int nodeCount;
+	private final int firstWordNode;
+	private final char[] letters;
+	private final int[] firstChildren;
+	private final int[] wordRangeStarts;
+	private final String[] words;
+	private final ByteBuffer packedWords;
+	private final int bytesPerLetter;
+
+	/**
+	 * Builds a trie from the given words.
+	 * 
+	 * @param wordLength length of every word in the list
+	 * @param sortedWords distinct words, sorted, all of the given length
+	 */
+	public PrefixTrie(int wordLength, List<String> sortedWords) {
+		this.wordLength = wordLength;
+		
+		int maxNodes = sortedWords.isEmpty() ? 0 : 1 + sortedWords.size() * wordLength;
+		char[] nodeLetters = new char[maxNodes];
+		int[] nodeFirstChildren = new int[maxNodes + 1];
+		int[] rangeStarts = new int[maxNodes];
+		int[] rangeEnds = new int[maxNodes];
+		int nodeCount = 0;
+		
+		if(maxNodes > 0) {
+			rangeStarts[0] = 0;
+			rangeEnds[0] = sortedWords.size();
+			nodeCount = 1;
+		}
+		
+		int levelEnd = nodeCount;
+		int depth = 0;
+		int wordNodeStart = wordLength == 0 ? 0 : maxNodes;
+		
+		for(int node = 0; node < nodeCount; node++) {
+			if(node == levelEnd) {
+				levelEnd = nodeCount;
+				depth++;
+				
+				if(depth == wordLength) {
+					wordNodeStart = node;
+				}
+			}
+			
+			nodeFirstChildren[node] = nodeCount;
+			
+			if(depth < wordLength) {
+				int start = rangeStarts[node];
+				
+				while(start < rangeEnds[node]) {
+					char letter = sortedWords.get(start).charAt(depth);
+					int end = start + 1;
+					
+					while(end < rangeEnds[node] && sortedWords.get(end).charAt(depth) == letter) {
+						end++;
+					}
+					
+					nodeLetters[nodeCount] = letter;
+					rangeStarts[nodeCount] = start;
+					rangeEnds[nodeCount] = end;
+					nodeCount++;
+					
+					start = end;
+				}
+			}
+		}
+		
+		nodeFirstChildren[nodeCount] = nodeCount;
+		
+		this.nodeCount = nodeCount;
+		letters = Arrays.copyOf(nodeLetters, nodeCount);
+		firstChildren = Arrays.copyOf(nodeFirstChildren, nodeCount + 1);
+		firstWordNode = Math.min(wordNodeStart, nodeCount);
+		wordRangeStarts = Arrays.copyOf(rangeStarts, nodeCount);
+		words = sortedWords.toArray(new String[sortedWords.size()]);
+		packedWords = null;
+		bytesPerLetter = 0;
+	}
+
+	/**
+	 * Uses nodes which were already built, see {@link DictionaryImage}.  Words are read from the packed words, wordLength *
+	 * bytesPerLetter bytes each, when they are first asked for.
+	 */
+	PrefixTrie(int wordLength, int firstWordNode, char[] letters, int[] firstChildren, int[] wordRangeStarts, ByteBuffer packedWords, int bytesPerLetter) {
+		this.wordLength = wordLength;
+		this.nodeCount = letters.length;
+		this.firstWordNode = firstWordNode;
+		this.letters = letters;
+		this.firstChildren = firstChildren;
+		this.wordRangeStarts = wordRangeStarts;
+		this.words = new String[nodeCount - firstWordNode];
+		this.packedWords = packedWords;
+		this.bytesPerLetter = bytesPerLetter;
+	}
+
+	/**
+	 * For a trie which keeps its nodes and words elsewhere, see {@link OffHeapPrefixTrie}, and so overrides every method reading them.
+	 */
+	PrefixTrie(int wordLength, int nodeCount, int firstWordNode) {
+		this.wordLength = wordLength;
+		this.nodeCount = nodeCount;
+		this.firstWordNode = firstWordNode;
+		this.letters = null;
+		this.firstChildren = null;
+		this.wordRangeStarts = null;
+		this.words = null;
+		this.packedWords = null;
+		this.bytesPerLetter = 0;
+	}
+
+	/**
+	 * @return length of the words in this trie
+	 */
+	public int getWordLength() {
+		return wordLength;
+	}
+
+	/**
+	 * @return number of words in this trie
+	 */
+	public int wordCount() {
+		return nodeCount - firstWordNode;
+	}
+
+	/**
+	 * @return total number of nodes, including the root and the word nodes
+	 */
+	public int nodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * @return the root node, or {@link #NO_NODE} if the trie has no words
+	 */
+	public int root() {
+		return nodeCount == 0 ? NO_NODE : 0;
+	}
+
+	/**
+	 * Finds the child of a node for the given letter.
+	 * 
+	 * @param node node to continue from, {@link #NO_NODE} is allowed
+	 * @param letter next letter
+	 * @return child node or {@link #NO_NODE} if no word continues with the letter
+	 */
+	public int child(int node, char letter) {
+		if(node == NO_NODE) {
+			return NO_NODE;
+		}
+		
+		int low = firstChildren[node];
+		int high = firstChildren[node + 1] - 1;
+		
+		while(low <= high) {
+			int middle = (low + high) >>> 1;
+			char middleLetter = letters[middle];
+			
+			if(middleLetter < letter) {
+				low = middle + 1;
+			}
+			else if(middleLetter > letter) {
+				high = middle - 1;
+			}
+			else {
+				return middle;
+			}
+		}
+		
+		return NO_NODE;
+	}
+
+	/**
+	 * Children of a node are numbered from {@link #firstChild(int)} up to, but not including, {@link #endChild(int)} in letter order.
+	 * 
+	 * @param node any node of this trie
+	 * @return first child of the node
+	 */
+	public int firstChild(int node) {
+		return firstChildren[node];
+	}
+
+	/**
+	 * @param node any node of this trie
+	 * @return one past the last child of the node
+	 */
+	public int endChild(int node) {
+		return firstChildren[node + 1];
+	}
+
+	/**
+	 * The words starting with the prefix of a node are {@link #wordAt(int)} from this index up to, but not including,
+	 * {@link #wordRangeEnd(int)}.
+	 * 
+	 * @param node any node of this trie
+	 * @return index of the first word below the node
+	 */
+	public int wordRangeStart(int node) {
+		return wordRangeStarts[node];
+	}
+
+	/**
+	 * @param node any node of this trie
+	 * @return one past the index of the last word below the node
+	 */
+	public int wordRangeEnd(int node) {
+		int next = node + 1;
+		
+		if(next < nodeCount && wordRangeStarts[next] > wordRangeStarts[node]) {
+			return wordRangeStarts[next];
+		}
+		
+		return words.length;
+	}
+
+	/**
+	 * Follows each letter of the sequence starting at the given node.
+	 * 
+	 * @param node node to continue from, {@link #NO_NODE} is allowed
+	 * @param sequence letters to follow
+	 * @return node reached or {@link #NO_NODE} if no word continues with the sequence
+	 */
+	public int walk(int node, CharSequence sequence) {
+		for(int i = 0; i < sequence.length() && node != NO_NODE; i++) {
+			node = child(node, sequence.charAt(i));
+		}
+		
+		return node;
+	}
+
+	/**
+	 * @param node any node of this trie
+	 * @return true if the node is a whole word rather than a prefix
+	 */
+	public boolean isWord(int node) {
+		return node != NO_NODE && node >= firstWordNode;
+	}
+
+	/**
+	 * @param node a node for which {@link #isWord(int)} is true
+	 * @return the word ending at the node
+	 */
+	public String word(int node) {
+		return wordAt(wordIndex(node));
+	}
+
+	/**
+	 * @param node a node for which {@link #isWord(int)} is true
+	 * @return position of the word ending at the node, see {@link #wordAt(int)}
+	 */
+	public int wordIndex(int node) {
+		return node - firstWordNode;
+	}
+
+	/**
+	 * @param index position of the word in sorted order, from 0 to {@link #wordCount()} - 1
+	 * @return the word at the position
+	 */
+	public String wordAt(int index) {
+		String word = words[index];
+		
+		if(word == null) {
+			word = unpackWord(index);
+			words[index] = word;
+		}
+		
+		return word;
+	}
+
+	/**
+	 * Reads one letter of a word without creating the word, so a search can try words of a trie whose words are still packed.
+	 * 
+	 * @param index position of the word in sorted order, from 0 to {@link #wordCount()} - 1
+	 * @param offset position of the letter in the word, from 0 to {@link #getWordLength()} - 1
+	 * @return the letter at the offset of the word at the index
+	 */
+	public char letterAt(int index, int offset) {
+		String word = words[index];
+		return word != null ? word.charAt(offset) : unpackLetter(packedWords, bytesPerLetter, wordLength, index, offset);
+	}
+
+	/**
+	 * @return all words in sorted order, backed by the trie
+	 */
+	public List<String> words() {
+		return new AbstractList<String>() {
+			@Override
+			public String get(int index) {
+				return wordAt(index);
+			}
+			
+			@Override
+			public int size() {
+				return wordCount();
+			}
+		};
+	}
+
+	private String unpackWord(int index) {
+		return unpackWord(packedWords, bytesPerLetter, wordLength, index);
+	}
+
+	/**
+	 * @param packedWords words of the same length one after another, each letter one ISO-8859-1 byte or one char
+	 * @return the word at the index
+	 */
+	static String unpackWord(ByteBuffer packedWords, int bytesPerLetter, int wordLength, int index) {
+		int wordBytes = wordLength * bytesPerLetter;
+		
+		if(bytesPerLetter == 1) {
+			byte[] bytes = new byte[wordBytes];
+			ByteBuffer packed = packedWords.duplicate();
+			packed.position(index * wordBytes);
+			packed.get(bytes);
+			return new String(bytes, WORD_CHARSET);
+		}
+		
+		char[] chars = new char[wordLength];
+		CharBuffer packed = packedWords.asCharBuffer();
+		packed.position(index * wordLength);
+		packed.get(chars);
+		return new String(chars);
+	}
+
+	/**
+	 * @param packedWords words of the same length one after another, each letter one ISO-8859-1 byte or one char
+	 * @return the letter at the offset of the word at the index
+	 */
+	static char unpackLetter(ByteBuffer packedWords, int bytesPerLetter, int wordLength, int index, int offset) {
+		int position = (index * wordLength + offset) * bytesPerLetter;
+		return bytesPerLetter == 1 ? (char) (packedWords.get(position) & 0xFF) : packedWords.getChar(position);
+	}
+
+	/**
+	 * @param node any node of this trie
+	 * @return the letter used to reach the node (undefined for the root)
+	 */
+	public char letter(int node) {
+		return letters[node];
+	}
+
+	char[] letters() {
+		return letters;
+	}
+
+	int[] firstChildren() {
+		return firstChildren;
+	}
+
+	int[] wordRangeStarts() {
+		return wordRangeStarts;
+	}
+
+	int firstWordNode() {
+		return firstWordNode;
+	}
+
+}
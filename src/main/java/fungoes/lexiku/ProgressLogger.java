@@ -0,0 +1,87 @@
+package fungoes.lexiku;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints a line of {@link SearchStatistics} at a fixed period from a background thread, so a long build shows whether it is still
+ * making progress and at which depth candidates are rejected.  Once the statistics have an estimate of the search, see
+ * {@link SearchStatistics#setEstimate(SearchEstimate)}, each line also tells how far along the search is and the time it has left.
+ * Close the logger to stop it.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public class ProgressLogger implements Closeable {
+	private final SearchStatistics statistics;
+	private final PrintStream output;
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * @param statistics counters to report, the same as given to {@link BoardBuilder#setStatistics(SearchStatistics)}
+	 * @param output stream to print to, typically System.err so boards on System.out are kept apart
+	 * @param period time between lines
+	 * @param unit unit of the period
+	 */
+	public ProgressLogger(SearchStatistics statistics, PrintStream output, long period, TimeUnit unit) {
+		this.statistics = statistics;
+		this.output = output;
+		
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "lexiku-progress");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				ProgressLogger.this.output.println(progressLine());
+			}
+		}, period, period, unit);
+	}
+
+	/**
+	 * @return the line printed for the current counters
+	 */
+	String progressLine() {
+		StringBuilder line = new StringBuilder();
+		line.append(String.format(Locale.ROOT, "Progress: %.1f s, %d nodes, %d boards, %.1f boards/s", statistics.getSearchNanos() / 1e9,
+				statistics.getNodes(), statistics.getBoards(), statistics.getBoardsPerSecond()));
+		
+		double estimatedNodes = statistics.getEstimatedNodes();
+		double remaining = statistics.getEstimatedSecondsRemaining();
+		
+		// an estimate of no nodes, from a template which fails at once, has no fraction to show
+		if(estimatedNodes > 0 && remaining >= 0) {
+			line.append(String.format(Locale.ROOT, ", %.1f%% of %.3g estimated nodes, ETA %.0f s", Math.min(100, statistics.getNodes() * 100 / estimatedNodes),
+					estimatedNodes, remaining));
+		}
+		
+		long[] tried = statistics.getCandidatesTried();
+		long[] prefixRejections = statistics.getVerticalPrefixRejections();
+		long[] duplicateRejections = statistics.getDuplicateWordRejections();
+		
+		line.append("; tried/prefix rejected/duplicate rejected by depth:");
+		
+		for(int depth = 0; depth < tried.length && tried[depth] > 0; depth++) {
+			line.append(' ').append(depth).append('=').append(tried[depth]).append('/').append(prefixRejections[depth]).append('/').append(duplicateRejections[depth]);
+		}
+		
+		return line.toString();
+	}
+
+	/**
+	 * Stops printing.
+	 */
+	public void close() {
+		scheduler.shutdownNow();
+	}
+
+}
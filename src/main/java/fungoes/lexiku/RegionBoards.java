@@ -0,0 +1,165 @@
+package fungoes.lexiku;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Boards of a template solved one region at a time, see {@link Template#regions()}.  Every board of the template is one board of each
+ * region laid over each other, so only the boards of the regions are kept and their cartesian product is combined as it is iterated.
+ * 
+ * Combinations which repeat a word across regions against the rules of {@link SearchStrategy#RowOrder} are skipped, so the boards are
+ * those {@link BoardBuilder#build(Dictionary, Template)} finds.  They come in region order, the last region changing fastest.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public final class RegionBoards implements Iterable<String[][]> {
+	private final Template template;
+	private final List<List<String[][]>> boards;
+	private final List<long[][]> occurrences;
+
+	RegionBoards(Template template, List<List<String[][]>> boards, RegionWords words) {
+		this.template = template;
+		this.boards = boards;
+		this.occurrences = new ArrayList<long[][]>(boards.size());
+		
+		for(int region = 0; region < boards.size(); region++) {
+			List<String[][]> regionBoards = boards.get(region);
+			long[][] regionOccurrences = new long[regionBoards.size()][];
+			
+			for(int i = 0; i < regionBoards.size(); i++) {
+				regionOccurrences[i] = words.hasSharedWords(region) ? words.occurrences(region, regionBoards.get(i)) : RegionWords.NO_OCCURRENCES;
+			}
+			
+			occurrences.add(regionOccurrences);
+		}
+	}
+
+	/**
+	 * @return number of regions of the template
+	 */
+	public int regionCount() {
+		return boards.size();
+	}
+
+	/**
+	 * @param region region in the order of {@link Template#regions()}
+	 * @return boards of the region's template, closed tiles and tiles of other regions "-"
+	 */
+	public List<String[][]> regionBoards(int region) {
+		return Collections.unmodifiableList(boards.get(region));
+	}
+
+	/**
+	 * @return iterator over the boards of the whole template, each one built when it is reached
+	 */
+	public Iterator<String[][]> iterator() {
+		return new Combinations();
+	}
+
+	/**
+	 * Walks the product depth first over the regions, so a board of a region which repeats a word of the regions before it is skipped
+	 * along with every combination after it.
+	 */
+	private class Combinations implements Iterator<String[][]> {
+		private final int[] choices = new int[boards.size()];
+		private final long[][] placed = new long[boards.size()][];
+		private int region = 0;
+		private boolean ready = false;
+		
+		public Combinations() {
+			Arrays.fill(choices, -1);
+			
+			for(List<String[][]> regionBoards : boards) {
+				if(regionBoards.isEmpty()) {
+					region = -1;
+				}
+			}
+			
+			if(choices.length == 0) {
+				region = -1;
+			}
+		}
+		
+		public boolean hasNext() {
+			if(!ready && region >= 0) {
+				ready = advance();
+			}
+			
+			return ready;
+		}
+		
+		private boolean advance() {
+			while(region >= 0) {
+				if(++choices[region] == boards.get(region).size()) {
+					choices[region] = -1;
+					region--;
+					continue;
+				}
+				
+				long[] before = region == 0 ? RegionWords.NO_OCCURRENCES : placed[region - 1];
+				long[] words = occurrences.get(region)[choices[region]];
+				
+				if(RegionWords.repeats(before, words)) {
+					continue;
+				}
+				
+				placed[region] = merge(before, words);
+				
+				if(region == boards.size() - 1) {
+					return true;
+				}
+				
+				region++;
+			}
+			
+			return false;
+		}
+		
+		private long[] merge(long[] before, long[] words) {
+			if(before.length == 0 || words.length == 0) {
+				return before.length == 0 ? words : before;
+			}
+			
+			long[] merged = new long[before.length + words.length];
+			System.arraycopy(before, 0, merged, 0, before.length);
+			System.arraycopy(words, 0, merged, before.length, words.length);
+			Arrays.sort(merged);
+			return merged;
+		}
+		
+		public String[][] next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			
+			ready = false;
+			String[][] board = new String[template.getWidth()][template.getHeight()];
+			
+			for(int x = 0; x < template.getWidth(); x++) {
+				for(int y = 0; y < template.getHeight(); y++) {
+					board[x][y] = "-";
+					
+					for(int i = 0; i < choices.length; i++) {
+						String letter = boards.get(i).get(choices[i])[x][y];
+						
+						if(!letter.equals("-")) {
+							board[x][y] = letter;
+						}
+					}
+				}
+			}
+			
+			return board;
+		}
+		
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+}
@@ -0,0 +1,243 @@
+package fungoes.lexiku;
+
+import java.util.Arrays;
+
+/**
+ * The words of one region's board which the words of another region could repeat, see {@link Template#regions()}.  Words of different
+ * regions never cross, but the row order rules of {@link SearchSlots} still reach across them: horizontal words of the same length may
+ * not repeat, and a vertical word may not repeat a horizontal word starting before the one holding its last letter.  Single letter
+ * words never repeat another region's words under these rules, and neither do two vertical words.
+ * 
+ * A word is kept as an occurrence, a long holding its dictionary word id, its length, whether it is vertical, and the index of the
+ * starting point of its horizontal word or of the horizontal word holding its last letter.  Occurrences are sorted, so the occurrences
+ * of a word are next to each other.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+class RegionWords {
+	static final long[] NO_OCCURRENCES = new long[0];
+
+	private static final long VERTICAL = 1L;
+	private static final int INDEX_BITS = 19;
+	private static final int LENGTH_BITS = 12;
+
+	private final Dictionary dictionary;
+	private final SlotGraph graph;
+	private final boolean[][] sharedLengths;
+
+	RegionWords(Dictionary dictionary, Template template) {
+		this.dictionary = dictionary;
+		this.graph = template.slotGraph();
+		
+		int longestSlot = 0;
+		for(int slot = 0; slot < graph.slotCount(); slot++) {
+			longestSlot = Math.max(longestSlot, graph.length(slot));
+		}
+		
+		boolean[][] horizontalLengths = new boolean[graph.regionCount()][longestSlot + 1];
+		boolean[][] verticalLengths = new boolean[graph.regionCount()][longestSlot + 1];
+		
+		for(int slot = 0; slot < graph.slotCount(); slot++) {
+			if(graph.length(slot) > 1) {
+				boolean[][] lengths = graph.isHorizontal(slot) ? horizontalLengths : verticalLengths;
+				lengths[graph.regionOf(slot)][graph.length(slot)] = true;
+			}
+		}
+		
+		sharedLengths = new boolean[graph.regionCount()][longestSlot + 1];
+		
+		for(int region = 0; region < graph.regionCount(); region++) {
+			for(int other = 0; other < graph.regionCount(); other++) {
+				for(int length = 2; other != region && length <= longestSlot; length++) {
+					sharedLengths[region][length] |= horizontalLengths[region][length] && (horizontalLengths[other][length] || verticalLengths[other][length]);
+					sharedLengths[region][length] |= verticalLengths[region][length] && horizontalLengths[other][length];
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return number of regions of the template
+	 */
+	int regionCount() {
+		return graph.regionCount();
+	}
+
+	/**
+	 * @return whether the words of another region could repeat a word of the region, false for the one region of a template without
+	 *         open tiles, which has no words and no regions of its own
+	 */
+	boolean hasSharedWords(int region) {
+		if(region >= sharedLengths.length) {
+			return false;
+		}
+		
+		for(boolean shared : sharedLengths[region]) {
+			if(shared) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+
+	/**
+	 * @param region region the board was solved for
+	 * @param board board of the region's template
+	 * @return sorted occurrences of the words of the board which another region could repeat
+	 */
+	long[] occurrences(int region, String[][] board) {
+		long[] occurrences = new long[graph.slotCount()];
+		int count = 0;
+		
+		for(int slot = 0; slot < graph.slotCount(); slot++) {
+			int length = graph.length(slot);
+			
+			if(graph.regionOf(slot) == region && sharedLengths[region][length]) {
+				StringBuilder word = new StringBuilder(length);
+				
+				for(int i = 0; i < length; i++) {
+					int cell = graph.cell(slot, i);
+					word.append(board[cell % graph.getWidth()][cell / graph.getWidth()]);
+				}
+				
+				int index = graph.horizontalSlotAt(graph.cell(slot, length - 1));
+				long occurrence = (long) dictionary.wordId(word.toString()) << 32 | (long) length << (INDEX_BITS + 1) | (long) index << 1;
+				occurrences[count++] = graph.isHorizontal(slot) ? occurrence : occurrence | VERTICAL;
+			}
+		}
+		
+		occurrences = Arrays.copyOf(occurrences, count);
+		Arrays.sort(occurrences);
+		return occurrences;
+	}
+
+	/**
+	 * @return whether a word of one region's occurrences may not appear with a word of the other's
+	 */
+	static boolean repeats(long[] first, long[] second) {
+		int i = 0;
+		int j = 0;
+		
+		while(i < first.length && j < second.length) {
+			int firstWordId = wordId(first[i]);
+			int secondWordId = wordId(second[j]);
+			
+			if(firstWordId < secondWordId) {
+				i++;
+			}
+			else if(firstWordId > secondWordId) {
+				j++;
+			}
+			else {
+				int firstEnd = i;
+				while(firstEnd < first.length && wordId(first[firstEnd]) == firstWordId) {
+					firstEnd++;
+				}
+				
+				int secondEnd = j;
+				while(secondEnd < second.length && wordId(second[secondEnd]) == secondWordId) {
+					secondEnd++;
+				}
+				
+				for(int x = i; x < firstEnd; x++) {
+					for(int y = j; y < secondEnd; y++) {
+						if(repeats(first[x], second[y])) {
+							return true;
+						}
+					}
+				}
+				
+				i = firstEnd;
+				j = secondEnd;
+			}
+		}
+		
+		return false;
+	}
+
+	private static boolean repeats(long first, long second) {
+		boolean firstVertical = (first & VERTICAL) != 0;
+		boolean secondVertical = (second & VERTICAL) != 0;
+		
+		if(firstVertical == secondVertical) {
+			return !firstVertical;
+		}
+		
+		return firstVertical ? index(second) < index(first) : index(first) < index(second);
+	}
+
+	/**
+	 * Merges the occurrences of two regions, keeping only those which the regions from the given one on could still repeat.
+	 * 
+	 * @param laterRegion first region whose words are yet to be combined, {@link #regionCount()} to keep nothing
+	 * @return sorted occurrences of both
+	 */
+	long[] merge(long[] first, long[] second, int laterRegion) {
+		long[] merged = new long[first.length + second.length];
+		int count = 0;
+		
+		for(long[] occurrences : new long[][] {first, second}) {
+			for(long occurrence : occurrences) {
+				if(isShared(length(occurrence), laterRegion)) {
+					merged[count++] = occurrence;
+				}
+			}
+		}
+		
+		merged = Arrays.copyOf(merged, count);
+		Arrays.sort(merged);
+		return merged;
+	}
+
+	private boolean isShared(int length, int laterRegion) {
+		for(int region = laterRegion; region < sharedLengths.length; region++) {
+			if(sharedLengths[region][length]) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+
+	private static int wordId(long occurrence) {
+		return (int) (occurrence >>> 32);
+	}
+
+	private static int length(long occurrence) {
+		return (int) (occurrence >>> (INDEX_BITS + 1)) & ((1 << LENGTH_BITS) - 1);
+	}
+
+	private static int index(long occurrence) {
+		return (int) (occurrence >>> 1) & ((1 << INDEX_BITS) - 1);
+	}
+
+	/**
+	 * Occurrences as a hash key, for grouping the boards of a region by the words they share with the others.
+	 */
+	static final class Occurrences {
+		private final long[] occurrences;
+		private final int hash;
+		
+		public Occurrences(long[] occurrences) {
+			this.occurrences = occurrences;
+			this.hash = Arrays.hashCode(occurrences);
+		}
+		
+		public long[] get() {
+			return occurrences;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Occurrences && Arrays.equals(occurrences, ((Occurrences) obj).occurrences);
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+package fungoes.lexiku;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Frontier of a stopped row order search: the index of the candidate word at each {@link StartingPoint} depth down to the candidate
+ * to try next, and the used word bit set at that depth.  Every board before the frontier has been found, resuming from it finds the
+ * rest.  The {@link Template#contentHash()} and {@link Dictionary#contentHash()} are kept, so a checkpoint resumed with another
+ * template or dictionary is refused rather than skipping boards of a search it was not written by.
+ * 
+ * Layout, big endian: magic, version, starting point count, template hash and dictionary hash as modified UTF-8, depth count, the
+ * candidate indices, used word count and the used words.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+class SearchCheckpoint {
+	static final int MAGIC = 0x4C584B43;
+	static final int VERSION = 2;
+
+	public final int startingPoints;
+	public final String templateHash;
+	public final String dictionaryHash;
+	public final int[] candidates;
+	public final long[] usedWords;
+
+	SearchCheckpoint(int startingPoints, String templateHash, String dictionaryHash, int[] candidates, long[] usedWords) {
+		this.startingPoints = startingPoints;
+		this.templateHash = templateHash;
+		this.dictionaryHash = dictionaryHash;
+		this.candidates = candidates;
+		this.usedWords = usedWords;
+	}
+
+	/**
+	 * @return whether the checkpoint was written by a search of this template and dictionary
+	 */
+	boolean matches(Dictionary dictionary, Template template) {
+		return startingPoints == template.horizontalStartingPoints().size() && candidates.length <= startingPoints
+				&& templateHash.equals(template.contentHash()) && dictionaryHash.equals(dictionary.contentHash());
+	}
+
+	/**
+	 * @throws IOException if the file is not a checkpoint
+	 */
+	static SearchCheckpoint read(File file) throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		
+		try {
+			if(input.readInt() != MAGIC || input.readInt() != VERSION) {
+				throw new IOException("Not a search checkpoint: " + file);
+			}
+			
+			int startingPoints = input.readInt();
+			String templateHash = input.readUTF();
+			String dictionaryHash = input.readUTF();
+			int[] candidates = new int[input.readInt()];
+			
+			for(int depth = 0; depth < candidates.length; depth++) {
+				candidates[depth] = input.readInt();
+			}
+			
+			long[] usedWords = new long[input.readInt()];
+			
+			for(int i = 0; i < usedWords.length; i++) {
+				usedWords[i] = input.readLong();
+			}
+			
+			return new SearchCheckpoint(startingPoints, templateHash, dictionaryHash, candidates, usedWords);
+		}
+		finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Writes the checkpoint next to the file and moves it into place, so a search stopped while writing leaves the old one intact.
+	 */
+	void write(File file) throws IOException {
+		File written = new File(file.getPath() + ".tmp");
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(written)));
+		
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(startingPoints);
+			output.writeUTF(templateHash);
+			output.writeUTF(dictionaryHash);
+			output.writeInt(candidates.length);
+			
+			for(int candidate : candidates) {
+				output.writeInt(candidate);
+			}
+			
+			output.writeInt(usedWords.length);
+			
+			for(long words : usedWords) {
+				output.writeLong(words);
+			}
+		}
+		finally {
+			output.close();
+		}
+		
+		try {
+			Files.move(written.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(AtomicMoveNotSupportedException e) {
+			Files.move(written.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+}
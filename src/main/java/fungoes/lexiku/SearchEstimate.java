@@ -0,0 +1,65 @@
+package fungoes.lexiku;
+
+/**
+ * Estimated size of a row order search, the average of random probes from the first {@link StartingPoint} to a dead end or a board.
+ * A probe picks one fitting candidate at random at each depth and takes the number of fitting candidates there as the number of
+ * siblings of every node it passes, so the nodes at a depth are estimated as the product of the fitting candidate counts above it.
+ * The average is unbiased, but a search tree with a few very large subtrees needs many probes before the estimate settles.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public class SearchEstimate {
+	private final int probes;
+	private final double nodes;
+	private final double boards;
+	private final double candidatesTried;
+	private final double nanos;
+	private final int parallelism;
+
+	SearchEstimate(int probes, double nodes, double boards, double candidatesTried, double nanos, int parallelism) {
+		this.probes = probes;
+		this.nodes = nodes;
+		this.boards = boards;
+		this.candidatesTried = candidatesTried;
+		this.nanos = nanos;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @return number of probes averaged
+	 */
+	public int getProbes() {
+		return probes;
+	}
+
+	/**
+	 * @return estimated words placed into a partial board, comparable to {@link SearchStatistics#getNodes()}
+	 */
+	public double getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return estimated number of boards
+	 */
+	public double getBoards() {
+		return boards;
+	}
+
+	/**
+	 * @return estimated candidate words tried
+	 */
+	public double getCandidatesTried() {
+		return candidatesTried;
+	}
+
+	/**
+	 * @return estimated wall clock time of the search, from the time the probes took per candidate tried at each depth, shared evenly
+	 *         by the builder's workers
+	 */
+	public double getSeconds() {
+		return nanos / 1e9 / parallelism;
+	}
+
+}
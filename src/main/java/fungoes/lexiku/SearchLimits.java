@@ -0,0 +1,56 @@
+package fungoes.lexiku;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node and time budgets and the cancellation token of one search, shared by all of its threads.  Every node the search visits asks
+ * first.  The clock is only read every few nodes.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+class SearchLimits {
+	private static final int NODES_PER_CLOCK_CHECK = 256;
+
+	private final long nodeBudget;
+	private final long timeBudgetNanos;
+	private final CancellationToken token;
+	private final long started = System.nanoTime();
+	private final AtomicLong nodes = new AtomicLong();
+	private volatile boolean reached = false;
+
+	/**
+	 * @param nodeBudget most nodes to visit
+	 * @param timeBudgetNanos longest time to search from now
+	 * @param token token to check, may be null
+	 */
+	SearchLimits(long nodeBudget, long timeBudgetNanos, CancellationToken token) {
+		this.nodeBudget = nodeBudget;
+		this.timeBudgetNanos = timeBudgetNanos;
+		this.token = token;
+	}
+
+	/**
+	 * Counts a node about to be visited.
+	 * 
+	 * @return false if a budget is spent or the search was cancelled, in which case the node must not be visited
+	 */
+	boolean allowsNode() {
+		long visited = nodes.incrementAndGet();
+		
+		if(visited > nodeBudget || (token != null && token.isCancelled())
+				|| (visited % NODES_PER_CLOCK_CHECK == 0 && System.nanoTime() - started >= timeBudgetNanos)) {
+			reached = true;
+		}
+		
+		return !reached;
+	}
+
+	/**
+	 * @return whether a node was refused
+	 */
+	boolean isReached() {
+		return reached;
+	}
+
+}
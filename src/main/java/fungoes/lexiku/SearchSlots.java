@@ -0,0 +1,84 @@
+package fungoes.lexiku;
+
+/**
+ * The slots of a {@link SlotGraph} which a slot based search fills, and the row order rules for repeated words between them.
+ * 
+ * The rules are those of {@link SearchStrategy#RowOrder}, so every strategy finds the same boards: horizontal words may not repeat, and
+ * a vertical word may not repeat the horizontal word holding its last letter or any horizontal word before that one.  A single letter
+ * vertical word on the first row is never checked, so it is not a slot.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+class SearchSlots {
+	public final int slotCount;
+	public final boolean[] horizontal;
+	public final int[] rowOrder;
+	public final int[][] cells;
+	public final int[][] crossingSlots;
+	public final int[][] crossingOffsets;
+	public final PrefixTrie[] tries;
+
+	public SearchSlots(Dictionary dictionary, SlotGraph graph) {
+		int[] searchSlots = new int[graph.slotCount()];
+		int searchSlotCount = 0;
+		
+		for(int graphSlot = 0; graphSlot < graph.slotCount(); graphSlot++) {
+			int lastCell = graph.cell(graphSlot, graph.length(graphSlot) - 1);
+			searchSlots[graphSlot] = graph.isHorizontal(graphSlot) || lastCell >= graph.getWidth() ? searchSlotCount++ : SlotGraph.NO_SLOT;
+		}
+		
+		slotCount = searchSlotCount;
+		horizontal = new boolean[slotCount];
+		rowOrder = new int[slotCount];
+		cells = new int[slotCount][];
+		crossingSlots = new int[slotCount][];
+		crossingOffsets = new int[slotCount][];
+		tries = new PrefixTrie[slotCount];
+		
+		for(int graphSlot = 0; graphSlot < graph.slotCount(); graphSlot++) {
+			int slot = searchSlots[graphSlot];
+			
+			if(slot != SlotGraph.NO_SLOT) {
+				int length = graph.length(graphSlot);
+				
+				horizontal[slot] = graph.isHorizontal(graphSlot);
+				rowOrder[slot] = graph.horizontalSlotAt(graph.cell(graphSlot, length - 1));
+				tries[slot] = dictionary.prefixTrie(length);
+				cells[slot] = new int[length];
+				crossingSlots[slot] = new int[length];
+				crossingOffsets[slot] = new int[length];
+				
+				for(int i = 0; i < length; i++) {
+					cells[slot][i] = graph.cell(graphSlot, i);
+					crossingSlots[slot][i] = searchSlots[graph.crossingSlot(graphSlot, i)];
+					crossingOffsets[slot][i] = graph.crossingOffset(graphSlot, i);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return whether the two slots may not hold the same word
+	 */
+	public boolean mustDiffer(int slot, int other) {
+		if(cells[slot].length != cells[other].length) {
+			return false;
+		}
+		
+		boolean singleLetter = cells[slot].length == 1;
+		
+		if(horizontal[slot] && horizontal[other]) {
+			return !singleLetter;
+		}
+		else if(horizontal[slot] != horizontal[other]) {
+			int horizontalRow = horizontal[slot] ? rowOrder[slot] : rowOrder[other];
+			int verticalEndRow = horizontal[slot] ? rowOrder[other] : rowOrder[slot];
+			
+			return horizontalRow == verticalEndRow || (!singleLetter && horizontalRow < verticalEndRow);
+		}
+		
+		return false;
+	}
+
+}
@@ -0,0 +1,189 @@
+package fungoes.lexiku;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters collected by a {@link BoardBuilder} while it searches.  Counters add up over every build the statistics are used for and
+ * may be read while a build is running, for example through JMX after {@link #register(String)} or with a {@link ProgressLogger}.
+ * 
+ * Candidates are counted per depth, which is the index of the {@link StartingPoint} being filled for a row order search and the
+ * number of words already placed for the other strategies.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public class SearchStatistics implements SearchStatisticsMXBean {
+	private final LongAdder nodes = new LongAdder();
+	private final LongAdder boards = new LongAdder();
+	private final LongAdder backjumps = new LongAdder();
+	private final LongAdder nogoodHits = new LongAdder();
+	private volatile LongAdder[] candidatesTried = new LongAdder[0];
+	private volatile LongAdder[] verticalPrefixRejections = new LongAdder[0];
+	private volatile LongAdder[] duplicateWordRejections = new LongAdder[0];
+	private volatile double estimatedNodes = 0;
+
+	private int runningSearches = 0;
+	private long searchStarted;
+	private long searchNanos = 0;
+
+	/**
+	 * Makes room for the depths of a search and starts its clock.  Every call is followed by {@link #searchEnded()}.
+	 */
+	synchronized void searchStarted(int depths) {
+		if(depths > candidatesTried.length) {
+			candidatesTried = grow(candidatesTried, depths);
+			verticalPrefixRejections = grow(verticalPrefixRejections, depths);
+			duplicateWordRejections = grow(duplicateWordRejections, depths);
+		}
+		
+		if(runningSearches++ == 0) {
+			searchStarted = System.nanoTime();
+		}
+	}
+
+	synchronized void searchEnded() {
+		if(--runningSearches == 0) {
+			searchNanos += System.nanoTime() - searchStarted;
+		}
+	}
+
+	private static LongAdder[] grow(LongAdder[] counters, int depths) {
+		LongAdder[] grown = Arrays.copyOf(counters, depths);
+		
+		for(int depth = counters.length; depth < depths; depth++) {
+			grown[depth] = new LongAdder();
+		}
+		
+		return grown;
+	}
+
+	/**
+	 * Adds candidates tried at a depth, split by outcome: placed, or rejected for either reason.
+	 */
+	void candidatesTried(int depth, long placed, long prefixRejected, long duplicateRejected) {
+		candidatesTried[depth].add(placed + prefixRejected + duplicateRejected);
+		
+		if(prefixRejected != 0) {
+			verticalPrefixRejections[depth].add(prefixRejected);
+		}
+		
+		if(duplicateRejected != 0) {
+			duplicateWordRejections[depth].add(duplicateRejected);
+		}
+	}
+
+	void nodeVisited() {
+		nodes.increment();
+	}
+
+	void boardFound() {
+		boards.increment();
+	}
+
+	void backjump() {
+		backjumps.increment();
+	}
+
+	void nogoodHit() {
+		nogoodHits.increment();
+	}
+
+	/**
+	 * Sets the estimated size of the search these statistics are collected for, from which the time remaining is reported while it
+	 * runs.
+	 * 
+	 * @param estimate estimate from {@link BoardBuilder#estimate(Dictionary, Template, int, long)} of the same search
+	 */
+	public void setEstimate(SearchEstimate estimate) {
+		estimatedNodes = estimate.getNodes();
+	}
+
+	/**
+	 * Registers these statistics with the platform MBean server.
+	 * 
+	 * @param name name to register under, such as "fungoes.lexiku:type=SearchStatistics"
+	 * @throws IllegalArgumentException if the name is invalid or already registered
+	 */
+	public void register(String name) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+		}
+		catch(JMException e) {
+			throw new IllegalArgumentException("Cannot register search statistics as " + name, e);
+		}
+	}
+
+	/**
+	 * @return number of words placed into a partial board
+	 */
+	public long getNodes() {
+		return nodes.sum();
+	}
+
+	/**
+	 * @return number of completed boards
+	 */
+	public long getBoards() {
+		return boards.sum();
+	}
+
+	public long getBackjumps() {
+		return backjumps.sum();
+	}
+
+	public long getNogoodHits() {
+		return nogoodHits.sum();
+	}
+
+	public double getBoardsPerSecond() {
+		long nanos = getSearchNanos();
+		return nanos == 0 ? 0 : getBoards() * 1e9 / nanos;
+	}
+
+	public synchronized long getSearchNanos() {
+		return runningSearches == 0 ? searchNanos : searchNanos + System.nanoTime() - searchStarted;
+	}
+
+	public double getEstimatedNodes() {
+		return estimatedNodes;
+	}
+
+	public double getEstimatedSecondsRemaining() {
+		long nodes = getNodes();
+		long nanos = getSearchNanos();
+		
+		if(!(estimatedNodes > 0) || nodes == 0 || nanos == 0) {
+			return -1;
+		}
+		
+		return Math.max(0, estimatedNodes - nodes) * nanos / 1e9 / nodes;
+	}
+
+	public long[] getCandidatesTried() {
+		return sums(candidatesTried);
+	}
+
+	public long[] getVerticalPrefixRejections() {
+		return sums(verticalPrefixRejections);
+	}
+
+	public long[] getDuplicateWordRejections() {
+		return sums(duplicateWordRejections);
+	}
+
+	private static long[] sums(LongAdder[] counters) {
+		long[] sums = new long[counters.length];
+		
+		for(int depth = 0; depth < counters.length; depth++) {
+			sums[depth] = counters[depth].sum();
+		}
+		
+		return sums;
+	}
+
+}
@@ -0,0 +1,66 @@
+package fungoes.lexiku;
+
+/**
+ * Management view of {@link SearchStatistics}.  Per depth counters are indexed by depth, the first {@link StartingPoint} being depth 0.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public interface SearchStatisticsMXBean {
+
+	/**
+	 * @return number of words placed into a partial board
+	 */
+	long getNodes();
+
+	/**
+	 * @return number of completed boards
+	 */
+	long getBoards();
+
+	/**
+	 * @return number of times a {@link SearchStrategy#Backjumping} search left a starting point without trying its remaining candidates
+	 */
+	long getBackjumps();
+
+	/**
+	 * @return number of partial boards a {@link SearchStrategy#Backjumping} search skipped because they were known to fail
+	 */
+	long getNogoodHits();
+
+	/**
+	 * @return completed boards per second of searching
+	 */
+	double getBoardsPerSecond();
+
+	/**
+	 * @return nanoseconds spent searching, including a search still running
+	 */
+	long getSearchNanos();
+
+	/**
+	 * @return estimated words placed by the whole search, 0 if no estimate was set
+	 */
+	double getEstimatedNodes();
+
+	/**
+	 * @return seconds until the estimated nodes are reached at the rate of nodes so far, -1 until it can be told
+	 */
+	double getEstimatedSecondsRemaining();
+
+	/**
+	 * @return candidate words tried at each depth
+	 */
+	long[] getCandidatesTried();
+
+	/**
+	 * @return candidates at each depth which left the prefix of a vertical word with no words
+	 */
+	long[] getVerticalPrefixRejections();
+
+	/**
+	 * @return candidates at each depth which would repeat a word already on the board
+	 */
+	long[] getDuplicateWordRejections();
+
+}
@@ -0,0 +1,32 @@
+package fungoes.lexiku;
+
+/**
+ * Order in which a {@link BoardBuilder} fills the words of a template.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public enum SearchStrategy {
+	/**
+	 * Horizontal words are filled left to right, top to bottom.  Vertical words are only checked as prefixes.
+	 */
+	RowOrder,
+
+	/**
+	 * Horizontal and vertical words are both filled, always choosing the word with the fewest remaining candidates next.
+	 */
+	MostConstrainedFirst,
+
+	/**
+	 * Like {@link #MostConstrainedFirst}, but every word placed is propagated to the whole board, dropping the candidates of other
+	 * words whose letters can no longer cross.  Costs more per word and visits far fewer dead ends.  A dictionary with more than 32
+	 * different letters is searched as {@link #MostConstrainedFirst}.
+	 */
+	ArcConsistency,
+
+	/**
+	 * Same order as {@link #RowOrder}, but a starting point left without candidates jumps straight back to the latest starting point
+	 * that caused its failures, and partial boards known to fail are remembered in a bounded cache and not searched again.
+	 */
+	Backjumping;
+}
@@ -0,0 +1,103 @@
+package fungoes.lexiku;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters of the requests a {@link LexikuServer} has taken, read while it runs through JMX after {@link #register(String)}, or with
+ * the server's stats request.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public class ServerStatistics implements ServerStatisticsMXBean {
+	private final ThreadPoolExecutor executor;
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder cancelled = new LongAdder();
+	private final LongAdder latencyNanos = new LongAdder();
+	private final LongAccumulator maxLatencyNanos = new LongAccumulator(new LongBinaryOperator() {
+		public long applyAsLong(long left, long right) {
+			return Math.max(left, right);
+		}
+	}, 0);
+
+	ServerStatistics(ThreadPoolExecutor executor) {
+		this.executor = executor;
+	}
+
+	void requestCompleted(long nanos) {
+		completed.increment();
+		latencyNanos.add(nanos);
+		maxLatencyNanos.accumulate(nanos);
+	}
+
+	void requestRejected() {
+		rejected.increment();
+		failed.increment();
+	}
+
+	void requestFailed() {
+		failed.increment();
+	}
+
+	void requestCancelled() {
+		cancelled.increment();
+	}
+
+	/**
+	 * Registers these statistics with the platform MBean server.
+	 * 
+	 * @param name name to register under, such as "fungoes.lexiku:type=ServerStatistics"
+	 * @throws IllegalArgumentException if the name is invalid or already registered
+	 */
+	public void register(String name) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+		}
+		catch(JMException e) {
+			throw new IllegalArgumentException("Cannot register server statistics as " + name, e);
+		}
+	}
+
+	public int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+	public int getActiveRequests() {
+		return executor.getActiveCount();
+	}
+
+	public long getCompletedRequests() {
+		return completed.sum();
+	}
+
+	public long getRejectedRequests() {
+		return rejected.sum();
+	}
+
+	public long getFailedRequests() {
+		return failed.sum();
+	}
+
+	public long getCancelledRequests() {
+		return cancelled.sum();
+	}
+
+	public double getMeanLatencyMillis() {
+		long requests = completed.sum();
+		return requests == 0 ? 0 : latencyNanos.sum() / 1e6 / requests;
+	}
+
+	public double getMaxLatencyMillis() {
+		return maxLatencyNanos.get() / 1e6;
+	}
+
+}
@@ -0,0 +1,52 @@
+package fungoes.lexiku;
+
+/**
+ * Management view of the requests of a {@link LexikuServer}.  Latencies run from the time a request is read to the time its last line
+ * is written, so they include the time spent waiting in the queue.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public interface ServerStatisticsMXBean {
+
+	/**
+	 * @return number of requests waiting for a worker
+	 */
+	int getQueueDepth();
+
+	/**
+	 * @return number of requests being solved
+	 */
+	int getActiveRequests();
+
+	/**
+	 * @return number of requests answered with their boards or count
+	 */
+	long getCompletedRequests();
+
+	/**
+	 * @return number of requests turned away because the queue was full
+	 */
+	long getRejectedRequests();
+
+	/**
+	 * @return number of requests answered with an error, including those turned away
+	 */
+	long getFailedRequests();
+
+	/**
+	 * @return number of requests stopped before the end because their caller went away
+	 */
+	long getCancelledRequests();
+
+	/**
+	 * @return mean latency of the completed requests in milliseconds
+	 */
+	double getMeanLatencyMillis();
+
+	/**
+	 * @return longest latency of a completed request in milliseconds
+	 */
+	double getMaxLatencyMillis();
+
+}
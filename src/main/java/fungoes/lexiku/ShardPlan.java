@@ -0,0 +1,126 @@
+package fungoes.lexiku;
+
+import java.util.List;
+
+/**
+ * The part of a row order search one shard of several runs.  The fitting candidates of the first starting points, the prefixes, are
+ * listed in search order with an estimate of the size of the search below each.  Every shard gets one run of consecutive prefixes,
+ * the runs cut where the running total of the estimates crosses each multiple of the total over the number of shards.  The plan only
+ * depends on the dictionary, template and shard numbers, so shards in different processes agree on it without talking to each other.
+ * 
+ * A shard searches the candidate index tuples from the first prefix of its run up to, but not including, the first prefix of the next
+ * shard's run.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+class ShardPlan {
+	/**
+	 * Number of starting points the prefixes cover.
+	 */
+	public final int depth;
+
+	/**
+	 * Candidate indices of the first prefix searched, null to start at the beginning.
+	 */
+	public final int[] start;
+
+	/**
+	 * Candidate indices of the first prefix no longer searched, null to search to the end.
+	 */
+	public final int[] end;
+
+	/**
+	 * True if the shard has no prefixes to search.
+	 */
+	public final boolean empty;
+
+	private ShardPlan(int depth, int[] start, int[] end, boolean empty) {
+		this.depth = depth;
+		this.start = start;
+		this.end = end;
+		this.empty = empty;
+	}
+
+	/**
+	 * @param depth number of starting points the prefixes cover
+	 * @param prefixes candidate indices of every fitting prefix in search order
+	 * @param weights estimated size of the search below each prefix, all zero to weigh them equally
+	 * @param shard shard to plan, from 0
+	 * @param shards number of shards
+	 */
+	static ShardPlan plan(int depth, List<int[]> prefixes, double[] weights, int shard, int shards) {
+		double total = 0;
+		
+		for(double weight : weights) {
+			total += weight;
+		}
+		
+		int first = prefixes.size();
+		int end = prefixes.size();
+		double before = 0;
+		
+		for(int i = 0; i < prefixes.size(); i++) {
+			double weight = total > 0 ? weights[i] : 1;
+			double middle = (before + weight / 2) / (total > 0 ? total : prefixes.size());
+			int prefixShard = Math.min(shards - 1, (int) (middle * shards));
+			before += weight;
+			
+			if(prefixShard == shard && first == prefixes.size()) {
+				first = i;
+			}
+			else if(prefixShard > shard) {
+				end = i;
+				break;
+			}
+		}
+		
+		if(first == prefixes.size()) {
+			return new ShardPlan(depth, null, null, true);
+		}
+		
+		int[] startPrefix = shard == 0 ? null : prefixes.get(first);
+		int[] endPrefix = end == prefixes.size() ? null : prefixes.get(end);
+		
+		return new ShardPlan(depth, startPrefix, endPrefix, false);
+	}
+
+	/**
+	 * Plan of a search without prefixes, which only the first shard runs.
+	 */
+	static ShardPlan whole(int shard) {
+		return new ShardPlan(0, null, null, shard != 0);
+	}
+
+	/**
+	 * @param placed candidate indices placed at the depths before this one
+	 * @return first candidate index to try at the depth
+	 */
+	int firstCandidate(int[] placed, int depth) {
+		return start != null && startsWith(placed, start, depth) ? start[depth] : 0;
+	}
+
+	/**
+	 * @param placed candidate indices placed at the depths before this one
+	 * @param candidates number of candidates at the depth
+	 * @return one past the last candidate index to try at the depth
+	 */
+	int endCandidate(int[] placed, int depth, int candidates) {
+		if(end == null || !startsWith(placed, end, depth)) {
+			return candidates;
+		}
+		
+		return depth == this.depth - 1 ? end[depth] : end[depth] + 1;
+	}
+
+	private static boolean startsWith(int[] placed, int[] bound, int depth) {
+		for(int i = 0; i < depth; i++) {
+			if(placed[i] != bound[i]) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+
+}
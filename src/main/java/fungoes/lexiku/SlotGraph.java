@@ -0,0 +1,234 @@
+package fungoes.lexiku;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable graph of the word slots of a {@link Template} and the cells where they cross, built once per template.  Every horizontal
+ * and vertical run of open tiles is a slot, single letter runs included.  Horizontal slots come first in the order of
+ * {@link Template#horizontalStartingPoints()}, then vertical slots column by column, left to right and top to bottom.
+ * 
+ * Cells are numbered row by row, x + y * width.  Everything is kept in flat int arrays, the letters of all slots one after another, so
+ * a search can walk the graph without object lookups.
+ * 
+ * Slots which are connected through crossings form a region.  The words of different regions never cross, so each region can be
+ * solved on its own.  Regions are numbered in the order of their first slot.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public final class SlotGraph {
+	public static final int NO_SLOT = -1;
+
+	private final int width;
+	private final int height;
+	private final int horizontalSlotCount;
+	private final int[] slotStarts;
+	private final int[] slotCells;
+	private final int[] crossingSlots;
+	private final int[] crossingOffsets;
+	private final int[] horizontalSlots;
+	private final int[] verticalSlots;
+	private final int[] slotRegions;
+	private final int regionCount;
+
+	SlotGraph(Template template) {
+		width = template.getWidth();
+		height = template.getHeight();
+		
+		List<StartingPoint> startingPoints = template.horizontalStartingPoints();
+		horizontalSlotCount = startingPoints.size();
+		
+		int slots = horizontalSlotCount;
+		int letters = 0;
+		
+		for(StartingPoint sPoint : startingPoints) {
+			letters += sPoint.length;
+		}
+		
+		for(int x = 0; x < width; x++) {
+			for(int y = 0; y < height; y++) {
+				if(template.checkTile(x, y) == TileType.Open) {
+					letters++;
+					
+					if(y == 0 || template.checkTile(x, y - 1) != TileType.Open) {
+						slots++;
+					}
+				}
+			}
+		}
+		
+		slotStarts = new int[slots + 1];
+		slotCells = new int[letters];
+		crossingSlots = new int[letters];
+		crossingOffsets = new int[letters];
+		horizontalSlots = new int[width * height];
+		verticalSlots = new int[width * height];
+		Arrays.fill(horizontalSlots, NO_SLOT);
+		Arrays.fill(verticalSlots, NO_SLOT);
+		
+		int slot = 0;
+		int letter = 0;
+		
+		for(StartingPoint sPoint : startingPoints) {
+			slotStarts[slot] = letter;
+			
+			for(int i = 0; i < sPoint.length; i++) {
+				slotCells[letter++] = sPoint.x + i + sPoint.y * width;
+				horizontalSlots[sPoint.x + i + sPoint.y * width] = slot;
+			}
+			
+			slot++;
+		}
+		
+		for(int x = 0; x < width; x++) {
+			for(int y = 0; y < height; y++) {
+				if(template.checkTile(x, y) == TileType.Open) {
+					if(y == 0 || template.checkTile(x, y - 1) != TileType.Open) {
+						slotStarts[slot++] = letter;
+					}
+					
+					slotCells[letter++] = x + y * width;
+					verticalSlots[x + y * width] = slot - 1;
+				}
+			}
+		}
+		
+		slotStarts[slots] = letter;
+		
+		for(slot = 0; slot < slots; slot++) {
+			for(letter = slotStarts[slot]; letter < slotStarts[slot + 1]; letter++) {
+				int cell = slotCells[letter];
+				int crossingSlot = isHorizontal(slot) ? verticalSlots[cell] : horizontalSlots[cell];
+				
+				crossingSlots[letter] = crossingSlot;
+				crossingOffsets[letter] = offsetOf(crossingSlot, cell);
+			}
+		}
+		
+		slotRegions = new int[slots];
+		Arrays.fill(slotRegions, NO_SLOT);
+		int regions = 0;
+		
+		for(int first = 0; first < slots; first++) {
+			if(slotRegions[first] == NO_SLOT) {
+				markRegion(first, regions++);
+			}
+		}
+		
+		regionCount = regions;
+	}
+
+	private void markRegion(int first, int region) {
+		int[] stack = new int[slotCount()];
+		int size = 0;
+		
+		stack[size++] = first;
+		slotRegions[first] = region;
+		
+		while(size > 0) {
+			int slot = stack[--size];
+			
+			for(int letter = slotStarts[slot]; letter < slotStarts[slot + 1]; letter++) {
+				if(slotRegions[crossingSlots[letter]] == NO_SLOT) {
+					slotRegions[crossingSlots[letter]] = region;
+					stack[size++] = crossingSlots[letter];
+				}
+			}
+		}
+	}
+
+	private int offsetOf(int slot, int cell) {
+		int first = slotCells[slotStarts[slot]];
+		return isHorizontal(slot) ? cell - first : (cell - first) / width;
+	}
+
+	/**
+	 * @return width of the template
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return number of cells of the template, open or closed
+	 */
+	public int cellCount() {
+		return width * height;
+	}
+
+	/**
+	 * @return number of horizontal and vertical slots
+	 */
+	public int slotCount() {
+		return slotStarts.length - 1;
+	}
+
+	/**
+	 * @return number of horizontal slots, which are numbered before the vertical ones
+	 */
+	public int horizontalSlotCount() {
+		return horizontalSlotCount;
+	}
+
+	public boolean isHorizontal(int slot) {
+		return slot < horizontalSlotCount;
+	}
+
+	/**
+	 * @return number of letters in the slot
+	 */
+	public int length(int slot) {
+		return slotStarts[slot + 1] - slotStarts[slot];
+	}
+
+	/**
+	 * @return cell of the letter at the offset in the slot
+	 */
+	public int cell(int slot, int offset) {
+		return slotCells[slotStarts[slot] + offset];
+	}
+
+	/**
+	 * @return slot crossing the slot at the offset, the vertical slot of a horizontal slot's letter and the other way round
+	 */
+	public int crossingSlot(int slot, int offset) {
+		return crossingSlots[slotStarts[slot] + offset];
+	}
+
+	/**
+	 * @return offset of the same cell in the crossing slot
+	 */
+	public int crossingOffset(int slot, int offset) {
+		return crossingOffsets[slotStarts[slot] + offset];
+	}
+
+	/**
+	 * @return number of regions of connected slots
+	 */
+	public int regionCount() {
+		return regionCount;
+	}
+
+	/**
+	 * @return region of the slot
+	 */
+	public int regionOf(int slot) {
+		return slotRegions[slot];
+	}
+
+	/**
+	 * @return horizontal slot covering the cell, or {@link #NO_SLOT} for a closed cell
+	 */
+	public int horizontalSlotAt(int cell) {
+		return horizontalSlots[cell];
+	}
+
+	/**
+	 * @return vertical slot covering the cell, or {@link #NO_SLOT} for a closed cell
+	 */
+	public int verticalSlotAt(int cell) {
+		return verticalSlots[cell];
+	}
+
+}
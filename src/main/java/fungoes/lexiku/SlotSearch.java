@@ -0,0 +1,273 @@
+package fungoes.lexiku;
+
+import java.util.Arrays;
+
+/**
+ * Search which treats every horizontal and vertical word of a template as a slot to fill.  At each step the open slot with the fewest
+ * candidate words is filled next, ties going to the slot crossing the most open slots.
+ * 
+ * The boards found are the same as with {@link SearchStrategy#RowOrder}, only the order differs.  The slots and the rules for
+ * repeated words are those of {@link SearchSlots}.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+class SlotSearch {
+	private static final char EMPTY = 0;
+
+	private final Template template;
+	private final BoardSink sink;
+	private final SearchStatistics statistics;
+	private final SearchLimits limits;
+	private final int width;
+
+	private final SearchSlots slots;
+	private final int slotCount;
+	private final int[][] slotCells;
+	private final int[][] crossingSlots;
+	private final PrefixTrie[] tries;
+
+	private final char[] letters;
+	private final int[] cellFills;
+	private final int[] words;
+	private boolean stopped = false;
+
+	/**
+	 * @param dictionary word list to build boards with
+	 * @param template template of all solved boards
+	 * @param sink receives every board until it asks to stop
+	 * @param statistics counters to update, may be null
+	 * @param limits budgets and cancellation to stop at, may be null
+	 */
+	public SlotSearch(Dictionary dictionary, Template template, BoardSink sink, SearchStatistics statistics, SearchLimits limits) {
+		this.template = template;
+		this.sink = sink;
+		this.statistics = statistics;
+		this.limits = limits;
+		this.width = template.getWidth();
+		
+		slots = new SearchSlots(dictionary, template.slotGraph());
+		slotCount = slots.slotCount;
+		slotCells = slots.cells;
+		crossingSlots = slots.crossingSlots;
+		tries = slots.tries;
+		
+		int cells = template.getWidth() * template.getHeight();
+		letters = new char[cells];
+		cellFills = new int[cells];
+		words = new int[slotCount];
+		Arrays.fill(words, Dictionary.NO_WORD);
+	}
+
+	/**
+	 * Runs the search to the end, until the sink asks to stop or until the limits are reached.
+	 */
+	public void run() {
+		if(statistics != null) {
+			statistics.searchStarted(slotCount);
+		}
+		
+		try {
+			fillSlots(slotCount);
+		}
+		finally {
+			if(statistics != null) {
+				statistics.searchEnded();
+			}
+		}
+	}
+
+	private void fillSlots(int openSlots) {
+		if(openSlots == 0) {
+			boardFound();
+			return;
+		}
+		
+		int bestSlot = -1;
+		int bestCount = Integer.MAX_VALUE;
+		int bestCrossings = -1;
+		
+		for(int slot = 0; slot < slotCount; slot++) {
+			if(words[slot] == Dictionary.NO_WORD) {
+				int count = countCandidates(slot, bestCount);
+				
+				if(count == 0) {
+					return;
+				}
+				
+				int crossings = openCrossings(slot);
+				
+				if(count < bestCount || (count == bestCount && crossings > bestCrossings)) {
+					bestSlot = slot;
+					bestCount = count;
+					bestCrossings = crossings;
+				}
+			}
+		}
+		
+		int[] candidates = new int[bestCount];
+		collectCandidates(bestSlot, candidates);
+		
+		for(int candidate : candidates) {
+			if(stopped) {
+				return;
+			}
+			
+			boolean unique = isUnique(bestSlot, candidate);
+			
+			if(statistics != null) {
+				statistics.candidatesTried(slotCount - openSlots, unique ? 1 : 0, 0, unique ? 0 : 1);
+			}
+			
+			if(unique && limits != null && !limits.allowsNode()) {
+				stopped = true;
+				return;
+			}
+			
+			if(unique) {
+				assign(bestSlot, candidate);
+				
+				if(statistics != null) {
+					statistics.nodeVisited();
+				}
+				
+				fillSlots(openSlots - 1);
+				unassign(bestSlot);
+			}
+		}
+	}
+
+	private int countCandidates(int slot, int limit) {
+		PrefixTrie trie = tries[slot];
+		return countMatches(trie, slotCells[slot], 0, lastFilledPosition(slot), trie.root(), limit);
+	}
+
+	private int countMatches(PrefixTrie trie, int[] cells, int position, int lastFilled, int node, int limit) {
+		if(node == PrefixTrie.NO_NODE) {
+			return 0;
+		}
+		
+		if(position > lastFilled) {
+			return trie.wordRangeEnd(node) - trie.wordRangeStart(node);
+		}
+		
+		char letter = letters[cells[position]];
+		
+		if(letter != EMPTY) {
+			return countMatches(trie, cells, position + 1, lastFilled, trie.child(node, letter), limit);
+		}
+		
+		int count = 0;
+		for(int child = trie.firstChild(node); child < trie.endChild(node) && count <= limit; child++) {
+			count += countMatches(trie, cells, position + 1, lastFilled, child, limit - count);
+		}
+		return count;
+	}
+
+	private void collectCandidates(int slot, int[] candidates) {
+		PrefixTrie trie = tries[slot];
+		collectMatches(trie, slotCells[slot], 0, lastFilledPosition(slot), trie.root(), candidates, 0);
+	}
+
+	private int collectMatches(PrefixTrie trie, int[] cells, int position, int lastFilled, int node, int[] candidates, int found) {
+		if(node == PrefixTrie.NO_NODE) {
+			return found;
+		}
+		
+		if(position > lastFilled) {
+			for(int word = trie.wordRangeStart(node); word < trie.wordRangeEnd(node); word++) {
+				candidates[found++] = word;
+			}
+			return found;
+		}
+		
+		char letter = letters[cells[position]];
+		
+		if(letter != EMPTY) {
+			return collectMatches(trie, cells, position + 1, lastFilled, trie.child(node, letter), candidates, found);
+		}
+		
+		for(int child = trie.firstChild(node); child < trie.endChild(node); child++) {
+			found = collectMatches(trie, cells, position + 1, lastFilled, child, candidates, found);
+		}
+		return found;
+	}
+
+	private int lastFilledPosition(int slot) {
+		int[] cells = slotCells[slot];
+		
+		for(int position = cells.length - 1; position >= 0; position--) {
+			if(letters[cells[position]] != EMPTY) {
+				return position;
+			}
+		}
+		
+		return -1;
+	}
+
+	private int openCrossings(int slot) {
+		int crossings = 0;
+		
+		for(int crossingSlot : crossingSlots[slot]) {
+			if(crossingSlot != -1 && words[crossingSlot] == Dictionary.NO_WORD) {
+				crossings++;
+			}
+		}
+		
+		return crossings;
+	}
+
+	/**
+	 * @param word index of the word in the slot's trie, which slots it must differ from share as they have the same length
+	 */
+	private boolean isUnique(int slot, int word) {
+		for(int other = 0; other < slotCount; other++) {
+			if(words[other] == word && slots.mustDiffer(slot, other)) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+
+	private void assign(int slot, int word) {
+		int[] cells = slotCells[slot];
+		
+		for(int i = 0; i < cells.length; i++) {
+			letters[cells[i]] = tries[slot].letterAt(word, i);
+			cellFills[cells[i]]++;
+		}
+		
+		words[slot] = word;
+	}
+
+	private void unassign(int slot) {
+		for(int cell : slotCells[slot]) {
+			if(--cellFills[cell] == 0) {
+				letters[cell] = EMPTY;
+			}
+		}
+		
+		words[slot] = Dictionary.NO_WORD;
+	}
+
+	private void boardFound() {
+		String[][] board = new String[template.getWidth()][template.getHeight()];
+		
+		for(int x = 0; x < template.getWidth(); x++) {
+			for(int y = 0; y < template.getHeight(); y++) {
+				char letter = letters[x + y * width];
+				board[x][y] = letter == EMPTY ? "-" : String.valueOf(letter);
+			}
+		}
+		
+		if(statistics != null) {
+			statistics.boardFound();
+		}
+		
+		if(!sink.boardFound(board)) {
+			stopped = true;
+		}
+	}
+
+}
@@ -0,0 +1,279 @@
+package fungoes.lexiku;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the counts and boards of finished searches in a directory, so a template searched again with the same dictionary is answered
+ * from disk instead of searched.  Entries are named by a SHA-256 of the {@link Template#contentHash()}, the
+ * {@link Dictionary#contentHash()} and what was searched, so they are found again by any process which loads the same words.  Counts
+ * are kept as text and boards as a board file of {@link BoardWriter}.
+ * 
+ * The directory is kept under a size by deleting the entries used least recently.  Entries are written under a temporary name and
+ * renamed once complete, so several processes may share a directory.  A set of boards which would not fit is not kept.  A temporary
+ * file left for an hour by a process which died before renaming it is deleted by the next eviction.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public class SolutionCache {
+	private static final String COUNT_SUFFIX = ".count";
+	private static final String BOARDS_SUFFIX = ".boards";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+	private static final long STALE_TEMPORARY_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	private final File directory;
+	private final long maxBytes;
+
+	/**
+	 * @param directory directory to keep the entries in, created if need be
+	 * @param maxBytes most bytes the entries may take together
+	 * @throws IOException if the directory could not be created
+	 */
+	public SolutionCache(File directory, long maxBytes) throws IOException {
+		Files.createDirectories(directory.toPath());
+		
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @param search what was searched, such as "count" and the shard
+	 * @return name of the entry, without suffix
+	 */
+	static String key(Dictionary dictionary, Template template, String search) {
+		MessageDigest digest = Dictionary.sha256();
+		digest.update(template.contentHash().getBytes(StandardCharsets.UTF_8));
+		digest.update(dictionary.contentHash().getBytes(StandardCharsets.UTF_8));
+		digest.update(("\n" + search).getBytes(StandardCharsets.UTF_8));
+		return Dictionary.hex(digest.digest());
+	}
+
+	/**
+	 * @return the count kept for the search, or null if there is none
+	 * @throws UncheckedIOException if the entry could not be read
+	 */
+	public BigInteger count(Dictionary dictionary, Template template, String search) {
+		File entry = new File(directory, key(dictionary, template, search) + COUNT_SUFFIX);
+		
+		try {
+			BigInteger count = new BigInteger(new String(Files.readAllBytes(entry.toPath()), StandardCharsets.UTF_8).trim());
+			touch(entry);
+			return count;
+		}
+		catch(NoSuchFileException e) {
+			return null;
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @throws UncheckedIOException if the entry could not be written
+	 */
+	public void putCount(Dictionary dictionary, Template template, String search, BigInteger count) {
+		String key = key(dictionary, template, search);
+		
+		try {
+			File temporary = File.createTempFile(key, TEMPORARY_SUFFIX, directory);
+			Files.write(temporary.toPath(), count.toString().getBytes(StandardCharsets.UTF_8));
+			keep(temporary, new File(directory, key + COUNT_SUFFIX));
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Hands the boards kept for the search to the sink, in the order they were found, until it asks to stop.
+	 * 
+	 * @return false if no boards are kept for the search
+	 * @throws UncheckedIOException if the entry could not be read
+	 */
+	public boolean replayBoards(Dictionary dictionary, Template template, String search, BoardSink sink) {
+		File entry = new File(directory, key(dictionary, template, search) + BOARDS_SUFFIX);
+		
+		if(!entry.exists()) {
+			return false;
+		}
+		
+		try {
+			BoardReader boards = new BoardReader(dictionary, template, entry);
+			touch(entry);
+			
+			try {
+				while(boards.hasNext() && sink.boardFound(boards.next())) {
+					// handed on
+				}
+			}
+			finally {
+				boards.close();
+			}
+		}
+		catch(NoSuchFileException e) {
+			return false;
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		return true;
+	}
+
+	/**
+	 * Starts keeping the boards of a search.  Hand the recording to the search as its sink and close it once the search returns.
+	 * 
+	 * @param sink sink to hand every board on to
+	 * @throws UncheckedIOException if the entry could not be created
+	 */
+	public Recording recordBoards(Dictionary dictionary, Template template, String search, BoardSink sink) {
+		String key = key(dictionary, template, search);
+		
+		try {
+			File temporary = File.createTempFile(key, TEMPORARY_SUFFIX, directory);
+			return new Recording(new BoardWriter(dictionary, template, temporary, false), new BoardEncoding(dictionary, template).bytesPerBoard(),
+					temporary, new File(directory, key + BOARDS_SUFFIX), sink);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Marks an entry as just used.
+	 */
+	private static void touch(File entry) {
+		entry.setLastModified(System.currentTimeMillis());
+	}
+
+	private void keep(File temporary, File entry) throws IOException {
+		try {
+			Files.move(temporary.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch(AtomicMoveNotSupportedException e) {
+			Files.move(temporary.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		
+		touch(entry);
+		evict();
+	}
+
+	/**
+	 * Deletes the stale temporary files, then the entries used least recently until the rest fit.
+	 */
+	private synchronized void evict() {
+		File[] files = directory.listFiles();
+		List<File> entries = new ArrayList<File>();
+		long bytes = 0;
+		long staleBefore = System.currentTimeMillis() - STALE_TEMPORARY_MILLIS;
+		
+		for(File file : files != null ? files : new File[0]) {
+			if(file.getName().endsWith(COUNT_SUFFIX) || file.getName().endsWith(BOARDS_SUFFIX)) {
+				entries.add(file);
+				bytes += file.length();
+			}
+			else if(file.getName().endsWith(TEMPORARY_SUFFIX) && file.lastModified() < staleBefore && !file.delete()) {
+				bytes += file.length();
+			}
+		}
+		
+		Collections.sort(entries, new Comparator<File>() {
+			public int compare(File first, File second) {
+				return Long.compare(first.lastModified(), second.lastModified());
+			}
+		});
+		
+		for(int i = 0; i < entries.size() && bytes > maxBytes; i++) {
+			long length = entries.get(i).length();
+			
+			if(entries.get(i).delete()) {
+				bytes -= length;
+			}
+		}
+	}
+
+	/**
+	 * Boards of a search being written to the cache on their way to the search's sink.  The boards are kept only if the recording is
+	 * closed as complete, and are dropped as soon as they outgrow the cache or cannot be written, without disturbing the search.
+	 */
+	public class Recording implements BoardSink {
+		private final BoardWriter writer;
+		private final int bytesPerBoard;
+		private final File temporary;
+		private final File entry;
+		private final BoardSink sink;
+		private boolean recording = true;
+		private boolean stopped = false;
+		
+		private Recording(BoardWriter writer, int bytesPerBoard, File temporary, File entry, BoardSink sink) {
+			this.writer = writer;
+			this.bytesPerBoard = bytesPerBoard;
+			this.temporary = temporary;
+			this.entry = entry;
+			this.sink = sink;
+		}
+		
+		public synchronized boolean boardFound(String[][] board) {
+			if(recording && (writer.getBoardsWritten() + 1) * bytesPerBoard + BoardWriter.HEADER_BYTES > maxBytes) {
+				recording = false;
+			}
+			
+			if(recording) {
+				try {
+					writer.boardFound(board);
+				}
+				catch(UncheckedIOException e) {
+					recording = false;
+				}
+			}
+			
+			stopped = !sink.boardFound(board);
+			return !stopped;
+		}
+		
+		/**
+		 * Keeps the boards if the search ran to the end and the sink took every board.
+		 * 
+		 * @param complete whether the search ran to the end
+		 * @throws UncheckedIOException if the written boards could not be moved into place
+		 */
+		public synchronized void close(boolean complete) {
+			try {
+				writer.close();
+			}
+			catch(IOException e) {
+				recording = false;
+			}
+			
+			try {
+				if(complete && recording && !stopped) {
+					keep(temporary, entry);
+				}
+			}
+			catch(NoSuchFileException e) {
+				// not written to for so long that another process took it for stale and deleted it
+			}
+			catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			finally {
+				temporary.delete();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+package fungoes.lexiku;
+
+/**
+ * Rotation or reflection of a board, see {@link Template#symmetries()}.  Every symmetry mirrors columns, rows or both, then swaps the
+ * axes or not, so only those which mirror neither keep the letters of every word in reading order.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+public enum Symmetry {
+	Identity(false, false, false),
+	Rotate90(false, true, true),
+	Rotate180(true, true, false),
+	Rotate270(true, false, true),
+	MirrorLeftRight(true, false, false),
+	MirrorTopBottom(false, true, false),
+	Transpose(false, false, true),
+	AntiTranspose(true, true, true);
+
+	private final boolean mirrorsColumns;
+	private final boolean mirrorsRows;
+	private final boolean swapsAxes;
+
+	private Symmetry(boolean mirrorsColumns, boolean mirrorsRows, boolean swapsAxes) {
+		this.mirrorsColumns = mirrorsColumns;
+		this.mirrorsRows = mirrorsRows;
+		this.swapsAxes = swapsAxes;
+	}
+
+	/**
+	 * @return true if the symmetry turns rows into columns, so only a square board maps onto itself
+	 */
+	public boolean swapsAxes() {
+		return swapsAxes;
+	}
+
+	/**
+	 * @return true if some words read backwards after the symmetry
+	 */
+	public boolean reversesWords() {
+		return mirrorsColumns || mirrorsRows;
+	}
+
+	/**
+	 * @return x of the tile the given tile of a width by height board moves to
+	 */
+	public int x(int x, int y, int width, int height) {
+		return swapsAxes ? row(y, height) : column(x, width);
+	}
+
+	/**
+	 * @return y of the tile the given tile of a width by height board moves to
+	 */
+	public int y(int x, int y, int width, int height) {
+		return swapsAxes ? column(x, width) : row(y, height);
+	}
+
+	private int column(int x, int width) {
+		return mirrorsColumns ? width - 1 - x : x;
+	}
+
+	private int row(int y, int height) {
+		return mirrorsRows ? height - 1 - y : y;
+	}
+
+	/**
+	 * @param board letters of a board indexed [x][y]
+	 * @return the board moved by the symmetry
+	 */
+	public String[][] apply(String[][] board) {
+		int width = board.length;
+		int height = board[0].length;
+		String[][] image = swapsAxes ? new String[height][width] : new String[width][height];
+		
+		for(int x = 0; x < width; x++) {
+			for(int y = 0; y < height; y++) {
+				image[x(x, y, width, height)][y(x, y, width, height)] = board[x][y];
+			}
+		}
+		
+		return image;
+	}
+
+}
@@ -1,194 +1,289 @@
-package fungoes.lexiku;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.Reader;
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- * Template for a board to be solved including the locations of letters and blocked spaces.
- * 
- * @author benjamin.lee
- *
- */
-public class Template {
-	public static final char OPEN_TILE_CHARACTER = 'O';
-	public static final char CLOSED_TILE_CHARACTER = 'X';
-	
-	private final int width;
-	private final int height;
-	private final Tile[][] template;
-	private final List<StartingPoint> horizontalWordStartingPoints;
-
-	/**
-	 * Loads a new template from the given input.  The input data should have one row per line, 'O' for open spaces and 'X' for closed.
-	 * All lines from the reader should have the same length.
-	 * 
-	 * @param templateReader reader containing the template data
-	 * @throws IOException
-	 */
-	public Template(Reader templateReader) throws IOException {
-		template = buildTileTemplate(convertTemplateReaderToCharacters(new BufferedReader(templateReader)));
-		
-		width = template.length;
-		height = template[0].length;
-		
-		horizontalWordStartingPoints = recordHorizontalStartingPoints();
-		
-		for(int x = 0; x < width; x++) {
-			int wordLength = -1;
-			
-			for(int y = 0; y < height; y++) {
-				if(template[x][y].type == TileType.Open) {
-					if(wordLength == -1) {
-						wordLength = 0;
-					}
-					
-					wordLength++;
-				}
-				else { // closed
-					if(wordLength != -1) {
-						for(int dy = 1; dy <= wordLength; dy++) {
-							template[x][y - dy].verticalWordLength = wordLength;
-						}
-						
-						wordLength = -1;
-					}
-				}
-			}
-			
-			if(wordLength != -1) {
-				for(int dy = 1; dy <= wordLength; dy++) {
-					template[x][height - dy].verticalWordLength = wordLength;
-				}
-				
-				wordLength = -1;
-			}
-		}
-	}
-
-	private List<StartingPoint> recordHorizontalStartingPoints() {
-		List<StartingPoint> points = new ArrayList<StartingPoint>();
-		
-		for(int y = 0; y < height; y++) {
-			StartingPoint point = null;
-			
-			for(int x = 0; x< width; x++) {
-				if(template[x][y].type == TileType.Open) {
-					if(point == null) {
-						point = new StartingPoint(x, y, 1);
-					}
-					else {
-						point.length++;
-					}
-				}
-				else { // closed
-					if(point != null) {
-						points.add(point);
-						point = null;
-					}
-				}
-			}
-			
-			if(point != null) {
-				points.add(point);
-			}
-		}
-		return points;
-	}
-
-	private List<char[]> convertTemplateReaderToCharacters(
-			BufferedReader bufferedTemplate) throws IOException {
-		List<char[]> dynamicTemplate = new ArrayList<char[]>();
-		
-		String line;
-		while((line = bufferedTemplate.readLine()) != null) {
-			dynamicTemplate.add(line.toCharArray());
-		}
-		return dynamicTemplate;
-	}
-
-	private static Tile[][] buildTileTemplate(List<char[]> dynamicTemplate) throws IOException {
-		int width = dynamicTemplate.get(0).length;
-		int height = dynamicTemplate.size();
-		int lineLength = width;
-		Tile[][] template = new Tile[width][height];
-		
-		for(int y = 0; y < height; y++) {
-			char[] characters = dynamicTemplate.get(y);
-			
-			if(characters.length != lineLength && lineLength >= 0) {
-				throw new IOException("Line lengths must all be the same.");
-			}
-			
-			lineLength = characters.length;
-			
-			for(int x = 0; x< width; x++) {
-				Tile tile = new Tile();
-				
-				if(characters[x] == OPEN_TILE_CHARACTER) {
-					tile.type = TileType.Open;
-				}
-				else {
-					tile.type = TileType.Closed;
-				}
-				
-				template[x][y] = tile;
-			}
-		}
-		
-		return template;
-	}
-
-	/**
-	 * @return template width
-	 */
-	public int getWidth() {
-		return width;
-	}
-
-	/**
-	 * @return template height
-	 */
-	public int getHeight() {
-		return height;
-	}
-
-	/**
-	 * Finds the type of a given point in the template.
-	 * 
-	 * @param x
-	 * @param y
-	 * @return tile type
-	 */
-	public TileType checkTile(int x, int y) {
-		return template[x][y].type;
-	}
-
-	/**
-	 * Finds the {@link StartingPoint} of all horizontal words in the template.
-	 * 
-	 * @return list of starting points
-	 */
-	public List<StartingPoint> horizontalStartingPoints() {
-		return horizontalWordStartingPoints;
-	}
-
-	/**
-	 * For a given point, return the length of the vertical word it is part of. 
-	 * 
-	 * @param x
-	 * @param y
-	 * @return vertical word length
-	 */
-	public int verticalWordLengthFor(int x, int y) {
-		return template[x][y].verticalWordLength;
-	}
-	
-	private static class Tile {
-		public TileType type = null;
-		public int verticalWordLength = 0;
-	}
-	
-}
+package fungoes.lexiku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Template for a board to be solved including the locations of letters and blocked spaces.
+ * 
+ * @author benjamin.lee
+ *
+ */
+public class Template {
+	public static final char OPEN_TILE_CHARACTER = 'O';
+	public static final char CLOSED_TILE_CHARACTER = 'X';
+	
+	private final int width;
+	private final int height;
+	private final Tile[][] template;
+	private final List<StartingPoint> horizontalWordStartingPoints;
+	private final SlotGraph slotGraph;
+
+	/**
+	 * Loads a new template from the given input.  The input data should have one row per line, 'O' for open spaces and 'X' for closed.
+	 * All lines from the reader should have the same length.
+	 * 
+	 * @param templateReader reader containing the template data
+	 * @throws IOException
+	 */
+	public Template(Reader templateReader) throws IOException {
+		this(buildTileTemplate(convertTemplateReaderToCharacters(new BufferedReader(templateReader))));
+	}
+
+	private Template(Tile[][] template) {
+		this.template = template;
+		
+		width = template.length;
+		height = template[0].length;
+		
+		horizontalWordStartingPoints = recordHorizontalStartingPoints();
+		
+		for(int x = 0; x < width; x++) {
+			int wordLength = -1;
+			
+			for(int y = 0; y < height; y++) {
+				if(template[x][y].type == TileType.Open) {
+					if(wordLength == -1) {
+						wordLength = 0;
+					}
+					
+					wordLength++;
+				}
+				else { // closed
+					if(wordLength != -1) {
+						for(int dy = 1; dy <= wordLength; dy++) {
+							template[x][y - dy].verticalWordLength = wordLength;
+						}
+						
+						wordLength = -1;
+					}
+				}
+			}
+			
+			if(wordLength != -1) {
+				for(int dy = 1; dy <= wordLength; dy++) {
+					template[x][height - dy].verticalWordLength = wordLength;
+				}
+				
+				wordLength = -1;
+			}
+		}
+		
+		slotGraph = new SlotGraph(this);
+	}
+
+	private List<StartingPoint> recordHorizontalStartingPoints() {
+		List<StartingPoint> points = new ArrayList<StartingPoint>();
+		
+		for(int y = 0; y < height; y++) {
+			StartingPoint point = null;
+			
+			for(int x = 0; x< width; x++) {
+				if(template[x][y].type == TileType.Open) {
+					if(point == null) {
+						point = new StartingPoint(x, y, 1);
+					}
+					else {
+						point.length++;
+					}
+				}
+				else { // closed
+					if(point != null) {
+						points.add(point);
+						point = null;
+					}
+				}
+			}
+			
+			if(point != null) {
+				points.add(point);
+			}
+		}
+		return points;
+	}
+
+	private static List<char[]> convertTemplateReaderToCharacters(
+			BufferedReader bufferedTemplate) throws IOException {
+		List<char[]> dynamicTemplate = new ArrayList<char[]>();
+		
+		String line;
+		while((line = bufferedTemplate.readLine()) != null) {
+			dynamicTemplate.add(line.toCharArray());
+		}
+		return dynamicTemplate;
+	}
+
+	private static Tile[][] buildTileTemplate(List<char[]> dynamicTemplate) throws IOException {
+		int width = dynamicTemplate.get(0).length;
+		int height = dynamicTemplate.size();
+		int lineLength = width;
+		Tile[][] template = new Tile[width][height];
+		
+		for(int y = 0; y < height; y++) {
+			char[] characters = dynamicTemplate.get(y);
+			
+			if(characters.length != lineLength && lineLength >= 0) {
+				throw new IOException("Line lengths must all be the same.");
+			}
+			
+			lineLength = characters.length;
+			
+			for(int x = 0; x< width; x++) {
+				Tile tile = new Tile();
+				
+				if(characters[x] == OPEN_TILE_CHARACTER) {
+					tile.type = TileType.Open;
+				}
+				else {
+					tile.type = TileType.Closed;
+				}
+				
+				template[x][y] = tile;
+			}
+		}
+		
+		return template;
+	}
+
+	/**
+	 * @return template width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return template height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Finds the type of a given point in the template.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return tile type
+	 */
+	public TileType checkTile(int x, int y) {
+		return template[x][y].type;
+	}
+
+	/**
+	 * Finds the {@link StartingPoint} of all horizontal words in the template.
+	 * 
+	 * @return list of starting points
+	 */
+	public List<StartingPoint> horizontalStartingPoints() {
+		return horizontalWordStartingPoints;
+	}
+
+	/**
+	 * For a given point, return the length of the vertical word it is part of. 
+	 * 
+	 * @param x
+	 * @param y
+	 * @return vertical word length
+	 */
+	public int verticalWordLengthFor(int x, int y) {
+		return template[x][y].verticalWordLength;
+	}
+	
+	/**
+	 * @return horizontal and vertical word slots of the template and where they cross
+	 */
+	public SlotGraph slotGraph() {
+		return slotGraph;
+	}
+
+	/**
+	 * Fingerprints the size and tiles of the template, so results computed for it can be recognised later alongside the
+	 * {@link Dictionary#contentHash()}.
+	 * 
+	 * @return SHA-256 of the rows of tiles, in hex, equal for templates with the same tiles
+	 */
+	public String contentHash() {
+		MessageDigest digest = Dictionary.sha256();
+		StringBuilder tiles = new StringBuilder(width + "x" + height + "\n");
+		
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				tiles.append(checkTile(x, y) == TileType.Open ? OPEN_TILE_CHARACTER : CLOSED_TILE_CHARACTER);
+			}
+			tiles.append('\n');
+		}
+		
+		digest.update(tiles.toString().getBytes(StandardCharsets.UTF_8));
+		return Dictionary.hex(digest.digest());
+	}
+
+	/**
+	 * Splits the template into its regions of crossing words, see {@link SlotGraph}.  Each region is a template of the same size with
+	 * every tile outside the region closed, so its words keep their rows and starting points keep their order.
+	 * 
+	 * @return one template per region in the order of {@link SlotGraph#regionOf(int)}, this template alone if it has one region
+	 */
+	public List<Template> regions() {
+		if(slotGraph.regionCount() <= 1) {
+			return Collections.singletonList(this);
+		}
+		
+		List<Template> regions = new ArrayList<Template>(slotGraph.regionCount());
+		
+		for(int region = 0; region < slotGraph.regionCount(); region++) {
+			Tile[][] tiles = new Tile[width][height];
+			
+			for(int x = 0; x < width; x++) {
+				for(int y = 0; y < height; y++) {
+					int slot = slotGraph.horizontalSlotAt(x + y * width);
+					
+					tiles[x][y] = new Tile();
+					tiles[x][y].type = slot != SlotGraph.NO_SLOT && slotGraph.regionOf(slot) == region ? TileType.Open : TileType.Closed;
+				}
+			}
+			
+			regions.add(new Template(tiles));
+		}
+		
+		return regions;
+	}
+
+	/**
+	 * Finds the rotations and reflections which map the open tiles of the template onto open tiles, the template's automorphisms.
+	 * Rotating by a quarter turn and reflecting across a diagonal only keep a square template.
+	 * 
+	 * @return symmetries of the template, {@link Symmetry#Identity} first
+	 */
+	public List<Symmetry> symmetries() {
+		List<Symmetry> symmetries = new ArrayList<Symmetry>();
+		
+		for(Symmetry symmetry : Symmetry.values()) {
+			boolean keepsTemplate = !symmetry.swapsAxes() || width == height;
+			
+			for(int x = 0; x < width && keepsTemplate; x++) {
+				for(int y = 0; y < height && keepsTemplate; y++) {
+					keepsTemplate = template[x][y].type == checkTile(symmetry.x(x, y, width, height), symmetry.y(x, y, width, height));
+				}
+			}
+			
+			if(keepsTemplate) {
+				symmetries.add(symmetry);
+			}
+		}
+		
+		return symmetries;
+	}
+
+	private static class Tile {
+		public TileType type = null;
+		public int verticalWordLength = 0;
+	}
+	
+}
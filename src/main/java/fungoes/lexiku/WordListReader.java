@@ -0,0 +1,275 @@
+package fungoes.lexiku;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a word list file in chunks on several threads.  Chunks end on line boundaries.  Each chunk is mapped, decoded, split into
+ * lines the way {@link java.io.BufferedReader#readLine()} does and lowercased, then its words are bucketed by length, sorted and
+ * made distinct.
+ * 
+ * Splitting on bytes only works when a line feed is a single 0x0A byte, as in UTF-8 and the ISO-8859 charsets.  Files in other
+ * charsets are read as a single chunk.
+ * 
+ * @author benjamin.lee
+ * 
+ */
+class WordListReader {
+	static final int DEFAULT_CHUNK_BYTES = 4 << 20;
+
+	private static final byte LINE_FEED = '\n';
+	private static final int BOUNDARY_WINDOW = 8192;
+
+	private WordListReader() {
+	}
+
+	/**
+	 * @param file word list, one word per line
+	 * @param charset charset of the file
+	 * @param executor runs the chunks
+	 * @param chunkBytes approximate size of a chunk
+	 * @return for each word length the sorted, distinct words of every chunk, one list per chunk which has words of that length
+	 * @throws IOException
+	 */
+	static Map<Integer, List<List<String>>> readSortedRuns(RandomAccessFile file, final Charset charset, ExecutorService executor, int chunkBytes) throws IOException {
+		final FileChannel channel = file.getChannel();
+		List<Long> boundaries = chunkBoundaries(channel, charset, chunkBytes);
+		List<Callable<Map<Integer, List<String>>>> chunks = new ArrayList<Callable<Map<Integer, List<String>>>>();
+		
+		for(int i = 0; i + 1 < boundaries.size(); i++) {
+			final long start = boundaries.get(i);
+			final long end = boundaries.get(i + 1);
+			
+			chunks.add(new Callable<Map<Integer, List<String>>>() {
+				public Map<Integer, List<String>> call() throws IOException {
+					return readChunk(channel, start, end, charset);
+				}
+			});
+		}
+		
+		Map<Integer, List<List<String>>> runsBySize = new HashMap<Integer, List<List<String>>>();
+		
+		for(Map<Integer, List<String>> chunkWords : invokeAll(executor, chunks)) {
+			for(Map.Entry<Integer, List<String>> sameSized : chunkWords.entrySet()) {
+				List<List<String>> runs = runsBySize.get(sameSized.getKey());
+				
+				if(runs == null) {
+					runs = new ArrayList<List<String>>();
+					runsBySize.put(sameSized.getKey(), runs);
+				}
+				
+				runs.add(sameSized.getValue());
+			}
+		}
+		
+		return runsBySize;
+	}
+
+	/**
+	 * Runs the tasks and returns their results in order.
+	 * 
+	 * @throws IOException if a task failed with one
+	 */
+	static <T> List<T> invokeAll(ExecutorService executor, List<? extends Callable<T>> tasks) throws IOException {
+		List<T> results = new ArrayList<T>(tasks.size());
+		
+		try {
+			for(Future<T> future : executor.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading words", e);
+		}
+		catch(ExecutionException e) {
+			if(e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+		
+		return results;
+	}
+
+	/**
+	 * Merges sorted, distinct lists into one sorted list without repeats.
+	 */
+	static List<String> mergeDistinct(List<List<String>> runs) {
+		List<List<String>> merged = new ArrayList<List<String>>(runs);
+		
+		while(merged.size() > 1) {
+			List<List<String>> next = new ArrayList<List<String>>((merged.size() + 1) / 2);
+			
+			for(int i = 0; i < merged.size(); i += 2) {
+				next.add(i + 1 < merged.size() ? mergeDistinct(merged.get(i), merged.get(i + 1)) : merged.get(i));
+			}
+			
+			merged = next;
+		}
+		
+		return merged.isEmpty() ? new ArrayList<String>() : merged.get(0);
+	}
+
+	private static List<String> mergeDistinct(List<String> first, List<String> second) {
+		List<String> merged = new ArrayList<String>(first.size() + second.size());
+		int i = 0;
+		int j = 0;
+		
+		while(i < first.size() && j < second.size()) {
+			int order = first.get(i).compareTo(second.get(j));
+			
+			if(order <= 0) {
+				merged.add(first.get(i++));
+				
+				if(order == 0) {
+					j++;
+				}
+			}
+			else {
+				merged.add(second.get(j++));
+			}
+		}
+		
+		merged.addAll(first.subList(i, first.size()));
+		merged.addAll(second.subList(j, second.size()));
+		return merged;
+	}
+
+	private static List<Long> chunkBoundaries(FileChannel channel, Charset charset, int chunkBytes) throws IOException {
+		long size = channel.size();
+		List<Long> boundaries = new ArrayList<Long>();
+		boundaries.add(0L);
+		
+		if(isLineFeedSingleByte(charset)) {
+			ByteBuffer window = ByteBuffer.allocate(BOUNDARY_WINDOW);
+			long position = chunkBytes;
+			
+			while(position < size) {
+				long boundary = nextLineStart(channel, position, window);
+				
+				if(boundary >= size) {
+					break;
+				}
+				
+				boundaries.add(boundary);
+				position = boundary + chunkBytes;
+			}
+		}
+		
+		boundaries.add(size);
+		return boundaries;
+	}
+
+	private static boolean isLineFeedSingleByte(Charset charset) {
+		if(!charset.canEncode()) {
+			return false;
+		}
+		
+		ByteBuffer lineFeed = charset.encode("\n");
+		ByteBuffer carriageReturn = charset.encode("\r");
+		
+		return lineFeed.remaining() == 1 && lineFeed.get(0) == LINE_FEED && carriageReturn.remaining() == 1 && carriageReturn.get(0) == '\r';
+	}
+
+	/**
+	 * @return position just after the first line feed at or after the given position, or the file size if there is none
+	 */
+	private static long nextLineStart(FileChannel channel, long position, ByteBuffer window) throws IOException {
+		while(true) {
+			window.clear();
+			int read = channel.read(window, position);
+			
+			if(read <= 0) {
+				return channel.size();
+			}
+			
+			for(int i = 0; i < read; i++) {
+				if(window.get(i) == LINE_FEED) {
+					return position + i + 1;
+				}
+			}
+			
+			position += read;
+		}
+	}
+
+	private static Map<Integer, List<String>> readChunk(FileChannel channel, long start, long end, Charset charset) throws IOException {
+		CharBuffer text = charset.decode(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+		Map<Integer, List<String>> wordsBySize = new HashMap<Integer, List<String>>();
+		
+		int lineStart = 0;
+		int position = 0;
+		int length = text.limit();
+		
+		while(position < length) {
+			char c = text.get(position);
+			
+			if(c == '\n' || c == '\r') {
+				addWord(wordsBySize, text, lineStart, position);
+				
+				if(c == '\r' && position + 1 < length && text.get(position + 1) == '\n') {
+					position++;
+				}
+				
+				lineStart = position + 1;
+			}
+			
+			position++;
+		}
+		
+		if(lineStart < length) {
+			addWord(wordsBySize, text, lineStart, length);
+		}
+		
+		for(Map.Entry<Integer, List<String>> sameSized : wordsBySize.entrySet()) {
+			List<String> words = sameSized.getValue();
+			Collections.sort(words);
+			sameSized.setValue(distinct(words));
+		}
+		
+		return wordsBySize;
+	}
+
+	private static void addWord(Map<Integer, List<String>> wordsBySize, CharBuffer text, int start, int end) {
+		String word = text.subSequence(start, end).toString().toLowerCase();
+		Integer size = Integer.valueOf(word.length());
+		List<String> sameSizedWords = wordsBySize.get(size);
+		
+		if(sameSizedWords == null) {
+			sameSizedWords = new ArrayList<String>();
+			wordsBySize.put(size, sameSizedWords);
+		}
+		
+		sameSizedWords.add(word);
+	}
+
+	private static List<String> distinct(List<String> sortedWords) {
+		List<String> distinctWords = new ArrayList<String>(sortedWords.size());
+		
+		for(String word : sortedWords) {
+			if(distinctWords.isEmpty() || !distinctWords.get(distinctWords.size() - 1).equals(word)) {
+				distinctWords.add(word);
+			}
+		}
+		
+		return distinctWords;
+	}
+
+}
@@ -1,41 +1,564 @@
-package fungoes.lexiku;
-
-import static org.junit.Assert.assertEquals;
-
-import java.io.StringReader;
-import java.util.List;
-
-import org.junit.Test;
-
-
-public class BoardBuilderTest {
-	
-	@Test
-	public void emptyDictionaryYieldsNoBoards() throws Exception {
-		Dictionary dictionary = new Dictionary();
-		Template template = new Template(new StringReader("OO\nOO"));
-		
-		List<String[][]> boards = new BoardBuilder().build(dictionary, template);
-		
-		assertEquals(0, boards.size());
-	}
-	
-	
-	@Test
-	public void fourByFourTemplateProducesSingleBoard() throws Exception {
-		Dictionary dictionary = new Dictionary();
-		dictionary.loadWords(new StringReader("ab\nbc\nad\ndc"));
-		
-		Template template = new Template(new StringReader("OO\nOO"));
-		
-		BoardBuilder builder = new BoardBuilder();
-		List<String[][]> boards = builder.build(dictionary, template);
-		
-		assertEquals(2, boards.size());
-		
-		String[][] board = boards.get(0);
-		assertEquals(2, board.length);
-		assertEquals(2, board[0].length);
-		
-	}
-}
+package fungoes.lexiku;
+
+import static fungoes.lexiku.Fixtures.assertSameBoards;
+import static fungoes.lexiku.Fixtures.fourLetterDictionary;
+import static fungoes.lexiku.Fixtures.smallDictionary;
+import static fungoes.lexiku.Fixtures.twoByTwo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+
+public class BoardBuilderTest {
+	
+	@Test
+	public void emptyDictionaryYieldsNoBoards() throws Exception {
+		Dictionary dictionary = new Dictionary();
+		Template template = new Template(new StringReader("OO\nOO"));
+		
+		List<String[][]> boards = new BoardBuilder().build(dictionary, template);
+		
+		assertEquals(0, boards.size());
+	}
+	
+	
+	@Test
+	public void fourByFourTemplateProducesSingleBoard() throws Exception {
+		Dictionary dictionary = new Dictionary();
+		dictionary.loadWords(new StringReader("ab\nbc\nad\ndc"));
+		
+		Template template = new Template(new StringReader("OO\nOO"));
+		
+		BoardBuilder builder = new BoardBuilder();
+		List<String[][]> boards = builder.build(dictionary, template);
+		
+		assertEquals(2, boards.size());
+		
+		String[][] board = boards.get(0);
+		assertEquals(2, board.length);
+		assertEquals(2, board[0].length);
+		
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parallelismMustBePositive() throws Exception {
+		new BoardBuilder(0);
+	}
+
+	@Test
+	public void parallelBuildFindsTheSameBoardsInTheSameOrder() throws Exception {
+		Dictionary dictionary = fourLetterDictionary();
+		Template template = twoByTwo();
+		
+		List<String[][]> sequentialBoards = new BoardBuilder().build(dictionary, template);
+		List<String[][]> parallelBoards = new BoardBuilder(4).build(dictionary, template);
+		
+		assertSameBoards(sequentialBoards, parallelBoards);
+	}
+
+	@Test
+	public void sinkReceivesEveryBoard() throws Exception {
+		final List<String[][]> boards = new ArrayList<String[][]>();
+		
+		new BoardBuilder().build(fourLetterDictionary(), twoByTwo(), new BoardSink() {
+			public boolean boardFound(String[][] board) {
+				boards.add(board);
+				return true;
+			}
+		});
+		
+		assertEquals(new BoardBuilder().build(fourLetterDictionary(), twoByTwo()).size(), boards.size());
+	}
+
+	@Test
+	public void sinkCanStopTheSearch() throws Exception {
+		final List<String[][]> boards = new ArrayList<String[][]>();
+		
+		new BoardBuilder().build(fourLetterDictionary(), twoByTwo(), new BoardSink() {
+			public boolean boardFound(String[][] board) {
+				boards.add(board);
+				return false;
+			}
+		});
+		
+		assertEquals(1, boards.size());
+	}
+
+	@Test
+	public void iteratorReturnsBoardsInSearchOrder() throws Exception {
+		List<String[][]> expectedBoards = new BoardBuilder().build(fourLetterDictionary(), twoByTwo());
+		BoardIterator boards = new BoardBuilder().iterator(fourLetterDictionary(), twoByTwo());
+		
+		for(String[][] expectedBoard : expectedBoards) {
+			assertTrue(boards.hasNext());
+			assertTrue(Arrays.deepEquals(expectedBoard, boards.next()));
+		}
+		
+		assertFalse(boards.hasNext());
+	}
+
+	@Test
+	public void closedIteratorHasNoMoreBoards() throws Exception {
+		BoardIterator boards = new BoardBuilder().iterator(fourLetterDictionary(), twoByTwo());
+		
+		assertTrue(boards.hasNext());
+		boards.close();
+		assertFalse(boards.hasNext());
+	}
+
+	@Test
+	public void streamCanBeLimited() throws Exception {
+		Stream<String[][]> boards = new BoardBuilder().stream(fourLetterDictionary(), twoByTwo());
+		
+		try {
+			assertEquals(3L, boards.limit(3).count());
+		}
+		finally {
+			boards.close();
+		}
+	}
+
+	@Test
+	public void mostConstrainedFirstFindsTheSameBoards() throws Exception {
+		Dictionary dictionary = smallDictionary();
+		
+		for(String layout : new String[] {"OO\nOO", "OOO\nOXO\nOOO", "OOX\nOOO\nXOO", "OXO\nOOO"}) {
+			Template template = new Template(new StringReader(layout));
+			BoardBuilder builder = new BoardBuilder();
+			builder.setStrategy(SearchStrategy.MostConstrainedFirst);
+			
+			List<String[][]> expectedBoards = new BoardBuilder().build(dictionary, template);
+			List<String[][]> boards = builder.build(dictionary, template);
+			
+			assertSameBoards(expectedBoards, boards);
+		}
+	}
+
+	@Test
+	public void arcConsistencyFindsTheSameBoards() throws Exception {
+		Dictionary dictionary = smallDictionary();
+		
+		for(String layout : new String[] {"OO\nOO", "OOO\nOXO\nOOO", "OOX\nOOO\nXOO", "OXO\nOOO", "OOO\nXOX\nOOO"}) {
+			Template template = new Template(new StringReader(layout));
+			BoardBuilder builder = new BoardBuilder();
+			builder.setStrategy(SearchStrategy.ArcConsistency);
+			
+			List<String[][]> expectedBoards = new BoardBuilder().build(dictionary, template);
+			List<String[][]> boards = builder.build(dictionary, template);
+			
+			assertSameBoards(expectedBoards, boards);
+		}
+	}
+
+	@Test
+	public void arcConsistencyTriesFewerCandidates() throws Exception {
+		SearchStatistics rowOrderStatistics = new SearchStatistics();
+		BoardBuilder rowOrder = new BoardBuilder();
+		rowOrder.setStatistics(rowOrderStatistics);
+		rowOrder.build(fourLetterDictionary(), twoByTwo());
+		
+		SearchStatistics statistics = new SearchStatistics();
+		BoardBuilder builder = new BoardBuilder();
+		builder.setStrategy(SearchStrategy.ArcConsistency);
+		builder.setStatistics(statistics);
+		builder.build(fourLetterDictionary(), twoByTwo());
+		
+		assertEquals(rowOrderStatistics.getBoards(), statistics.getBoards());
+		assertEquals(4, statistics.getCandidatesTried().length);
+		assertTrue(sum(statistics.getCandidatesTried()) < sum(rowOrderStatistics.getCandidatesTried()));
+	}
+
+	@Test
+	public void backjumpingFindsTheSameBoardsInTheSameOrder() throws Exception {
+		Dictionary dictionary = smallDictionary();
+		
+		for(String layout : new String[] {"OO\nOO", "OOO\nOXO\nOOO", "OOX\nOOO\nXOO", "OXO\nOOO", "OOO\nXOX\nOOO"}) {
+			Template template = new Template(new StringReader(layout));
+			final List<String[][]> boards = new ArrayList<String[][]>();
+			BoardBuilder builder = new BoardBuilder();
+			builder.setStrategy(SearchStrategy.Backjumping);
+			
+			builder.build(dictionary, template, new BoardSink() {
+				public boolean boardFound(String[][] board) {
+					boards.add(board);
+					return true;
+				}
+			});
+			
+			List<String[][]> expectedBoards = new BoardBuilder().build(dictionary, template);
+			
+			assertSameBoards(expectedBoards, boards);
+		}
+	}
+
+	@Test
+	public void backjumpingSkipsStartingPointsWhichCannotFixAFailure() throws Exception {
+		Dictionary dictionary = new Dictionary();
+		dictionary.loadWords(new StringReader("a\nb\nc\nabc"));
+		Template template = new Template(new StringReader("OXO\nOXO\nOXO"));
+		
+		SearchStatistics rowOrderStatistics = new SearchStatistics();
+		BoardBuilder rowOrder = new BoardBuilder();
+		rowOrder.setStatistics(rowOrderStatistics);
+		
+		SearchStatistics statistics = new SearchStatistics();
+		BoardBuilder builder = new BoardBuilder();
+		builder.setStrategy(SearchStrategy.Backjumping);
+		builder.setStatistics(statistics);
+		
+		assertEquals(1, rowOrder.build(dictionary, template).size());
+		assertEquals(1, builder.build(dictionary, template).size());
+		assertTrue(statistics.getBackjumps() > 0);
+		assertTrue(statistics.getNodes() < rowOrderStatistics.getNodes());
+	}
+
+	@Test
+	public void countMatchesTheBoardsBuilt() throws Exception {
+		Dictionary dictionary = smallDictionary();
+		
+		for(String layout : new String[] {"OO\nOO", "OOO\nOXO\nOOO", "OOX\nOOO\nXOO", "OXO\nOOO", "OOO\nXOX\nOOO", "OOO\nOOO\nOOO"}) {
+			Template template = new Template(new StringReader(layout));
+			
+			assertEquals(BigInteger.valueOf(new BoardBuilder().build(dictionary, template).size()), new BoardBuilder().count(dictionary, template));
+		}
+	}
+
+	@Test
+	public void regionsCombineIntoTheBoardsBuilt() throws Exception {
+		Dictionary dictionary = smallDictionary();
+		
+		for(String layout : new String[] {"OXO\nOXO\nOXO", "OOXOO\nOOXOO", "OOX\nOOX\nXXX\nOOO", "OXOO\nXXXX\nOOOX\nXXXX\nXXOO", "XX\nXX"}) {
+			Template template = new Template(new StringReader(layout));
+			List<String[][]> boards = new BoardBuilder().build(dictionary, template);
+			List<String[][]> combined = new ArrayList<String[][]>();
+			
+			for(String[][] board : new BoardBuilder(2).buildRegions(dictionary, template)) {
+				combined.add(board);
+			}
+			
+			assertTrue(template.regions().size() > 1 || template.slotGraph().regionCount() == 0);
+			assertEquals(boards.size(), combined.size());
+			assertEquals(BigInteger.valueOf(boards.size()), new BoardBuilder().count(dictionary, template));
+			assertEquals(BigInteger.valueOf(boards.size()), new BoardBuilder(2).count(dictionary, template));
+			
+			for(String[][] board : combined) {
+				assertTrue(containsBoard(boards, board));
+			}
+		}
+	}
+
+	@Test
+	public void regionsDoNotRepeatWordsAcrossEachOther() throws Exception {
+		Dictionary dictionary = new Dictionary();
+		dictionary.loadWords(new StringReader("a\nb\nab\nba"));
+		Template template = new Template(new StringReader("OO\nXX\nOO"));
+		RegionBoards regionBoards = new BoardBuilder().buildRegions(dictionary, template);
+		int boards = 0;
+		
+		for(String[][] board : regionBoards) {
+			assertFalse((board[0][0] + board[1][0]).equals(board[0][2] + board[1][2]));
+			boards++;
+		}
+		
+		assertEquals(2, regionBoards.regionCount());
+		assertEquals(2, regionBoards.regionBoards(1).size());
+		assertEquals(2, boards);
+		assertEquals(BigInteger.valueOf(2), new BoardBuilder().count(dictionary, template));
+		assertEquals(BigInteger.valueOf(4), new BoardBuilder().count(dictionary, template, true));
+	}
+
+	@Test
+	public void countAllowingRepeatsIsAnUpperBound() throws Exception {
+		Dictionary dictionary = new Dictionary();
+		dictionary.loadWords(new StringReader("aaa\nbbb"));
+		Template template = new Template(new StringReader("OOO\nOOO\nOOO"));
+		
+		assertEquals(BigInteger.ZERO, new BoardBuilder().count(dictionary, template));
+		assertEquals(BigInteger.valueOf(2), new BoardBuilder().count(dictionary, template, true));
+	}
+
+	@Test
+	public void budgetsAndCancellationStopTheSearch() throws Exception {
+		SearchStatistics statistics = new SearchStatistics();
+		BoardBuilder budgeted = new BoardBuilder();
+		budgeted.setNodeBudget(3);
+		budgeted.setStatistics(statistics);
+		
+		budgeted.build(fourLetterDictionary(), twoByTwo());
+		
+		assertEquals(3L, statistics.getNodes());
+		
+		for(SearchStrategy strategy : SearchStrategy.values()) {
+			CancellationToken token = new CancellationToken();
+			BoardBuilder cancelled = new BoardBuilder();
+			cancelled.setStrategy(strategy);
+			cancelled.setCancellationToken(token);
+			token.cancel();
+			
+			assertEquals(0, cancelled.build(fourLetterDictionary(), twoByTwo()).size());
+		}
+	}
+
+	@Test
+	public void budgetsAndCancellationStopTheCount() throws Exception {
+		Dictionary dictionary = new Dictionary();
+		dictionary.loadWords(new StringReader("a\nb\nab\nba\nbb\naa"));
+		
+		for(String layout : new String[] {"OO\nOO", "OO\nXX\nOO"}) {
+			for(boolean repeatsAllowed : new boolean[] {false, true}) {
+				Template template = new Template(new StringReader(layout));
+				CancellationToken token = new CancellationToken();
+				BoardBuilder budgeted = new BoardBuilder(2);
+				BoardBuilder cancelled = new BoardBuilder();
+				budgeted.setNodeBudget(1);
+				cancelled.setCancellationToken(token);
+				token.cancel();
+				
+				for(BoardBuilder builder : new BoardBuilder[] {budgeted, cancelled}) {
+					try {
+						builder.count(dictionary, template, repeatsAllowed);
+						fail();
+					}
+					catch(CancellationException e) {
+						// stopped before the end
+					}
+				}
+				
+				budgeted.setNodeBudget(Long.MAX_VALUE);
+				
+				assertEquals(new BoardBuilder().count(dictionary, template, repeatsAllowed), budgeted.count(dictionary, template, repeatsAllowed));
+			}
+		}
+	}
+
+	@Test
+	public void checkpointsResumeWhereTheSearchStopped() throws Exception {
+		Dictionary dictionary = smallDictionary();
+		Template template = new Template(new StringReader("OOO\nOXO\nOOO"));
+		List<String[][]> boards = new BoardBuilder().build(dictionary, template);
+		
+		File checkpoint = File.createTempFile("search", ".lxc");
+		checkpoint.deleteOnExit();
+		checkpoint.delete();
+		
+		BoardBuilder builder = new BoardBuilder();
+		builder.setNodeBudget(2);
+		builder.setCheckpoint(checkpoint);
+		List<String[][]> resumedBoards = new ArrayList<String[][]>();
+		int runs = 0;
+		
+		do {
+			resumedBoards.addAll(builder.build(dictionary, template));
+			runs++;
+		}
+		while(checkpoint.exists());
+		
+		assertTrue(runs > 2);
+		assertSameBoards(boards, resumedBoards);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void checkpointsOnlyResumeTheSearchTheyStopped() throws Exception {
+		Dictionary otherWords = new Dictionary();
+		otherWords.loadWords(new StringReader("c\nd\ncd\ndc\ndd\ncc\ncdc\ndcd\ncdd\nddc\ndcc\nccd"));
+		Template template = new Template(new StringReader("OOO\nOXO\nOOO"));
+		
+		File checkpoint = File.createTempFile("search", ".lxc");
+		checkpoint.deleteOnExit();
+		checkpoint.delete();
+		
+		BoardBuilder builder = new BoardBuilder();
+		builder.setNodeBudget(10);
+		builder.setCheckpoint(checkpoint);
+		builder.build(smallDictionary(), template);
+		
+		assertTrue(checkpoint.exists());
+		assertEquals(smallDictionary().size(), otherWords.size());
+		
+		builder.build(otherWords, template);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void checkpointsNeedASequentialRowOrderSearch() throws Exception {
+		BoardBuilder builder = new BoardBuilder(2);
+		builder.setCheckpoint(new File("unused.lxc"));
+		
+		builder.build(fourLetterDictionary(), twoByTwo());
+	}
+
+	@Test
+	public void shardsSplitTheBoardsInSearchOrder() throws Exception {
+		Dictionary dictionary = smallDictionary();
+		
+		for(String layout : new String[] {"OOO\nOXO\nOOO", "OO\nOO", "XX\nXX"}) {
+			Template template = new Template(new StringReader(layout));
+			List<String[][]> boards = new BoardBuilder().build(dictionary, template);
+			
+			for(int shards = 1; shards <= 5; shards++) {
+				List<String[][]> shardBoards = new ArrayList<String[][]>();
+				BigInteger counted = BigInteger.ZERO;
+				
+				for(int shard = 0; shard < shards; shard++) {
+					BoardBuilder builder = new BoardBuilder();
+					builder.setShard(shard, shards);
+					
+					shardBoards.addAll(builder.build(dictionary, template));
+					counted = counted.add(builder.count(dictionary, template));
+				}
+				
+				assertSameBoards(boards, shardBoards);
+				assertEquals(BigInteger.valueOf(boards.size()), counted);
+			}
+		}
+	}
+
+	@Test
+	public void estimateIsExactWhenEveryNodeHasAsManyChildren() throws Exception {
+		Dictionary dictionary = new Dictionary();
+		dictionary.loadWords(new StringReader("a\nb"));
+		
+		SearchEstimate estimate = new BoardBuilder().estimate(dictionary, new Template(new StringReader("OXOXO")), 3, 0);
+		
+		assertEquals(3, estimate.getProbes());
+		assertEquals(2 + 4 + 8, estimate.getNodes(), 0);
+		assertEquals(8, estimate.getBoards(), 0);
+		assertEquals(2 + 4 + 8, estimate.getCandidatesTried(), 0);
+	}
+
+	@Test
+	public void estimateApproachesTheSearchItProbes() throws Exception {
+		SearchStatistics statistics = new SearchStatistics();
+		BoardBuilder builder = new BoardBuilder();
+		builder.setStatistics(statistics);
+		builder.build(fourLetterDictionary(), twoByTwo());
+		
+		SearchEstimate estimate = builder.estimate(fourLetterDictionary(), twoByTwo(), 2000, 42);
+		
+		assertEquals(statistics.getNodes(), estimate.getNodes(), statistics.getNodes() * 0.1);
+		assertEquals(statistics.getBoards(), estimate.getBoards(), statistics.getBoards() * 0.1);
+		assertEquals(sum(statistics.getCandidatesTried()), estimate.getCandidatesTried(), sum(statistics.getCandidatesTried()) * 0.1);
+		assertEquals(estimate.getNodes(), builder.estimate(fourLetterDictionary(), twoByTwo(), 2000, 42).getNodes(), 0);
+		
+		statistics.setEstimate(estimate);
+		assertTrue(statistics.getEstimatedSecondsRemaining() >= 0);
+	}
+
+	@Test
+	public void symmetryBreakingFindsTheSameBoards() throws Exception {
+		Dictionary reversible = smallDictionary();
+		Dictionary forwardOnly = new Dictionary();
+		forwardOnly.loadWords(new StringReader("ab\nbc\nad\ndc\nbb\ndd\naa\ncc\nbd\nca"));
+		Dictionary uncheckedTopRow = new Dictionary();
+		uncheckedTopRow.loadWords(new StringReader("abc\nade\nb\nc"));
+		
+		for(Dictionary dictionary : new Dictionary[] {reversible, forwardOnly, fourLetterDictionary(), uncheckedTopRow}) {
+			for(String layout : new String[] {"OOO\nOXO\nOOO", "OO\nOO", "OOX\nOOO\nXOO", "OOO\nOXX\nOXX", "XOXX\nOOOX\nXOOO\nXXOX"}) {
+				Template template = new Template(new StringReader(layout));
+				List<String[][]> boards = new BoardBuilder().build(dictionary, template);
+				
+				for(int parallelism : new int[] {1, 4}) {
+					BoardBuilder builder = new BoardBuilder(parallelism);
+					builder.setSymmetryBreaking(true);
+					List<String[][]> symmetricBoards = builder.build(dictionary, template);
+					
+					assertSameBoards(boards, symmetricBoards);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void canonicalBoardsStandForTheirOrbits() throws Exception {
+		final List<String[][]> boards = new BoardBuilder().build(fourLetterDictionary(), twoByTwo());
+		final List<String[][]> canonicalBoards = new ArrayList<String[][]>();
+		final int[] orbitBoards = new int[1];
+		
+		new BoardBuilder().buildCanonical(fourLetterDictionary(), twoByTwo(), new CanonicalBoardSink() {
+			public boolean canonicalBoardFound(String[][] board, int orbitSize) {
+				assertTrue(containsBoard(boards, board));
+				canonicalBoards.add(board);
+				orbitBoards[0] += orbitSize;
+				return true;
+			}
+		});
+		
+		assertEquals(boards.size(), orbitBoards[0]);
+		assertTrue(canonicalBoards.size() < boards.size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void symmetryBreakingNeedsARowOrderSearch() throws Exception {
+		BoardBuilder builder = new BoardBuilder();
+		builder.setStrategy(SearchStrategy.Backjumping);
+		builder.setSymmetryBreaking(true);
+		builder.build(fourLetterDictionary(), twoByTwo());
+	}
+
+	@Test
+	public void offHeapDictionaryFindsTheSameBoards() throws Exception {
+		Dictionary dictionary = smallDictionary();
+		Template template = new Template(new StringReader("OOO\nOXO\nOOO"));
+		
+		List<String[][]> expectedBoards = new BoardBuilder().build(dictionary, template);
+		List<String[][]> boards = new BoardBuilder().build(dictionary.offHeapCopy(), template);
+		
+		assertSameBoards(expectedBoards, boards);
+	}
+
+	@Test
+	public void pruningFindsTheSameBoards() throws Exception {
+		Dictionary dictionary = new Dictionary();
+		dictionary.loadWords(new StringReader("a\nb\nab\nba\nbb\naa\naba\nbab\nabb\nbba\nbaa\naab\nxyz\nxy\nzz\nabcd"));
+		
+		for(String layout : new String[] {"OO\nOO", "OOO\nOXO\nOOO", "OOX\nOOO\nXOO", "OXO\nOOO", "OOO\nXOX\nOOO"}) {
+			Template template = new Template(new StringReader(layout));
+			SearchStatistics statistics = new SearchStatistics();
+			BoardBuilder builder = new BoardBuilder();
+			builder.setPruning(true);
+			builder.setStatistics(statistics);
+			
+			SearchStatistics expectedStatistics = new SearchStatistics();
+			BoardBuilder expectedBuilder = new BoardBuilder();
+			expectedBuilder.setStatistics(expectedStatistics);
+			
+			List<String[][]> expectedBoards = expectedBuilder.build(dictionary, template);
+			List<String[][]> boards = builder.build(dictionary, template);
+			
+			assertSameBoards(expectedBoards, boards);
+			assertEquals(expectedBuilder.count(dictionary, template), builder.count(dictionary, template));
+			assertTrue(sum(statistics.getCandidatesTried()) < sum(expectedStatistics.getCandidatesTried()));
+		}
+	}
+
+	private static boolean containsBoard(List<String[][]> boards, String[][] board) {
+		for(String[][] other : boards) {
+			if(Arrays.deepEquals(other, board)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+
+	private static long sum(long[] counts) {
+		long sum = 0;
+		
+		for(long count : counts) {
+			sum += count;
+		}
+		
+		return sum;
+	}
+}
@@ -0,0 +1,38 @@
+package fungoes.lexiku;
+
+import static fungoes.lexiku.Fixtures.fourLetterDictionary;
+import static fungoes.lexiku.Fixtures.smallDictionary;
+import static fungoes.lexiku.Fixtures.twoByTwo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+public class BoardReaderTest {
+
+	@Test(expected = IOException.class)
+	public void boardFilesOnlyReadWithTheirTemplate() throws Exception {
+		File file = File.createTempFile("boards", ".bin");
+		file.deleteOnExit();
+		
+		new BoardWriter(fourLetterDictionary(), twoByTwo(), file, false).close();
+		new BoardReader(fourLetterDictionary(), new Template(new StringReader("OOO\nOOO")), file).close();
+	}
+
+	@Test(expected = IOException.class)
+	public void boardFilesOnlyReadWithTheirDictionary() throws Exception {
+		Dictionary otherWords = new Dictionary();
+		otherWords.loadWords(new StringReader("c\nd\ncd\ndc\ndd\ncc\ncdc\ndcd\ncdd\nddc\ndcc\nccd"));
+		Template template = new Template(new StringReader("OOO\nOXO\nOOO"));
+		File file = File.createTempFile("boards", ".bin");
+		file.deleteOnExit();
+		
+		BoardWriter writer = new BoardWriter(smallDictionary(), template, file, false);
+		new BoardBuilder().build(smallDictionary(), template, writer);
+		writer.close();
+		
+		new BoardReader(otherWords, template, file).close();
+	}
+}
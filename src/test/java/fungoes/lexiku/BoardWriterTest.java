@@ -0,0 +1,48 @@
+package fungoes.lexiku;
+
+import static fungoes.lexiku.Fixtures.smallDictionary;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BoardWriterTest {
+
+	@Test
+	public void boardFilesReadBackTheBoardsWritten() throws Exception {
+		Dictionary dictionary = smallDictionary();
+		Template template = new Template(new StringReader("OOO\nOXO\nOOO"));
+		List<String[][]> boards = new BoardBuilder().build(dictionary, template);
+		
+		for(boolean compressed : new boolean[] {false, true}) {
+			File file = File.createTempFile("boards", ".bin");
+			file.deleteOnExit();
+			
+			BoardWriter writer = new BoardWriter(dictionary, template, file, compressed);
+			new BoardBuilder().build(dictionary, template, writer);
+			writer.close();
+			
+			assertEquals((long) boards.size(), writer.getBoardsWritten());
+			
+			BoardReader reader = new BoardReader(dictionary, template, file);
+			
+			try {
+				for(String[][] board : boards) {
+					assertTrue(reader.hasNext());
+					assertTrue(Arrays.deepEquals(board, reader.next()));
+				}
+				
+				assertFalse(reader.hasNext());
+			}
+			finally {
+				reader.close();
+			}
+		}
+	}
+}
@@ -1,183 +1,435 @@
-package fungoes.lexiku;
-
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertTrue;
-import static org.junit.Assert.fail;
-
-import java.io.StringReader;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
-
-import org.junit.Before;
-import org.junit.Test;
-
-public class DictionaryTest {
-	private static final String LETTER_WORDS = "aa\nbb\ncccc\ndddd\nee\nf";
-	private static final String TWO_ANIMALS = "zebra\nsnake";
-	private static final String THREE_ANIMALS = "dog\ncat\nbird";
-	private Dictionary dictionary;
-	
-	@Before
-	public void setup() {
-		dictionary = new Dictionary();
-	}
-
-	@Test
-	public void newDictionaryIsEmpty() {
-		assertTrue(dictionary.isEmpty());
-	}
-	
-	@Test
-	public void newDictionaryHasZeroSize() throws Exception {
-		assertEquals(0, dictionary.size());
-	}
-	
-	// TODO modify api to use Reader instead of BufferedReader
-	
-	@Test
-	public void emptyInputStreamDoesNotChangeSizeOrIfEmpty() throws Exception {
-		dictionary.loadWords(new StringReader(""));
-		
-		assertTrue(dictionary.isEmpty());
-		assertEquals(0, dictionary.size());
-	}
-	
-	@Test
-	public void loadingWordsCausesDictionaryToNotBeEmpty() throws Exception {
-		dictionary.loadWords(new StringReader(THREE_ANIMALS));
-		
-		assertFalse(dictionary.isEmpty());
-	}
-	
-	@Test
-	public void loadingWordsCausesSizeToChangeFromZero() throws Exception {
-		dictionary.loadWords(new StringReader(THREE_ANIMALS));
-		
-		assertEquals(3, dictionary.size());
-	}
-	
-	@Test
-	public void loadWordsIsAddative() throws Exception {
-		dictionary.loadWords(new StringReader(THREE_ANIMALS));
-		dictionary.loadWords(new StringReader(TWO_ANIMALS));
-		
-		assertEquals(5, dictionary.size());
-	}
-	
-	@Test
-	public void loadingTheSameWordTwiceInTheSameLoadResultsInOnlyOneEntry() throws Exception {
-		dictionary.loadWords(new StringReader("dog\ndog\ncat"));
-		
-		assertEquals(2, dictionary.size());
-		assertTrue(dictionary.isWordPresent("dog"));
-		assertTrue(dictionary.isWordPresent("cat"));
-	}
-	
-	@Test
-	public void loadingTheSameWordTwiceFromDifferentLoadsResultsInOnlyOneEntry() throws Exception {
-		dictionary.loadWords(new StringReader("dog\ncat"));
-		dictionary.loadWords(new StringReader("dog\ncat"));
-		
-		assertEquals(2, dictionary.size());
-		assertTrue(dictionary.isWordPresent("dog"));
-		assertTrue(dictionary.isWordPresent("cat"));
-	}
-	
-	@Test
-	public void unloadedWordsAreNotPresent() throws Exception {
-		dictionary.loadWords(new StringReader(TWO_ANIMALS));
-
-		assertFalse(dictionary.isWordPresent("monkey"));
-		assertFalse(dictionary.isWordPresent("goose"));
-	}
-	
-	@Test
-	public void canFindLoadedWords() throws Exception {
-		dictionary.loadWords(new StringReader(THREE_ANIMALS));
-		
-		assertTrue(dictionary.isWordPresent("dog"));
-		assertTrue(dictionary.isWordPresent("cat"));
-		assertTrue(dictionary.isWordPresent("bird"));
-	}
-	
-	@SuppressWarnings("serial")
-	@Test
-	public void dictionaryProvidesIterator() throws Exception {
-		Set<String> expectedWords = new HashSet<String>() {{
-			add("dog");
-			add("cat");
-			add("bird");
-			add("zebra");
-			add("snake");
-		}};
-		
-		dictionary.loadWords(new StringReader(THREE_ANIMALS));
-		dictionary.loadWords(new StringReader(TWO_ANIMALS));
-		
-		assertThatTheIterableHasTheSameValuesAsTheGivenSet(expectedWords, dictionary);
-	}
-
-	private void assertThatTheIterableHasTheSameValuesAsTheGivenSet(Set<String> expectedWords, Iterable<String> iterable)  {
-		for(String word : iterable) {
-			if(expectedWords.contains(word)) {
-				expectedWords.remove(word);
-			}
-			else {
-				fail("Unexpected word was found in the dictionary: " + word);
-			}
-		}
-		
-		if(expectedWords.size() != 0) {
-			fail("Not all of the expected words were iterated over by the dictionary: " + Arrays.toString(expectedWords.toArray(new String[expectedWords.size()])));
-		}
-	}
-	
-	@SuppressWarnings("serial")
-	@Test
-	public void dicationaryHasWordLengthIterators() throws Exception {
-		Set<String> expectedWords = new HashSet<String>() {{
-			add("aa");
-			add("bb");
-			add("ee");
-		}};
-		
-		dictionary.loadWords(new StringReader(LETTER_WORDS));
-		
-		assertThatTheIterableHasTheSameValuesAsTheGivenSet(expectedWords, dictionary.byLengthIterable(2));
-	}
-	
-	@Test
-	public void wordLengthIterablesAreValidButEmptyForWordLengthsWithNoWords() throws Exception {
-		dictionary.loadWords(new StringReader(LETTER_WORDS));
-		
-		Iterable<String> wordsByLength = dictionary.byLengthIterable(3);
-		
-		Iterator<String> iterator = wordsByLength.iterator();
-		assertFalse(iterator.hasNext());
-	}
-	
-	@Test
-	public void dictionaryKnowsIfWordsExistWithGivenPrefix() throws Exception {
-		dictionary.loadWords(new StringReader(THREE_ANIMALS));
-		dictionary.loadWords(new StringReader(TWO_ANIMALS));
-		
-		assertTrue(dictionary.containsPrefix("d", 3));
-		assertTrue(dictionary.containsPrefix("do", 3));
-		assertTrue(dictionary.containsPrefix("dog", 3));
-		assertTrue(dictionary.containsPrefix("c", 3));
-		assertTrue(dictionary.containsPrefix("sna", 5));
-		
-		assertFalse(dictionary.containsPrefix("z", 3));
-		assertFalse(dictionary.containsPrefix("jo", 3));
-		assertFalse(dictionary.containsPrefix("dogz", 3));
-		assertFalse(dictionary.containsPrefix("zdog", 4));
-		
-		assertFalse(dictionary.containsPrefix("d", 5));
-		assertFalse(dictionary.containsPrefix("do", 10));
-		assertFalse(dictionary.containsPrefix("do", 2));
-	}
-
-}
+package fungoes.lexiku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DictionaryTest {
+	private static final String LETTER_WORDS = "aa\nbb\ncccc\ndddd\nee\nf";
+	private static final String TWO_ANIMALS = "zebra\nsnake";
+	private static final String THREE_ANIMALS = "dog\ncat\nbird";
+	private Dictionary dictionary;
+	
+	@Before
+	public void setup() {
+		dictionary = new Dictionary();
+	}
+
+	@Test
+	public void newDictionaryIsEmpty() {
+		assertTrue(dictionary.isEmpty());
+	}
+	
+	@Test
+	public void newDictionaryHasZeroSize() throws Exception {
+		assertEquals(0, dictionary.size());
+	}
+	
+	// TODO modify api to use Reader instead of BufferedReader
+	
+	@Test
+	public void emptyInputStreamDoesNotChangeSizeOrIfEmpty() throws Exception {
+		dictionary.loadWords(new StringReader(""));
+		
+		assertTrue(dictionary.isEmpty());
+		assertEquals(0, dictionary.size());
+	}
+	
+	@Test
+	public void loadingWordsCausesDictionaryToNotBeEmpty() throws Exception {
+		dictionary.loadWords(new StringReader(THREE_ANIMALS));
+		
+		assertFalse(dictionary.isEmpty());
+	}
+	
+	@Test
+	public void loadingWordsCausesSizeToChangeFromZero() throws Exception {
+		dictionary.loadWords(new StringReader(THREE_ANIMALS));
+		
+		assertEquals(3, dictionary.size());
+	}
+	
+	@Test
+	public void loadWordsIsAddative() throws Exception {
+		dictionary.loadWords(new StringReader(THREE_ANIMALS));
+		dictionary.loadWords(new StringReader(TWO_ANIMALS));
+		
+		assertEquals(5, dictionary.size());
+	}
+	
+	@Test
+	public void loadingTheSameWordTwiceInTheSameLoadResultsInOnlyOneEntry() throws Exception {
+		dictionary.loadWords(new StringReader("dog\ndog\ncat"));
+		
+		assertEquals(2, dictionary.size());
+		assertTrue(dictionary.isWordPresent("dog"));
+		assertTrue(dictionary.isWordPresent("cat"));
+	}
+	
+	@Test
+	public void loadingTheSameWordTwiceFromDifferentLoadsResultsInOnlyOneEntry() throws Exception {
+		dictionary.loadWords(new StringReader("dog\ncat"));
+		dictionary.loadWords(new StringReader("dog\ncat"));
+		
+		assertEquals(2, dictionary.size());
+		assertTrue(dictionary.isWordPresent("dog"));
+		assertTrue(dictionary.isWordPresent("cat"));
+	}
+	
+	@Test
+	public void unloadedWordsAreNotPresent() throws Exception {
+		dictionary.loadWords(new StringReader(TWO_ANIMALS));
+
+		assertFalse(dictionary.isWordPresent("monkey"));
+		assertFalse(dictionary.isWordPresent("goose"));
+	}
+	
+	@Test
+	public void canFindLoadedWords() throws Exception {
+		dictionary.loadWords(new StringReader(THREE_ANIMALS));
+		
+		assertTrue(dictionary.isWordPresent("dog"));
+		assertTrue(dictionary.isWordPresent("cat"));
+		assertTrue(dictionary.isWordPresent("bird"));
+	}
+	
+	@SuppressWarnings("serial")
+	@Test
+	public void dictionaryProvidesIterator() throws Exception {
+		Set<String> expectedWords = new HashSet<String>() {{
+			add("dog");
+			add("cat");
+			add("bird");
+			add("zebra");
+			add("snake");
+		}};
+		
+		dictionary.loadWords(new StringReader(THREE_ANIMALS));
+		dictionary.loadWords(new StringReader(TWO_ANIMALS));
+		
+		assertThatTheIterableHasTheSameValuesAsTheGivenSet(expectedWords, dictionary);
+	}
+
+	private void assertThatTheIterableHasTheSameValuesAsTheGivenSet(Set<String> expectedWords, Iterable<String> iterable)  {
+		for(String word : iterable) {
+			if(expectedWords.contains(word)) {
+				expectedWords.remove(word);
+			}
+			else {
+				fail("Unexpected word was found in the dictionary: " + word);
+			}
+		}
+		
+		if(expectedWords.size() != 0) {
+			fail("Not all of the expected words were iterated over by the dictionary: " + Arrays.toString(expectedWords.toArray(new String[expectedWords.size()])));
+		}
+	}
+	
+	@SuppressWarnings("serial")
+	@Test
+	public void dicationaryHasWordLengthIterators() throws Exception {
+		Set<String> expectedWords = new HashSet<String>() {{
+			add("aa");
+			add("bb");
+			add("ee");
+		}};
+		
+		dictionary.loadWords(new StringReader(LETTER_WORDS));
+		
+		assertThatTheIterableHasTheSameValuesAsTheGivenSet(expectedWords, dictionary.byLengthIterable(2));
+	}
+	
+	@Test
+	public void wordLengthIterablesAreValidButEmptyForWordLengthsWithNoWords() throws Exception {
+		dictionary.loadWords(new StringReader(LETTER_WORDS));
+		
+		Iterable<String> wordsByLength = dictionary.byLengthIterable(3);
+		
+		Iterator<String> iterator = wordsByLength.iterator();
+		assertFalse(iterator.hasNext());
+	}
+	
+	@Test
+	public void dictionaryKnowsIfWordsExistWithGivenPrefix() throws Exception {
+		dictionary.loadWords(new StringReader(THREE_ANIMALS));
+		dictionary.loadWords(new StringReader(TWO_ANIMALS));
+		
+		assertTrue(dictionary.containsPrefix("d", 3));
+		assertTrue(dictionary.containsPrefix("do", 3));
+		assertTrue(dictionary.containsPrefix("dog", 3));
+		assertTrue(dictionary.containsPrefix("c", 3));
+		assertTrue(dictionary.containsPrefix("sna", 5));
+		
+		assertFalse(dictionary.containsPrefix("z", 3));
+		assertFalse(dictionary.containsPrefix("jo", 3));
+		assertFalse(dictionary.containsPrefix("dogz", 3));
+		assertFalse(dictionary.containsPrefix("zdog", 4));
+		
+		assertFalse(dictionary.containsPrefix("d", 5));
+		assertFalse(dictionary.containsPrefix("do", 10));
+		assertFalse(dictionary.containsPrefix("do", 2));
+	}
+
+	@Test
+	public void prefixTriesAreRebuiltWhenMoreWordsAreLoaded() throws Exception {
+		dictionary.loadWords(new StringReader(THREE_ANIMALS));
+		
+		assertEquals(2, dictionary.prefixTrie(3).wordCount());
+		assertFalse(dictionary.containsPrefix("ze", 5));
+		
+		dictionary.loadWords(new StringReader(TWO_ANIMALS));
+		
+		assertEquals(2, dictionary.prefixTrie(5).wordCount());
+		assertTrue(dictionary.containsPrefix("ze", 5));
+		assertEquals(PrefixTrie.NO_NODE, dictionary.prefixTrie(7).root());
+	}
+
+	@SuppressWarnings("serial")
+	@Test
+	public void compiledDictionaryLoadsTheSameWords() throws Exception {
+		Set<String> expectedWords = new HashSet<String>() {{
+			add("dog");
+			add("cat");
+			add("bird");
+			add("zebra");
+			add("snake");
+		}};
+		
+		dictionary.loadWords(new StringReader(THREE_ANIMALS));
+		dictionary.loadWords(new StringReader(TWO_ANIMALS));
+		
+		File image = File.createTempFile("dictionary", ".lxd");
+		image.deleteOnExit();
+		dictionary.compile(image);
+		
+		Dictionary compiled = new Dictionary();
+		compiled.loadCompiled(image);
+		
+		assertEquals(5, compiled.size());
+		assertTrue(compiled.isWordPresent("zebra"));
+		assertFalse(compiled.isWordPresent("zebr"));
+		assertTrue(compiled.containsPrefix("bi", 4));
+		assertFalse(compiled.containsPrefix("bi", 3));
+		assertEquals(Arrays.asList("cat", "dog"), compiled.prefixTrie(3).words());
+		assertThatTheIterableHasTheSameValuesAsTheGivenSet(expectedWords, compiled);
+	}
+
+	@Test
+	public void offHeapDictionariesAnswerLikeTheHeapDictionary() throws Exception {
+		dictionary.loadWords(new StringReader(THREE_ANIMALS));
+		dictionary.loadWords(new StringReader(TWO_ANIMALS + "\n\u0436\u0443\u043a\nbee"));
+		
+		File image = File.createTempFile("dictionary", ".lxd");
+		image.deleteOnExit();
+		dictionary.compile(image);
+		
+		for(Dictionary offHeap : new Dictionary[] {dictionary.offHeapCopy(), Dictionary.offHeap(image)}) {
+			assertTrue(offHeap.isImmutable());
+			assertEquals(dictionary.size(), offHeap.size());
+			assertEquals(dictionary.contentHash(), offHeap.contentHash());
+			assertTrue(offHeap.isWordPresent("zebra"));
+			assertTrue(offHeap.isWordPresent("\u0436\u0443\u043a"));
+			assertFalse(offHeap.isWordPresent("zebr"));
+			assertTrue(offHeap.containsPrefix("bi", 4));
+			assertFalse(offHeap.containsPrefix("bi", 3));
+			assertEquals(dictionary.prefixTrie(3).words(), offHeap.prefixTrie(3).words());
+			
+			for(int id = 0; id < dictionary.size(); id++) {
+				assertEquals(dictionary.word(id), offHeap.word(id));
+				assertEquals(id, offHeap.wordId(dictionary.word(id)));
+			}
+		}
+	}
+
+	@Test
+	public void triesReadLettersLikeTheirWords() throws Exception {
+		dictionary.loadWords(new StringReader(THREE_ANIMALS));
+		dictionary.loadWords(new StringReader(TWO_ANIMALS + "\n\u0436\u0443\u043a\nbee"));
+		
+		File image = File.createTempFile("dictionary", ".lxd");
+		image.deleteOnExit();
+		dictionary.compile(image);
+		
+		Dictionary compiled = new Dictionary();
+		compiled.loadCompiled(image);
+		
+		for(Dictionary words : new Dictionary[] {dictionary, compiled, dictionary.offHeapCopy(), Dictionary.offHeap(image)}) {
+			for(int length = 3; length <= 5; length++) {
+				PrefixTrie trie = words.prefixTrie(length);
+				
+				for(int index = 0; index < trie.wordCount(); index++) {
+					for(int offset = 0; offset < length; offset++) {
+						assertEquals(dictionary.prefixTrie(length).wordAt(index).charAt(offset), trie.letterAt(index, offset));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void wordsCanBeAddedToACompiledDictionary() throws Exception {
+		dictionary.loadWords(new StringReader(THREE_ANIMALS));
+		
+		File image = File.createTempFile("dictionary", ".lxd");
+		image.deleteOnExit();
+		dictionary.compile(image);
+		
+		Dictionary compiled = new Dictionary();
+		compiled.loadCompiled(image);
+		compiled.loadWords(new StringReader("dog\ncow"));
+		compiled.loadCompiled(image);
+		
+		assertEquals(4, compiled.size());
+		assertEquals(Arrays.asList("cat", "cow", "dog"), compiled.prefixTrie(3).words());
+	}
+
+	@Test
+	public void wordIdsAreDenseAndContiguousByLength() throws Exception {
+		dictionary.loadWords(new StringReader(LETTER_WORDS));
+		
+		assertEquals(0, dictionary.wordId("f"));
+		assertEquals(1, dictionary.firstWordId(2));
+		assertEquals(1, dictionary.wordId("aa"));
+		assertEquals(2, dictionary.wordId("bb"));
+		assertEquals(3, dictionary.wordId("ee"));
+		assertEquals(4, dictionary.firstWordId(3));
+		assertEquals(4, dictionary.firstWordId(4));
+		assertEquals(5, dictionary.wordId("dddd"));
+		assertEquals(Dictionary.NO_WORD, dictionary.wordId("ff"));
+		
+		for(int id = 0; id < dictionary.size(); id++) {
+			assertEquals(id, dictionary.wordId(dictionary.word(id)));
+		}
+	}
+
+	@Test
+	public void wordIdsFollowNewWords() throws Exception {
+		dictionary.loadWords(new StringReader(THREE_ANIMALS));
+		dictionary.loadWords(new StringReader("ant\nbird"));
+		
+		assertEquals(4, dictionary.size());
+		assertEquals(0, dictionary.wordId("ant"));
+		assertEquals(3, dictionary.wordId("bird"));
+		assertEquals("dog", dictionary.word(2));
+	}
+
+	@Test
+	public void wordListFilesLoadInChunksLikeAReader() throws Exception {
+		String wordList = "Dog\r\ncat\rBIRD\n\ndog\r\nzebra\ncow\nsnake\ncat\nant";
+		dictionary.loadWords(new StringReader("cow\nelephant"));
+		
+		File file = File.createTempFile("words", ".txt");
+		file.deleteOnExit();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		writer.write(wordList);
+		writer.close();
+		
+		Dictionary chunked = new Dictionary();
+		chunked.loadWords(new StringReader("cow\nelephant"));
+		chunked.loadWords(file, Charset.forName("UTF-8"), 4, 8);
+		dictionary.loadWords(new StringReader(wordList));
+		
+		assertEquals(dictionary.size(), chunked.size());
+		
+		for(int id = 0; id < dictionary.size(); id++) {
+			assertEquals(dictionary.word(id), chunked.word(id));
+		}
+	}
+
+	@Test
+	public void contentHashDependsOnTheWordsAlone() throws Exception {
+		Dictionary dictionary = new Dictionary();
+		dictionary.loadWords(new StringReader("cow\nelephant\nant"));
+		
+		Dictionary reordered = new Dictionary();
+		reordered.loadWords(new StringReader("ant"));
+		reordered.loadWords(new StringReader("elephant\ncow\nant"));
+		
+		assertEquals(dictionary.contentHash(), reordered.contentHash());
+		
+		reordered.loadWords(new StringReader("bee"));
+		
+		assertFalse(dictionary.contentHash().equals(reordered.contentHash()));
+	}
+
+	@Test
+	public void pruningKeepsTheWordsWhichCross() throws Exception {
+		dictionary.loadWords(new StringReader("ab\nba\nbb\nxy\nabc\nz"));
+		
+		Dictionary pruned = dictionary.prunedFor(new Template(new StringReader("OO\nOO")));
+		Set<String> words = new HashSet<String>();
+		
+		for(String word : pruned) {
+			words.add(word);
+		}
+		
+		assertTrue(pruned.isImmutable());
+		assertFalse(dictionary.isImmutable());
+		assertEquals(new HashSet<String>(Arrays.asList("ab", "ba", "bb")), words);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void prunedDictionaryCannotLoadWords() throws Exception {
+		dictionary.loadWords(new StringReader("ab\nba"));
+		dictionary.prunedFor(new Template(new StringReader("OO\nOO"))).loadWords(new StringReader("cd"));
+	}
+
+	@Test
+	public void matchFindsTheWordsOfAPattern() throws Exception {
+		StringBuilder words = new StringBuilder("bee\nhive\n");
+		
+		for(char first = 'a'; first <= 'e'; first++) {
+			for(char second = 'a'; second <= 'e'; second++) {
+				for(char third = 'a'; third <= 'e'; third++) {
+					words.append(first).append(second).append(third).append('\n');
+				}
+			}
+		}
+		
+		dictionary.loadWords(new StringReader(words.toString()));
+		
+		for(String pattern : new String[] {"???", "a?b", "[ae]?[bc]", "B[AE]?", "?x?", "[xe]e[e]", "??", "????", "h[aeiou]v?"}) {
+			List<String> expected = new ArrayList<String>();
+			
+			for(String word : dictionary) {
+				if(word.matches(pattern.toLowerCase().replace('?', '.'))) {
+					expected.add(word);
+				}
+			}
+			
+			List<String> matched = new ArrayList<String>();
+			
+			for(String word : dictionary.match(pattern)) {
+				matched.add(word);
+			}
+			
+			assertEquals(pattern, expected, matched);
+			assertEquals(pattern, expected.size(), dictionary.match(pattern).count());
+			assertEquals(pattern, expected.isEmpty(), dictionary.match(pattern).isEmpty());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void matchNeedsClosedBrackets() throws Exception {
+		dictionary.loadWords(new StringReader(THREE_ANIMALS));
+		dictionary.match("c[ao");
+	}
+
+}
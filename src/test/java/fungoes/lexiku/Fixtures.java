@@ -0,0 +1,39 @@
+package fungoes.lexiku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+final class Fixtures {
+
+	private Fixtures() {
+	}
+
+	static void assertSameBoards(List<String[][]> expectedBoards, List<String[][]> boards) {
+		assertEquals(expectedBoards.size(), boards.size());
+		
+		for(int i = 0; i < expectedBoards.size(); i++) {
+			assertTrue(Arrays.deepEquals(expectedBoards.get(i), boards.get(i)));
+		}
+	}
+
+	static Dictionary smallDictionary() throws IOException {
+		Dictionary dictionary = new Dictionary();
+		dictionary.loadWords(new StringReader("a\nb\nab\nba\nbb\naa\naba\nbab\nabb\nbba\nbaa\naab"));
+		return dictionary;
+	}
+
+	static Dictionary fourLetterDictionary() throws IOException {
+		Dictionary dictionary = new Dictionary();
+		dictionary.loadWords(new StringReader("ab\nbc\nad\ndc\nba\ncb\nda\ncd\nbb\ndd\naa\ncc"));
+		return dictionary;
+	}
+
+	static Template twoByTwo() throws IOException {
+		return new Template(new StringReader("OO\nOO"));
+	}
+}
@@ -0,0 +1,91 @@
+package fungoes.lexiku;
+
+import static fungoes.lexiku.Fixtures.fourLetterDictionary;
+import static fungoes.lexiku.Fixtures.twoByTwo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LexikuServerTest {
+
+	@Test
+	public void serverAnswersEveryRequest() throws Exception {
+		LexikuServer server = new LexikuServer(fourLetterDictionary(), 2, 16);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		
+		try {
+			server.serve(new ByteArrayInputStream("count one\nOO\nOO\n\nboards two\nOO\nOO\n\nboards three\nOO\nO\n\nquit\n".getBytes(StandardCharsets.UTF_8)), output);
+		}
+		finally {
+			server.close();
+		}
+		
+		int boards = new BoardBuilder().build(fourLetterDictionary(), twoByTwo()).size();
+		List<String> lines = Arrays.asList(new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n"));
+		int boardLines = 0;
+		
+		for(String line : lines) {
+			if(line.startsWith("board two ")) {
+				boardLines++;
+			}
+		}
+		
+		assertEquals(boards, boardLines);
+		assertTrue(containsPrefix(lines, "done one " + boards + " "));
+		assertTrue(containsPrefix(lines, "done two " + boards + " "));
+		assertTrue(containsPrefix(lines, "error three "));
+		assertEquals(2L, server.getStatistics().getCompletedRequests());
+		assertEquals(1L, server.getStatistics().getFailedRequests());
+	}
+
+	@Test
+	public void serverCancelsRequestsWhenTheInputEnds() throws Exception {
+		StringBuilder words = new StringBuilder();
+		
+		for(char first = 'a'; first <= 'j'; first++) {
+			for(char second = 'a'; second <= 'j'; second++) {
+				for(char third = 'a'; third <= 'j'; third++) {
+					words.append(first).append(second).append(third).append('\n');
+				}
+			}
+		}
+		
+		Dictionary dictionary = new Dictionary();
+		dictionary.loadWords(new StringReader(words.toString()));
+		LexikuServer server = new LexikuServer(dictionary, 1, 16);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		
+		try {
+			server.serve(new ByteArrayInputStream("boards all\nOOO\nOOO\nOOO\n\n".getBytes(StandardCharsets.UTF_8)), output);
+		}
+		finally {
+			server.close();
+		}
+		
+		List<String> lines = Arrays.asList(new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n"));
+		
+		assertTrue(lines.contains("cancelled all"));
+		assertFalse(containsPrefix(lines, "done all "));
+		assertEquals(0L, server.getStatistics().getCompletedRequests());
+		assertEquals(1L, server.getStatistics().getCancelledRequests());
+	}
+
+	private static boolean containsPrefix(List<String> lines, String prefix) {
+		for(String line : lines) {
+			if(line.startsWith(prefix)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+}
@@ -0,0 +1,54 @@
+package fungoes.lexiku;
+
+import static fungoes.lexiku.Fixtures.fourLetterDictionary;
+import static fungoes.lexiku.Fixtures.twoByTwo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PackedBoardsTest {
+
+	@Test
+	public void packedBoardsDecodeToTheBoardsBuilt() throws Exception {
+		Dictionary dictionary = fourLetterDictionary();
+		List<String[][]> boards = new BoardBuilder().build(dictionary, twoByTwo());
+		PackedBoards packed = new PackedBoards(dictionary, twoByTwo());
+		
+		new BoardBuilder().build(dictionary, twoByTwo(), packed);
+		
+		assertEquals(boards.size(), packed.size());
+		assertEquals(1, new BoardEncoding(dictionary, twoByTwo()).bytesPerBoard());
+		
+		for(int i = 0; i < boards.size(); i++) {
+			assertTrue(Arrays.deepEquals(boards.get(i), packed.get(i)));
+		}
+	}
+
+	@Test
+	public void packedBoardsKeepNothingOfABoardTheyCannotEncode() throws Exception {
+		Dictionary dictionary = fourLetterDictionary();
+		List<String[][]> boards = new BoardBuilder().build(dictionary, twoByTwo());
+		String[][] board = boards.get(boards.size() - 1);
+		PackedBoards packed = new PackedBoards(dictionary, twoByTwo());
+		
+		for(String[][] unencodable : new String[][][] {{{"x", "a"}, {"x", "a"}}, {{"a", "b"}}}) {
+			try {
+				packed.add(unencodable);
+				fail();
+			}
+			catch(RuntimeException e) {
+				// neither word is in the dictionary, or the board is too small
+			}
+		}
+		
+		packed.add(board);
+		
+		assertEquals(1, packed.size());
+		assertTrue(Arrays.deepEquals(board, packed.get(0)));
+	}
+}
@@ -0,0 +1,66 @@
+package fungoes.lexiku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class PrefixTrieTest {
+	private static final PrefixTrie ANIMALS = new PrefixTrie(3, Arrays.asList("ant", "bat", "bee", "cat", "cow"));
+
+	@Test
+	public void emptyTrieHasNoRoot() throws Exception {
+		PrefixTrie trie = new PrefixTrie(4, Collections.<String>emptyList());
+		
+		assertEquals(PrefixTrie.NO_NODE, trie.root());
+		assertEquals(0, trie.wordCount());
+		assertEquals(PrefixTrie.NO_NODE, trie.walk(trie.root(), ""));
+	}
+
+	@Test
+	public void walkingWholeWordsEndsOnWordNodes() throws Exception {
+		assertEquals(5, ANIMALS.wordCount());
+		
+		for(String word : Arrays.asList("ant", "bat", "bee", "cat", "cow")) {
+			assertTrue(ANIMALS.isWord(ANIMALS.walk(ANIMALS.root(), word)));
+		}
+	}
+
+	@Test
+	public void prefixesAreNotWords() throws Exception {
+		int node = ANIMALS.walk(ANIMALS.root(), "be");
+		
+		assertTrue(node != PrefixTrie.NO_NODE);
+		assertFalse(ANIMALS.isWord(node));
+		assertFalse(ANIMALS.isWord(ANIMALS.root()));
+	}
+
+	@Test
+	public void unknownLettersLeaveTheTrie() throws Exception {
+		assertEquals(PrefixTrie.NO_NODE, ANIMALS.walk(ANIMALS.root(), "d"));
+		assertEquals(PrefixTrie.NO_NODE, ANIMALS.walk(ANIMALS.root(), "bo"));
+		assertEquals(PrefixTrie.NO_NODE, ANIMALS.walk(ANIMALS.root(), "cats"));
+		assertEquals(PrefixTrie.NO_NODE, ANIMALS.child(PrefixTrie.NO_NODE, 'a'));
+	}
+
+	@Test
+	public void walksCanBeResumedFromStoredNodes() throws Exception {
+		int c = ANIMALS.child(ANIMALS.root(), 'c');
+		
+		assertEquals(ANIMALS.walk(ANIMALS.root(), "cat"), ANIMALS.walk(c, "at"));
+		assertEquals(ANIMALS.walk(ANIMALS.root(), "cow"), ANIMALS.child(ANIMALS.child(c, 'o'), 'w'));
+		assertEquals('o', ANIMALS.letter(ANIMALS.child(c, 'o')));
+	}
+
+	@Test
+	public void wordNodesKnowTheirWords() throws Exception {
+		assertEquals("bee", ANIMALS.word(ANIMALS.walk(ANIMALS.root(), "bee")));
+		assertEquals("ant", ANIMALS.wordAt(0));
+		assertEquals("cow", ANIMALS.wordAt(4));
+	}
+
+}
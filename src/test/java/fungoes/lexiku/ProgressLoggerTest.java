@@ -0,0 +1,51 @@
+package fungoes.lexiku;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ProgressLoggerTest {
+
+	@Test
+	public void progressLineShowsHowFarAlongTheEstimateIs() throws Exception {
+		SearchStatistics statistics = new SearchStatistics();
+		statistics.setEstimate(new SearchEstimate(1, 4, 1, 4, 4, 1));
+		
+		assertTrue(visitNode(statistics).contains("25.0% of 4.00 estimated nodes"));
+	}
+
+	@Test
+	public void progressLineLeavesOutAnEstimateOfNoNodes() throws Exception {
+		for(double nodes : new double[] {0, Double.NaN}) {
+			SearchStatistics statistics = new SearchStatistics();
+			statistics.setEstimate(new SearchEstimate(1, nodes, 0, 0, 0, 1));
+			String line = visitNode(statistics);
+			
+			assertFalse(line.contains("%"));
+			assertFalse(line.contains("NaN"));
+			assertFalse(line.contains("Infinity"));
+		}
+	}
+
+	/**
+	 * @return progress line once the statistics have visited one node and some time has passed
+	 */
+	private static String visitNode(SearchStatistics statistics) throws InterruptedException {
+		statistics.searchStarted(1);
+		statistics.nodeVisited();
+		Thread.sleep(2);
+		
+		ProgressLogger logger = new ProgressLogger(statistics, System.err, 1, TimeUnit.HOURS);
+		
+		try {
+			return logger.progressLine();
+		}
+		finally {
+			logger.close();
+		}
+	}
+
+}
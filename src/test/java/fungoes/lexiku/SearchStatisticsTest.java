@@ -0,0 +1,68 @@
+package fungoes.lexiku;
+
+import static fungoes.lexiku.Fixtures.fourLetterDictionary;
+import static fungoes.lexiku.Fixtures.twoByTwo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class SearchStatisticsTest {
+
+	@Test
+	public void statisticsCountNodesAndBoards() throws Exception {
+		SearchStatistics statistics = new SearchStatistics();
+		BoardBuilder builder = new BoardBuilder();
+		builder.setStatistics(statistics);
+		
+		List<String[][]> boards = builder.build(fourLetterDictionary(), twoByTwo());
+		
+		assertEquals((long) boards.size(), statistics.getBoards());
+		assertTrue(statistics.getNodes() > boards.size());
+	}
+
+	@Test
+	public void statisticsCountCandidatesByDepth() throws Exception {
+		SearchStatistics statistics = new SearchStatistics();
+		BoardBuilder builder = new BoardBuilder();
+		builder.setStatistics(statistics);
+		
+		builder.build(fourLetterDictionary(), twoByTwo());
+		
+		long[] tried = statistics.getCandidatesTried();
+		long[] prefixRejections = statistics.getVerticalPrefixRejections();
+		long[] duplicateRejections = statistics.getDuplicateWordRejections();
+		
+		assertEquals(2, tried.length);
+		assertEquals(12L, tried[0]);
+		assertEquals(0L, prefixRejections[0] + duplicateRejections[0]);
+		assertEquals(12L * 12, tried[1]);
+		assertTrue(prefixRejections[1] > 0);
+		assertEquals(statistics.getNodes(), tried[0] + tried[1] - prefixRejections[1] - duplicateRejections[1]);
+	}
+
+	@Test
+	public void statisticsCanBeReadThroughJmx() throws Exception {
+		SearchStatistics statistics = new SearchStatistics();
+		statistics.register("fungoes.lexiku:type=SearchStatistics,name=SearchStatisticsTest");
+		
+		BoardBuilder builder = new BoardBuilder();
+		builder.setStatistics(statistics);
+		List<String[][]> boards = builder.build(fourLetterDictionary(), twoByTwo());
+		
+		ObjectName name = new ObjectName("fungoes.lexiku:type=SearchStatistics,name=SearchStatisticsTest");
+		
+		try {
+			assertEquals((long) boards.size(), ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Boards"));
+			assertEquals(12L, ((long[]) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "CandidatesTried"))[0]);
+		}
+		finally {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}
+	}
+}
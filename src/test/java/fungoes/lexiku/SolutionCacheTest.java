@@ -0,0 +1,115 @@
+package fungoes.lexiku;
+
+import static fungoes.lexiku.Fixtures.assertSameBoards;
+import static fungoes.lexiku.Fixtures.fourLetterDictionary;
+import static fungoes.lexiku.Fixtures.twoByTwo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Test;
+
+public class SolutionCacheTest {
+
+	@Test
+	public void solutionCacheAnswersRepeatedSearches() throws Exception {
+		File directory = Files.createTempDirectory("solutions").toFile();
+		directory.deleteOnExit();
+		SolutionCache cache = new SolutionCache(directory, 1 << 20);
+		
+		BoardBuilder builder = new BoardBuilder();
+		builder.setSolutionCache(cache);
+		List<String[][]> boards = builder.build(fourLetterDictionary(), twoByTwo());
+		BigInteger count = builder.count(fourLetterDictionary(), twoByTwo());
+		
+		SearchStatistics statistics = new SearchStatistics();
+		BoardBuilder cached = new BoardBuilder(2);
+		cached.setSolutionCache(cache);
+		cached.setStatistics(statistics);
+		List<String[][]> cachedBoards = cached.build(fourLetterDictionary(), twoByTwo());
+		
+		assertEquals(0L, statistics.getNodes());
+		assertEquals(count, cached.count(fourLetterDictionary(), twoByTwo()));
+		assertEquals(BigInteger.valueOf(boards.size()), count);
+		assertSameBoards(boards, cachedBoards);
+		
+		for(File entry : directory.listFiles()) {
+			entry.deleteOnExit();
+		}
+	}
+
+	@Test
+	public void solutionCacheKeepsOnlyWhatFits() throws Exception {
+		File directory = Files.createTempDirectory("solutions").toFile();
+		directory.deleteOnExit();
+		BoardBuilder builder = new BoardBuilder();
+		builder.setSolutionCache(new SolutionCache(directory, 8));
+		builder.build(fourLetterDictionary(), twoByTwo());
+		
+		assertEquals(0, directory.listFiles().length);
+		
+		builder.setNodeBudget(2);
+		builder.setSolutionCache(new SolutionCache(directory, 1 << 20));
+		builder.build(fourLetterDictionary(), twoByTwo());
+		
+		assertEquals(0, directory.listFiles().length);
+	}
+
+	@Test
+	public void solutionCacheKeepsOnlyFinishedCounts() throws Exception {
+		File directory = Files.createTempDirectory("solutions").toFile();
+		directory.deleteOnExit();
+		BoardBuilder builder = new BoardBuilder();
+		builder.setSolutionCache(new SolutionCache(directory, 1 << 20));
+		builder.setNodeBudget(1);
+		
+		try {
+			builder.count(fourLetterDictionary(), twoByTwo());
+			fail();
+		}
+		catch(CancellationException e) {
+			// stopped before the end
+		}
+		
+		assertEquals(0, directory.listFiles().length);
+		
+		builder.setNodeBudget(Long.MAX_VALUE);
+		
+		assertEquals(new BoardBuilder().count(fourLetterDictionary(), twoByTwo()), builder.count(fourLetterDictionary(), twoByTwo()));
+		assertEquals(1, directory.listFiles().length);
+		
+		for(File entry : directory.listFiles()) {
+			entry.deleteOnExit();
+		}
+	}
+
+	@Test
+	public void solutionCacheDeletesStaleTemporaryFiles() throws Exception {
+		File directory = Files.createTempDirectory("solutions").toFile();
+		directory.deleteOnExit();
+		File stale = new File(directory, "stale.tmp");
+		File recent = new File(directory, "recent.tmp");
+		Files.write(stale.toPath(), new byte[100]);
+		Files.write(recent.toPath(), new byte[100]);
+		stale.setLastModified(System.currentTimeMillis() - 2 * 60 * 60 * 1000);
+		recent.deleteOnExit();
+		
+		BoardBuilder builder = new BoardBuilder();
+		builder.setSolutionCache(new SolutionCache(directory, 1 << 20));
+		builder.count(fourLetterDictionary(), twoByTwo());
+		
+		assertFalse(stale.exists());
+		assertTrue(recent.exists());
+		
+		for(File entry : directory.listFiles()) {
+			entry.deleteOnExit();
+		}
+	}
+}
@@ -1,142 +1,215 @@
-package fungoes.lexiku;
-
-import static org.junit.Assert.assertEquals;
-
-import java.io.IOException;
-import java.io.StringReader;
-import java.util.List;
-
-import org.junit.Test;
-
-public class TemplateTest {
-	private static final String WRONG_SIZE_BOARD = "OOOO\nOXXO\nOO\nOO";
-	private static final String MEDIUM_BOARD = "OOOOO\nOXXXO\nOXXXO\nOOOOO";
-	private static final String SMALL_BOARD = "OOOO\nOXXO\nOXXO";
-	private static final String LARGE_BOARD = "XOOOXXOOOX" + "\n" +
-												"OOOOOOOOOO" + "\n" + 
-												"OOOOOOOOOO" + "\n" + 
-												"OOOOOOOOOO" + "\n" + 
-												"XOOOXXOOOX" + "\n" + 
-												"XOOOXXOOOX" + "\n" + 
-												"OOOOOOOOOO" + "\n" + 
-												"OOOOOOOOOO" + "\n" + 
-												"OOOOOOOOOO" + "\n" + 
-												"XOOOXXOOOX";
-	
-	@Test(expected = IOException.class)
-	public void allTemplateLinesMustHaveTheSameLength() throws Exception {
-		new Template(new StringReader(WRONG_SIZE_BOARD));
-	}
-	
-	@Test
-	public void heightAndWidthAreComputedFromTemplate() throws Exception {
-		Template template = new Template(new StringReader(MEDIUM_BOARD));
-		
-		assertEquals(5, template.getWidth());
-		assertEquals(4, template.getHeight());
-	}
-	
-	@Test(expected = IndexOutOfBoundsException.class)
-	public void pastBoundsThrowsException() throws Exception {
-		Template template = new Template(new StringReader(SMALL_BOARD));
-		template.checkTile(20, 20);
-	}
-	
-	@Test(expected = IndexOutOfBoundsException.class)
-	public void negativeTileLocationThrowsException() throws Exception {
-		Template template = new Template(new StringReader(SMALL_BOARD));
-		template.checkTile(-20, -20);
-	}
-	
-	@Test
-	public void templateIsLoadedCorrectly() throws Exception {
-		Template template = new Template(new StringReader(SMALL_BOARD));
-		
-		assertEquals(4, template.getWidth());
-		assertEquals(3, template.getHeight());
-		
-		assertEquals(TileType.Open, template.checkTile(0, 0));
-		assertEquals(TileType.Open, template.checkTile(1, 0));
-		assertEquals(TileType.Open, template.checkTile(2, 0));
-		assertEquals(TileType.Open, template.checkTile(3, 0));
-		
-		assertEquals(TileType.Open, template.checkTile(0, 1));
-		assertEquals(TileType.Closed, template.checkTile(1, 1));
-		assertEquals(TileType.Closed, template.checkTile(2, 1));
-		assertEquals(TileType.Open, template.checkTile(3, 1));
-		
-		assertEquals(TileType.Open, template.checkTile(0, 2));
-		assertEquals(TileType.Closed, template.checkTile(1, 2));
-		assertEquals(TileType.Closed, template.checkTile(2, 2));
-		assertEquals(TileType.Open, template.checkTile(3, 2));
-	}
-	
-	@Test
-	public void findsHorizontalWordStartingPointsLeftToRightTopToBottom() throws Exception {
-		Template template = new Template(new StringReader(LARGE_BOARD));
-		
-		assertEquals(10, template.getWidth());
-		assertEquals(10, template.getHeight());
-		
-		List<StartingPoint> startingPoints = template.horizontalStartingPoints();
-		
-		assertEquals(14, startingPoints.size());
-		assertEquals(new StartingPoint(1, 0, 3), startingPoints.get(0));
-		assertEquals(new StartingPoint(6, 0, 3), startingPoints.get(1));
-		assertEquals(new StartingPoint(0, 1, 10), startingPoints.get(2));
-		assertEquals(new StartingPoint(0, 2, 10), startingPoints.get(3));
-		assertEquals(new StartingPoint(0, 3, 10), startingPoints.get(4));
-		assertEquals(new StartingPoint(1, 4, 3), startingPoints.get(5));
-		assertEquals(new StartingPoint(6, 4, 3), startingPoints.get(6));
-		assertEquals(new StartingPoint(1, 5, 3), startingPoints.get(7));
-		assertEquals(new StartingPoint(6, 5, 3), startingPoints.get(8));
-		assertEquals(new StartingPoint(0, 6, 10), startingPoints.get(9));
-		assertEquals(new StartingPoint(0, 7, 10), startingPoints.get(10));
-		assertEquals(new StartingPoint(0, 8, 10), startingPoints.get(11));
-		assertEquals(new StartingPoint(1, 9, 3), startingPoints.get(12));
-		assertEquals(new StartingPoint(6, 9, 3), startingPoints.get(13));
-	}
-	
-	@Test
-	public void singleLetterHorizontalWordsAreReturned() throws Exception {
-		Template template = new Template(new StringReader(MEDIUM_BOARD));
-		
-		List<StartingPoint> startingPoints = template.horizontalStartingPoints();
-		
-		assertEquals(6, startingPoints.size());
-		assertEquals(new StartingPoint(0, 0, 5), startingPoints.get(0));
-		assertEquals(new StartingPoint(0, 1, 1), startingPoints.get(1));
-		assertEquals(new StartingPoint(4, 1, 1), startingPoints.get(2));
-		assertEquals(new StartingPoint(0, 2, 1), startingPoints.get(3));
-		assertEquals(new StartingPoint(4, 2, 1), startingPoints.get(4));
-		assertEquals(new StartingPoint(0, 3, 5), startingPoints.get(5));
-	}
-	
-	@Test
-	public void findsVerticalWordLengthsForGivenPointsOnSmallerBoard() throws Exception {
-		Template template = new Template(new StringReader(MEDIUM_BOARD));
-		
-		assertEquals(4, template.verticalWordLengthFor(0, 0));
-		assertEquals(4, template.verticalWordLengthFor(0, 1));
-		assertEquals(4, template.verticalWordLengthFor(0, 2));
-		assertEquals(4, template.verticalWordLengthFor(0, 3));
-		assertEquals(1, template.verticalWordLengthFor(1, 0));
-		assertEquals(1, template.verticalWordLengthFor(2, 0));
-		assertEquals(1, template.verticalWordLengthFor(3, 0));
-		assertEquals(4, template.verticalWordLengthFor(4, 0));
-		assertEquals(4, template.verticalWordLengthFor(4, 1));
-		assertEquals(4, template.verticalWordLengthFor(4, 2));
-		assertEquals(4, template.verticalWordLengthFor(4, 3));
-	}
-	
-	@Test
-	public void findsVerticalWordLengthsForGivenPointsOnLargeBoard() throws Exception {
-		Template template = new Template(new StringReader(LARGE_BOARD));
-		
-		assertEquals(3, template.verticalWordLengthFor(0, 2));
-		assertEquals(10, template.verticalWordLengthFor(1, 2));
-		assertEquals(3, template.verticalWordLengthFor(0, 6));
-		assertEquals(10, template.verticalWordLengthFor(1, 6));
-	}
-	
-}
+package fungoes.lexiku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TemplateTest {
+	private static final String WRONG_SIZE_BOARD = "OOOO\nOXXO\nOO\nOO";
+	private static final String MEDIUM_BOARD = "OOOOO\nOXXXO\nOXXXO\nOOOOO";
+	private static final String SMALL_BOARD = "OOOO\nOXXO\nOXXO";
+	private static final String LARGE_BOARD = "XOOOXXOOOX" + "\n" +
+												"OOOOOOOOOO" + "\n" + 
+												"OOOOOOOOOO" + "\n" + 
+												"OOOOOOOOOO" + "\n" + 
+												"XOOOXXOOOX" + "\n" + 
+												"XOOOXXOOOX" + "\n" + 
+												"OOOOOOOOOO" + "\n" + 
+												"OOOOOOOOOO" + "\n" + 
+												"OOOOOOOOOO" + "\n" + 
+												"XOOOXXOOOX";
+	
+	@Test(expected = IOException.class)
+	public void allTemplateLinesMustHaveTheSameLength() throws Exception {
+		new Template(new StringReader(WRONG_SIZE_BOARD));
+	}
+	
+	@Test
+	public void heightAndWidthAreComputedFromTemplate() throws Exception {
+		Template template = new Template(new StringReader(MEDIUM_BOARD));
+		
+		assertEquals(5, template.getWidth());
+		assertEquals(4, template.getHeight());
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void pastBoundsThrowsException() throws Exception {
+		Template template = new Template(new StringReader(SMALL_BOARD));
+		template.checkTile(20, 20);
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void negativeTileLocationThrowsException() throws Exception {
+		Template template = new Template(new StringReader(SMALL_BOARD));
+		template.checkTile(-20, -20);
+	}
+	
+	@Test
+	public void templateIsLoadedCorrectly() throws Exception {
+		Template template = new Template(new StringReader(SMALL_BOARD));
+		
+		assertEquals(4, template.getWidth());
+		assertEquals(3, template.getHeight());
+		
+		assertEquals(TileType.Open, template.checkTile(0, 0));
+		assertEquals(TileType.Open, template.checkTile(1, 0));
+		assertEquals(TileType.Open, template.checkTile(2, 0));
+		assertEquals(TileType.Open, template.checkTile(3, 0));
+		
+		assertEquals(TileType.Open, template.checkTile(0, 1));
+		assertEquals(TileType.Closed, template.checkTile(1, 1));
+		assertEquals(TileType.Closed, template.checkTile(2, 1));
+		assertEquals(TileType.Open, template.checkTile(3, 1));
+		
+		assertEquals(TileType.Open, template.checkTile(0, 2));
+		assertEquals(TileType.Closed, template.checkTile(1, 2));
+		assertEquals(TileType.Closed, template.checkTile(2, 2));
+		assertEquals(TileType.Open, template.checkTile(3, 2));
+	}
+	
+	@Test
+	public void findsHorizontalWordStartingPointsLeftToRightTopToBottom() throws Exception {
+		Template template = new Template(new StringReader(LARGE_BOARD));
+		
+		assertEquals(10, template.getWidth());
+		assertEquals(10, template.getHeight());
+		
+		List<StartingPoint> startingPoints = template.horizontalStartingPoints();
+		
+		assertEquals(14, startingPoints.size());
+		assertEquals(new StartingPoint(1, 0, 3), startingPoints.get(0));
+		assertEquals(new StartingPoint(6, 0, 3), startingPoints.get(1));
+		assertEquals(new StartingPoint(0, 1, 10), startingPoints.get(2));
+		assertEquals(new StartingPoint(0, 2, 10), startingPoints.get(3));
+		assertEquals(new StartingPoint(0, 3, 10), startingPoints.get(4));
+		assertEquals(new StartingPoint(1, 4, 3), startingPoints.get(5));
+		assertEquals(new StartingPoint(6, 4, 3), startingPoints.get(6));
+		assertEquals(new StartingPoint(1, 5, 3), startingPoints.get(7));
+		assertEquals(new StartingPoint(6, 5, 3), startingPoints.get(8));
+		assertEquals(new StartingPoint(0, 6, 10), startingPoints.get(9));
+		assertEquals(new StartingPoint(0, 7, 10), startingPoints.get(10));
+		assertEquals(new StartingPoint(0, 8, 10), startingPoints.get(11));
+		assertEquals(new StartingPoint(1, 9, 3), startingPoints.get(12));
+		assertEquals(new StartingPoint(6, 9, 3), startingPoints.get(13));
+	}
+	
+	@Test
+	public void singleLetterHorizontalWordsAreReturned() throws Exception {
+		Template template = new Template(new StringReader(MEDIUM_BOARD));
+		
+		List<StartingPoint> startingPoints = template.horizontalStartingPoints();
+		
+		assertEquals(6, startingPoints.size());
+		assertEquals(new StartingPoint(0, 0, 5), startingPoints.get(0));
+		assertEquals(new StartingPoint(0, 1, 1), startingPoints.get(1));
+		assertEquals(new StartingPoint(4, 1, 1), startingPoints.get(2));
+		assertEquals(new StartingPoint(0, 2, 1), startingPoints.get(3));
+		assertEquals(new StartingPoint(4, 2, 1), startingPoints.get(4));
+		assertEquals(new StartingPoint(0, 3, 5), startingPoints.get(5));
+	}
+	
+	@Test
+	public void findsVerticalWordLengthsForGivenPointsOnSmallerBoard() throws Exception {
+		Template template = new Template(new StringReader(MEDIUM_BOARD));
+		
+		assertEquals(4, template.verticalWordLengthFor(0, 0));
+		assertEquals(4, template.verticalWordLengthFor(0, 1));
+		assertEquals(4, template.verticalWordLengthFor(0, 2));
+		assertEquals(4, template.verticalWordLengthFor(0, 3));
+		assertEquals(1, template.verticalWordLengthFor(1, 0));
+		assertEquals(1, template.verticalWordLengthFor(2, 0));
+		assertEquals(1, template.verticalWordLengthFor(3, 0));
+		assertEquals(4, template.verticalWordLengthFor(4, 0));
+		assertEquals(4, template.verticalWordLengthFor(4, 1));
+		assertEquals(4, template.verticalWordLengthFor(4, 2));
+		assertEquals(4, template.verticalWordLengthFor(4, 3));
+	}
+	
+	@Test
+	public void findsVerticalWordLengthsForGivenPointsOnLargeBoard() throws Exception {
+		Template template = new Template(new StringReader(LARGE_BOARD));
+		
+		assertEquals(3, template.verticalWordLengthFor(0, 2));
+		assertEquals(10, template.verticalWordLengthFor(1, 2));
+		assertEquals(3, template.verticalWordLengthFor(0, 6));
+		assertEquals(10, template.verticalWordLengthFor(1, 6));
+	}
+	
+	@Test
+	public void slotGraphListsHorizontalThenVerticalSlots() throws Exception {
+		SlotGraph graph = new Template(new StringReader(SMALL_BOARD)).slotGraph();
+		
+		assertEquals(9, graph.slotCount());
+		assertEquals(5, graph.horizontalSlotCount());
+		assertEquals(12, graph.cellCount());
+		
+		assertTrue(graph.isHorizontal(0));
+		assertEquals(4, graph.length(0));
+		assertEquals(3, graph.cell(0, 3));
+		assertEquals(1, graph.length(4));
+		assertEquals(11, graph.cell(4, 0));
+		
+		assertFalse(graph.isHorizontal(5));
+		assertEquals(3, graph.length(5));
+		assertEquals(8, graph.cell(5, 2));
+		assertEquals(1, graph.length(6));
+		assertEquals(3, graph.length(8));
+	}
+
+	@Test
+	public void slotGraphKnowsWhereSlotsCross() throws Exception {
+		SlotGraph graph = new Template(new StringReader(SMALL_BOARD)).slotGraph();
+		
+		assertEquals(8, graph.crossingSlot(0, 3));
+		assertEquals(0, graph.crossingOffset(0, 3));
+		assertEquals(4, graph.crossingSlot(8, 2));
+		assertEquals(0, graph.crossingOffset(8, 2));
+		assertEquals(5, graph.crossingSlot(3, 0));
+		assertEquals(2, graph.crossingOffset(3, 0));
+		
+		assertEquals(2, graph.horizontalSlotAt(7));
+		assertEquals(8, graph.verticalSlotAt(7));
+		assertEquals(SlotGraph.NO_SLOT, graph.horizontalSlotAt(5));
+		assertEquals(SlotGraph.NO_SLOT, graph.verticalSlotAt(5));
+	}
+
+	@Test
+	public void regionsSplitTemplatesWhereNoWordsCross() throws Exception {
+		Template template = new Template(new StringReader("OOXO\nOOXO\nXXXX\nOXOO"));
+		SlotGraph graph = template.slotGraph();
+		
+		assertEquals(4, graph.regionCount());
+		assertEquals(0, graph.regionOf(graph.horizontalSlotAt(5)));
+		assertEquals(1, graph.regionOf(graph.verticalSlotAt(7)));
+		assertEquals(2, graph.regionOf(graph.verticalSlotAt(12)));
+		assertEquals(3, graph.regionOf(graph.horizontalSlotAt(15)));
+		
+		List<Template> regions = template.regions();
+		
+		assertEquals(4, regions.size());
+		assertEquals(4, regions.get(1).getWidth());
+		assertEquals(TileType.Open, regions.get(1).checkTile(3, 1));
+		assertEquals(TileType.Closed, regions.get(1).checkTile(0, 0));
+		assertEquals(2, regions.get(1).horizontalStartingPoints().size());
+		assertEquals(1, regions.get(1).slotGraph().regionCount());
+		assertEquals(1, new Template(new StringReader(SMALL_BOARD)).regions().size());
+	}
+
+	@Test
+	public void symmetriesMapOpenTilesOntoOpenTiles() throws Exception {
+		assertEquals(Arrays.asList(Symmetry.values()), new Template(new StringReader(LARGE_BOARD)).symmetries());
+		assertEquals(Arrays.asList(Symmetry.Identity, Symmetry.Rotate180, Symmetry.MirrorLeftRight, Symmetry.MirrorTopBottom),
+				new Template(new StringReader(MEDIUM_BOARD)).symmetries());
+		assertEquals(Arrays.asList(Symmetry.Identity, Symmetry.Rotate180, Symmetry.Transpose, Symmetry.AntiTranspose),
+				new Template(new StringReader("OOX\nOOO\nXOO")).symmetries());
+		assertEquals(Arrays.asList(Symmetry.Identity, Symmetry.MirrorLeftRight), new Template(new StringReader(SMALL_BOARD)).symmetries());
+	}
+
+}